@@ -0,0 +1,138 @@
+package com.plociennik.copypasteanonymizer.benchmarks;
+
+import com.plociennik.copypasteanonymizer.enums.ReplacementMode;
+import javafx.util.Pair;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+public final class BenchmarkData {
+
+    private static final long SEED = 42;
+    private static final String[] WORDS = {
+            "INFO", "DEBUG", "request", "handled", "in", "ms", "session", "opened", "closed", "for", "user",
+            "order", "id", "payload", "accepted", "retrying", "connection", "pool", "size", "cache", "miss"
+    };
+
+    private static final String[] SYLLABLES = {
+            "an", "bel", "cor", "da", "el", "fin", "gar", "hel", "is", "jo", "ka", "lin", "mar", "nor", "ol",
+            "per", "ros", "sel", "tor", "ul", "vin", "wal", "yan", "zel"
+    };
+
+    private BenchmarkData() {
+    }
+
+    public static List<Pair<String, String>> pairs(int count) {
+        List<Pair<String, String>> pairs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            pairs.add(new Pair<>("customer%06d@corp.example".formatted(i), "user%06d@anon.example".formatted(i)));
+        }
+        return pairs;
+    }
+
+    /**
+     * Distinct two-word customer names, such as {@code Belmaros Torlin}, mapped to {@code PERSON_n}.
+     */
+    public static List<Pair<String, String>> namePairs(int count) {
+        Random random = new Random(SEED);
+        Set<String> names = new LinkedHashSet<>();
+        while (names.size() < count) {
+            names.add(nameWord(random) + " " + nameWord(random));
+        }
+        List<Pair<String, String>> pairs = new ArrayList<>(count);
+        for (String name : names) {
+            pairs.add(new Pair<>(name, "PERSON_" + pairs.size()));
+        }
+        return pairs;
+    }
+
+    /**
+     * Filler text with a randomly chosen key every {@code charsPerHit} characters; each key has one typo in one of
+     * its words: a deleted, inserted, substituted or transposed letter.
+     */
+    public static TypoPayload typoPayload(int size, int charsPerHit, List<Pair<String, String>> pairs) {
+        Random random = new Random(SEED);
+        StringBuilder payload = new StringBuilder(size + 64);
+        int planted = 0;
+        int nextHit = charsPerHit;
+
+        while (payload.length() < size) {
+            if (payload.length() >= nextHit) {
+                String[] words = pairs.get(random.nextInt(pairs.size())).getKey().split(" ");
+                int word = random.nextInt(words.length);
+                words[word] = typo(words[word], random);
+                payload.append(String.join(" ", words)).append(' ');
+                planted++;
+                nextHit += charsPerHit;
+                continue;
+            }
+            payload.append(WORDS[random.nextInt(WORDS.length)]);
+            payload.append(random.nextInt(16) == 0 ? '\n' : ' ');
+        }
+        return new TypoPayload(payload.toString(), planted);
+    }
+
+    private static String nameWord(Random random) {
+        StringBuilder word = new StringBuilder();
+        int syllables = 2 + random.nextInt(2);
+        for (int i = 0; i < syllables; i++) {
+            word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        word.setCharAt(0, Character.toUpperCase(word.charAt(0)));
+        return word.toString();
+    }
+
+    private static String typo(String word, Random random) {
+        StringBuilder typo = new StringBuilder(word);
+        int position = 1 + random.nextInt(word.length() - 2);
+        char letter = (char) ('a' + random.nextInt(26));
+        switch (random.nextInt(4)) {
+            case 0 -> typo.deleteCharAt(position);
+            case 1 -> typo.insert(position, letter);
+            case 2 -> typo.setCharAt(position, letter == word.charAt(position) ? (char) ('a' + (letter - 'a' + 1) % 26) : letter);
+            default -> {
+                if (word.charAt(position) == word.charAt(position + 1)) {
+                    typo.deleteCharAt(position);
+                } else {
+                    typo.setCharAt(position, word.charAt(position + 1));
+                    typo.setCharAt(position + 1, word.charAt(position));
+                }
+            }
+        }
+        return typo.toString();
+    }
+
+    public record TypoPayload(String text, int planted) {
+    }
+
+    public static String payload(int size, HitDensity density, ReplacementMode mode, List<Pair<String, String>> pairs) {
+        Random random = new Random(SEED);
+        StringBuilder payload = new StringBuilder(size + 64);
+        int nextHit = density == HitDensity.NONE ? Integer.MAX_VALUE : density.charsPerHit();
+
+        while (payload.length() < size) {
+            if (payload.length() >= nextHit) {
+                Pair<String, String> pair = pairs.get(random.nextInt(pairs.size()));
+                payload.append(hitToken(pair, mode, random)).append(' ');
+                nextHit += density.charsPerHit();
+                continue;
+            }
+            payload.append(WORDS[random.nextInt(WORDS.length)]);
+            payload.append(random.nextInt(16) == 0 ? '\n' : ' ');
+        }
+
+        payload.setLength(size);
+        return payload.toString();
+    }
+
+    private static String hitToken(Pair<String, String> pair, ReplacementMode mode, Random random) {
+        return switch (mode) {
+            case LEFT_TO_RIGHT -> pair.getKey();
+            case RIGHT_TO_LEFT -> pair.getValue();
+            case BIDIRECTIONAL -> random.nextBoolean() ? pair.getKey() : pair.getValue();
+        };
+    }
+}
@@ -0,0 +1,152 @@
+package com.plociennik.copypasteanonymizer.benchmarks;
+
+import com.plociennik.copypasteanonymizer.enums.ReplacementMode;
+import com.plociennik.copypasteanonymizer.matcher.AnonymizationResult;
+import com.plociennik.copypasteanonymizer.matcher.CompiledRuleSet;
+import com.plociennik.copypasteanonymizer.matcher.MatchOptions;
+import com.plociennik.copypasteanonymizer.services.PairsCipher;
+import com.plociennik.copypasteanonymizer.services.PairsDictionary;
+import com.plociennik.copypasteanonymizer.services.PairsFileService;
+import com.plociennik.copypasteanonymizer.services.PairsStore;
+import com.plociennik.copypasteanonymizer.services.ReplacementService;
+import javafx.util.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the encrypted pairs store with the plaintext one: unlocking at startup, loading with an already derived
+ * key, journaled saves and the anonymization throughput once the pairs are loaded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EncryptedStoreBenchmark {
+
+    private static final char[] PASSWORD = "benchmark password".toCharArray();
+
+    @Param({"PLAINTEXT", "ENCRYPTED"})
+    private String storage;
+
+    @Param({"1000", "50000"})
+    private int pairCount;
+
+    private final PairsFileService pairsFileService = new PairsFileService();
+
+    private List<Pair<String, String>> pairs;
+    private Path storeDirectory;
+    private Path dictionaryPath;
+    private PairsStore store;
+    private PairsCipher cipher;
+    private List<Pair<String, String>> editedPairs;
+    private boolean edited;
+    private ReplacementService replacementService;
+    private String payload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        pairs = BenchmarkData.pairs(pairCount);
+        storeDirectory = Files.createTempDirectory("cpa-bench-encrypted");
+        dictionaryPath = storeDirectory.resolve("pairs.cpad");
+
+        store = new PairsStore(dictionaryPath, storeDirectory.resolve("pairs.txt"), pairsFileService);
+        store.open();
+        store.save(pairs).join();
+        store.compactLater(pairs, CompiledRuleSet.compile(0, pairs).automaton());
+        store.changePassword(encrypted() ? PASSWORD : null).join();
+        if (encrypted()) {
+            cipher = PairsCipher.unlock(PASSWORD, dictionaryPath);
+        }
+        editedPairs = new ArrayList<>(pairs);
+        editedPairs.set(pairCount / 2, new Pair<>("edited key", "edited value"));
+
+        PairsDictionary dictionary = PairsStore.read(dictionaryPath, pairsFileService, cipher);
+        replacementService = new ReplacementService();
+        replacementService.publish(dictionary.pairs(), dictionary.automaton()).join();
+        payload = BenchmarkData.payload(100_000, HitDensity.SPARSE, ReplacementMode.LEFT_TO_RIGHT, pairs);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        store.close();
+        if (cipher != null) {
+            cipher.close();
+        }
+        try (var files = Files.list(storeDirectory)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(storeDirectory);
+    }
+
+    /**
+     * Startup: derive the key from the password if the store is encrypted, then load the dictionary and publish its
+     * matcher snapshot.
+     */
+    @Benchmark
+    public CompiledRuleSet unlock() throws IOException {
+        if (!encrypted()) {
+            return load(null);
+        }
+        try (PairsCipher unlocked = PairsCipher.unlock(PASSWORD, dictionaryPath)) {
+            return load(unlocked);
+        }
+    }
+
+    /**
+     * Loading with a key that has already been derived, as for every later read in the same session.
+     */
+    @Benchmark
+    public CompiledRuleSet loadUnlocked() {
+        return load(cipher);
+    }
+
+    /**
+     * Journaled save of a single edited pair, sealed with the cached file key when encrypted.
+     */
+    @Benchmark
+    public int saveOneEdit() {
+        edited = !edited;
+        return store.save(edited ? editedPairs : pairs).join();
+    }
+
+    /**
+     * Steady state: the pairs are in memory, so encryption should not show up here at all.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public AnonymizationResult anonymize() {
+        return replacementService.applyReplacements(payload, ReplacementMode.LEFT_TO_RIGHT);
+    }
+
+    private CompiledRuleSet load(PairsCipher pairsCipher) {
+        PairsDictionary dictionary = pairsFileService.load(dictionaryPath, pairsCipher);
+        return CompiledRuleSet.compile(1, dictionary.pairs(), MatchOptions.EXACT, dictionary.automaton());
+    }
+
+    private boolean encrypted() {
+        return storage.equals("ENCRYPTED");
+    }
+}
@@ -0,0 +1,75 @@
+package com.plociennik.copypasteanonymizer.benchmarks;
+
+import com.plociennik.copypasteanonymizer.enums.ReplacementMode;
+import com.plociennik.copypasteanonymizer.matcher.AnonymizationResult;
+import com.plociennik.copypasteanonymizer.matcher.MatchOptions;
+import com.plociennik.copypasteanonymizer.services.ReplacementService;
+import javafx.util.Pair;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency and recall of typo-tolerant matching against a customer-name dictionary. Every planted name has one typo, so
+ * recall is {@code replaced / planted}; with {@code maxEditDistance} 0 it shows the exact-matching baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FuzzyMatchingBenchmark {
+
+    @Param({"0", "1", "2"})
+    private int maxEditDistance;
+
+    @Param({"1000", "10000"})
+    private int pairCount;
+
+    @Param({"100000"})
+    private int payloadSize;
+
+    @Param({"200"})
+    private int charsPerHit;
+
+    private ReplacementService replacementService;
+    private BenchmarkData.TypoPayload payload;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Recall {
+        public long planted;
+        public long replaced;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<Pair<String, String>> pairs = BenchmarkData.namePairs(pairCount);
+        replacementService = new ReplacementService();
+        replacementService.setMatchOptions(MatchOptions.EXACT.withFuzzy(maxEditDistance, MatchOptions.DEFAULT_MIN_FUZZY_KEY_LENGTH));
+        replacementService.publish(pairs).join();
+        payload = BenchmarkData.typoPayload(payloadSize, charsPerHit, pairs);
+    }
+
+    @Benchmark
+    public AnonymizationResult applyReplacements(Recall recall) {
+        AnonymizationResult result = replacementService.applyReplacements(payload.text(), ReplacementMode.LEFT_TO_RIGHT);
+        recall.planted += payload.planted();
+        recall.replaced += result.replacements();
+        return result;
+    }
+}
@@ -0,0 +1,17 @@
+package com.plociennik.copypasteanonymizer.benchmarks;
+
+public enum HitDensity {
+    NONE(0),
+    SPARSE(4_096),
+    DENSE(64);
+
+    private final int charsPerHit;
+
+    HitDensity(int charsPerHit) {
+        this.charsPerHit = charsPerHit;
+    }
+
+    public int charsPerHit() {
+        return charsPerHit;
+    }
+}
@@ -0,0 +1,74 @@
+package com.plociennik.copypasteanonymizer.benchmarks;
+
+import com.plociennik.copypasteanonymizer.enums.ReplacementMode;
+import com.plociennik.copypasteanonymizer.matcher.AnonymizationResult;
+import com.plociennik.copypasteanonymizer.matcher.MatchOptions;
+import com.plociennik.copypasteanonymizer.services.ReplacementService;
+import javafx.util.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.text.Normalizer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of folded matching relative to {@code EXACT} on the same dictionary and payload.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MatchOptionsBenchmark {
+
+    @Param({"EXACT", "IGNORE_CASE", "NFKC", "ALL"})
+    private String matching;
+
+    @Param({"1000"})
+    private int pairCount;
+
+    @Param({"1000000"})
+    private int payloadSize;
+
+    @Param({"SPARSE", "DENSE"})
+    private HitDensity hitDensity;
+
+    private ReplacementService replacementService;
+    private String payload;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<Pair<String, String>> pairs = BenchmarkData.pairs(pairCount);
+        replacementService = new ReplacementService();
+        replacementService.setMatchOptions(matchOptions(matching));
+        replacementService.publish(pairs).join();
+        payload = BenchmarkData.payload(payloadSize, hitDensity, ReplacementMode.LEFT_TO_RIGHT, pairs);
+    }
+
+    @Benchmark
+    public AnonymizationResult applyReplacements() {
+        return replacementService.applyReplacements(payload, ReplacementMode.LEFT_TO_RIGHT);
+    }
+
+    private static MatchOptions matchOptions(String preset) {
+        return switch (preset) {
+            case "EXACT" -> MatchOptions.EXACT;
+            case "IGNORE_CASE" -> new MatchOptions(true, null, false);
+            case "NFKC" -> new MatchOptions(false, Normalizer.Form.NFKC, false);
+            case "ALL" -> new MatchOptions(true, Normalizer.Form.NFKC, true);
+            default -> throw new IllegalArgumentException("Unknown matching preset: " + preset);
+        };
+    }
+}
@@ -0,0 +1,89 @@
+package com.plociennik.copypasteanonymizer.benchmarks;
+
+import com.plociennik.copypasteanonymizer.model.PairItem;
+import com.plociennik.copypasteanonymizer.services.PairSearchIndex;
+import com.plociennik.copypasteanonymizer.services.PairSearchService;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search over the pairs of a profile: a selective query answered from the trigram postings, a two-character query
+ * that checks every pair, and the index upkeep of a single edit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PairSearchBenchmark {
+
+    @Param({"1000", "100000"})
+    private int pairCount;
+
+    private final PairSearchService pairSearchService = new PairSearchService();
+
+    private List<PairItem> pairItems;
+    private PairSearchIndex index;
+    private PairItem editedItem;
+    private String editedKey;
+    private boolean edited;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        pairItems = BenchmarkData.pairs(pairCount).stream()
+                .map(pair -> new PairItem(pair.getKey(), pair.getValue()))
+                .toList();
+        ObservableList<PairItem> items = FXCollections.observableArrayList(pairItems);
+        index = pairSearchService.watch(items);
+        editedItem = items.get(pairCount / 2);
+        editedKey = editedItem.getKey();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pairSearchService.shutdown();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public PairSearchIndex watch() {
+        PairSearchIndex watched = pairSearchService.watch(FXCollections.observableArrayList(pairItems));
+        watched.dispose();
+        return watched;
+    }
+
+    @Benchmark
+    public Set<PairItem> searchSelective() {
+        return index.search("customer000042");
+    }
+
+    @Benchmark
+    public Set<PairItem> searchShort() {
+        return index.search("42");
+    }
+
+    @Benchmark
+    public String editKey() {
+        edited = !edited;
+        editedItem.setKey(edited ? editedKey + "x" : editedKey);
+        return editedItem.getKey();
+    }
+}
@@ -0,0 +1,89 @@
+package com.plociennik.copypasteanonymizer.benchmarks;
+
+import com.plociennik.copypasteanonymizer.model.PairItem;
+import com.plociennik.copypasteanonymizer.services.PairValidationIndex;
+import com.plociennik.copypasteanonymizer.services.PairValidationService;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Indexing a dictionary when its profile is opened, against the edits afterwards, which should not depend on the
+ * number of pairs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PairValidationBenchmark {
+
+    @Param({"10", "1000", "50000"})
+    private int pairCount;
+
+    private final PairValidationService pairValidationService = new PairValidationService();
+
+    private List<PairItem> pairItems;
+    private ObservableList<PairItem> watchedItems;
+    private PairValidationIndex validation;
+    private PairItem editedItem;
+    private String editedKey;
+    private boolean edited;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        pairItems = BenchmarkData.pairs(pairCount).stream()
+                .map(pair -> new PairItem(pair.getKey(), pair.getValue()))
+                .toList();
+
+        watchedItems = FXCollections.observableArrayList(BenchmarkData.pairs(pairCount).stream()
+                .map(pair -> new PairItem(pair.getKey(), pair.getValue()))
+                .toList());
+        validation = pairValidationService.watch(watchedItems);
+        editedItem = watchedItems.get(pairCount / 2);
+        editedKey = editedItem.getKey();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public boolean watch() {
+        PairValidationIndex index = pairValidationService.watch(FXCollections.observableArrayList(pairItems));
+        boolean hasErrors = index.hasErrors();
+        index.dispose();
+        return hasErrors;
+    }
+
+    /**
+     * One keystroke in the left field of a pair, alternately making it a duplicate of another key and undoing that.
+     */
+    @Benchmark
+    public boolean editKey() {
+        edited = !edited;
+        editedItem.setKey(edited ? watchedItems.getFirst().getKey() : editedKey);
+        return validation.hasErrors();
+    }
+
+    @Benchmark
+    public boolean addAndRemovePair() {
+        PairItem item = new PairItem("", "");
+        watchedItems.add(item);
+        boolean hasErrors = validation.hasErrors();
+        watchedItems.remove(watchedItems.size() - 1);
+        return hasErrors;
+    }
+}
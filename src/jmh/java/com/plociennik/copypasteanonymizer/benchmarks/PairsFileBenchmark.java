@@ -0,0 +1,123 @@
+package com.plociennik.copypasteanonymizer.benchmarks;
+
+import com.plociennik.copypasteanonymizer.matcher.CompiledRuleSet;
+import com.plociennik.copypasteanonymizer.matcher.MatchOptions;
+import com.plociennik.copypasteanonymizer.matcher.ReplacementAutomaton;
+import com.plociennik.copypasteanonymizer.services.PairsDictionary;
+import com.plociennik.copypasteanonymizer.services.PairsFileService;
+import com.plociennik.copypasteanonymizer.services.PairsStore;
+import javafx.util.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PairsFileBenchmark {
+
+    @Param({"10", "1000", "50000"})
+    private int pairCount;
+
+    private final PairsFileService pairsFileService = new PairsFileService();
+
+    private List<Pair<String, String>> pairs;
+    private ReplacementAutomaton automaton;
+    private Path dictionaryPath;
+    private Path textPath;
+    private Path savePath;
+    private Path storeDirectory;
+    private PairsStore store;
+    private List<Pair<String, String>> editedPairs;
+    private boolean edited;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        pairs = BenchmarkData.pairs(pairCount);
+        automaton = CompiledRuleSet.compile(0, pairs).automaton();
+        dictionaryPath = Files.createTempFile("cpa-bench-load", ".cpad");
+        textPath = Files.createTempFile("cpa-bench-load", ".txt");
+        savePath = Files.createTempFile("cpa-bench-save", ".cpad");
+        pairsFileService.save(dictionaryPath, pairs, automaton);
+        Files.writeString(textPath, pairs.stream()
+                .map(pair -> pair.getKey() + " = " + pair.getValue())
+                .collect(Collectors.joining("\n")));
+
+        storeDirectory = Files.createTempDirectory("cpa-bench-store");
+        store = new PairsStore(storeDirectory.resolve("pairs.cpad"), storeDirectory.resolve("pairs.txt"), pairsFileService);
+        store.open();
+        store.save(pairs).join();
+        editedPairs = new ArrayList<>(pairs);
+        editedPairs.set(pairCount / 2, new Pair<>("edited key", "edited value"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        store.close();
+        try (var files = Files.list(storeDirectory)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(storeDirectory);
+        Files.deleteIfExists(dictionaryPath);
+        Files.deleteIfExists(textPath);
+        Files.deleteIfExists(savePath);
+    }
+
+    /**
+     * Startup from a dictionary: read the file and publish its matcher snapshot.
+     */
+    @Benchmark
+    public CompiledRuleSet loadDictionary() {
+        PairsDictionary dictionary = pairsFileService.load(dictionaryPath);
+        return CompiledRuleSet.compile(1, dictionary.pairs(), MatchOptions.EXACT, dictionary.automaton());
+    }
+
+    /**
+     * Startup from a text file: parse every line and compile the matcher.
+     */
+    @Benchmark
+    public CompiledRuleSet loadText() {
+        PairsDictionary dictionary = pairsFileService.load(textPath);
+        return CompiledRuleSet.compile(1, dictionary.pairs(), MatchOptions.EXACT, dictionary.automaton());
+    }
+
+    /**
+     * Full rewrite, as done by a journal compaction.
+     */
+    @Benchmark
+    public int save() throws IOException {
+        return pairsFileService.save(savePath, pairs, automaton);
+    }
+
+    /**
+     * Journaled save of a single edited pair.
+     */
+    @Benchmark
+    public int saveOneEdit() {
+        edited = !edited;
+        return store.save(edited ? editedPairs : pairs).join();
+    }
+}
@@ -0,0 +1,67 @@
+package com.plociennik.copypasteanonymizer.benchmarks;
+
+import com.plociennik.copypasteanonymizer.enums.ReplacementMode;
+import com.plociennik.copypasteanonymizer.matcher.AnonymizationResult;
+import com.plociennik.copypasteanonymizer.matcher.StreamingResult;
+import com.plociennik.copypasteanonymizer.services.ReplacementService;
+import javafx.util.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReplacementBenchmark {
+
+    @Param({"10", "1000", "50000"})
+    private int pairCount;
+
+    @Param({"100", "10000", "1000000", "50000000"})
+    private int payloadSize;
+
+    @Param({"NONE", "SPARSE", "DENSE"})
+    private HitDensity hitDensity;
+
+    @Param({"LEFT_TO_RIGHT", "RIGHT_TO_LEFT", "BIDIRECTIONAL"})
+    private ReplacementMode mode;
+
+    private ReplacementService replacementService;
+    private String payload;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<Pair<String, String>> pairs = BenchmarkData.pairs(pairCount);
+        replacementService = new ReplacementService();
+        replacementService.publish(pairs).join();
+        payload = BenchmarkData.payload(payloadSize, hitDensity, mode, pairs);
+    }
+
+    @Benchmark
+    public AnonymizationResult applyReplacements() {
+        return replacementService.applyReplacements(payload, mode);
+    }
+
+    @Benchmark
+    public StreamingResult applyReplacementsStreaming() throws IOException {
+        return replacementService.applyReplacements(new StringReader(payload), Writer.nullWriter(), mode);
+    }
+}
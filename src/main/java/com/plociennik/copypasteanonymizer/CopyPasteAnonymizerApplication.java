@@ -10,8 +10,9 @@ public class CopyPasteAnonymizerApplication extends Application {
 
     @Override
     public void start(Stage stage) throws IOException {
-        StageProcessor.setup(stage);
-        stage.show();
+        if (StageProcessor.setup(stage)) {
+            stage.show();
+        }
     }
 
     public static void main(String[] args) {
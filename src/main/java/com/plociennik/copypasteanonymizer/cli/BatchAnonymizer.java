@@ -0,0 +1,144 @@
+package com.plociennik.copypasteanonymizer.cli;
+
+import com.plociennik.copypasteanonymizer.enums.ReplacementMode;
+import com.plociennik.copypasteanonymizer.matcher.StreamingResult;
+import com.plociennik.copypasteanonymizer.services.ReplacementService;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+final class BatchAnonymizer {
+
+    private final ReplacementService replacementService;
+    private final ReplacementMode mode;
+    private final Path outputDir;
+    private final int threads;
+    private final Charset charset;
+
+    private final LongAdder changed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder undecodable = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder replacements = new LongAdder();
+
+    BatchAnonymizer(ReplacementService replacementService, ReplacementMode mode, Path outputDir, int threads, Charset charset) {
+        this.replacementService = replacementService;
+        this.mode = mode;
+        this.outputDir = outputDir;
+        this.threads = threads;
+        this.charset = charset;
+    }
+
+    BatchSummary run(List<SourceFile> files) {
+        long started = System.nanoTime();
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.invoke(new FileBatch(files, 0, files.size()));
+        } finally {
+            pool.shutdown();
+        }
+
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+        return new BatchSummary(files.size(), changed.sum(), failed.sum(), undecodable.sum(), bytes.sum(), replacements.sum(), elapsed);
+    }
+
+    private void process(SourceFile file) {
+        Path target = outputDir == null ? file.path() : outputDir.resolve(file.relativePath());
+        Path temp = null;
+
+        try {
+            Path directory = target.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            temp = Files.createTempFile(directory, "." + target.getFileName(), ".cpa.tmp");
+            copyPermissions(file.path(), temp);
+
+            StreamingResult result;
+            try (Reader reader = Files.newBufferedReader(file.path(), charset);
+                 Writer writer = Files.newBufferedWriter(temp, charset)) {
+                result = replacementService.applyReplacements(reader, writer, mode);
+            }
+            bytes.add(Files.size(file.path()));
+
+            if (outputDir == null && result.replacements() == 0) {
+                Files.delete(temp);
+                return;
+            }
+
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+            replacements.add(result.replacements());
+            if (result.replacements() > 0) {
+                changed.increment();
+            }
+        } catch (CharacterCodingException e) {
+            failed.increment();
+            undecodable.increment();
+            System.err.println("Failed: " + file.path() + " (not valid " + charset.name() + ", see --charset)");
+            deleteQuietly(temp);
+        } catch (IOException | RuntimeException e) {
+            failed.increment();
+            System.err.println("Failed: " + file.path() + " (" + e + ")");
+            deleteQuietly(temp);
+        }
+    }
+
+    private static void copyPermissions(Path source, Path target) throws IOException {
+        if (Files.getFileAttributeView(source, PosixFileAttributeView.class) != null) {
+            Files.setPosixFilePermissions(target, Files.getPosixFilePermissions(source));
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            System.err.println("Could not delete temporary file " + path + " (" + e + ")");
+        }
+    }
+
+    private final class FileBatch extends RecursiveAction {
+
+        private final List<SourceFile> files;
+        private final int from;
+        private final int to;
+
+        private FileBatch(List<SourceFile> files, int from, int to) {
+            this.files = files;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                if (from < to) {
+                    process(files.get(from));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new FileBatch(files, from, middle), new FileBatch(files, middle, to));
+        }
+    }
+}
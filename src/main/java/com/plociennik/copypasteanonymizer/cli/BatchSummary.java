@@ -0,0 +1,24 @@
+package com.plociennik.copypasteanonymizer.cli;
+
+import java.time.Duration;
+
+record BatchSummary(long files, long changed, long failed, long undecodable, long bytes, long replacements, Duration elapsed) {
+
+    double filesPerSecond() {
+        return files / seconds();
+    }
+
+    double megabytesPerSecond() {
+        return bytes / (1024.0 * 1024.0) / seconds();
+    }
+
+    String format() {
+        String failures = undecodable > 0 ? "%d failed, %d not decodable".formatted(failed, undecodable) : "%d failed".formatted(failed);
+        return "%d files (%d changed, %s), %d replacements, %.1f MB in %.2f s, %.1f files/s, %.1f MB/s".formatted(
+                files, changed, failures, replacements, bytes / (1024.0 * 1024.0), seconds(), filesPerSecond(), megabytesPerSecond());
+    }
+
+    private double seconds() {
+        return Math.max(elapsed.toNanos(), 1) / 1_000_000_000.0;
+    }
+}
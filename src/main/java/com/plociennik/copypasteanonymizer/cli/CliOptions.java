@@ -0,0 +1,142 @@
+package com.plociennik.copypasteanonymizer.cli;
+
+import com.plociennik.copypasteanonymizer.enums.ReplacementMode;
+import com.plociennik.copypasteanonymizer.matcher.MatchOptions;
+import com.plociennik.copypasteanonymizer.services.PairsFileService;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+
+record CliOptions(Path pairsFile, ReplacementMode mode, MatchOptions matchOptions, int threads, Path outputDir,
+                  List<String> targets, boolean filter, Charset charset) {
+
+    static final String USAGE = """
+            Usage: cpa [options] <file|directory|glob>...
+                   cpa [options] --filter
+
+            Anonymizes files with the same pairs dictionary the desktop application uses.
+            Files are rewritten in place unless --output is given.
+            With --filter, standard input is anonymized to standard output as it arrives.
+
+            Options:
+              --pairs <file>       pairs dictionary or key = value text file
+                                   (default: pairs.cpad, or pairs.txt until it has been imported)
+              --mode <mode>        LEFT_TO_RIGHT, RIGHT_TO_LEFT or BIDIRECTIONAL (default: LEFT_TO_RIGHT)
+              --ignore-case        match pairs regardless of letter case
+              --normalize <form>   match pairs after Unicode normalization, NFC or NFKC
+              --tolerate-whitespace
+                                   let any run of whitespace match any other run
+              --fuzzy <n>          also replace words within n typos (1-3) of a key; anonymizing only
+              --fuzzy-min-length <n>
+                                   shortest key matched with typos (default: 5)
+              --threads <n>        number of files processed in parallel (default: number of CPUs)
+              --output <dir>       write anonymized copies into this directory instead
+              --charset <name>     encoding of the files or stream (default: UTF-8)
+              --filter             read standard input, write standard output
+              --help               show this message
+
+            An encrypted dictionary asks for its password on the terminal, or reads it from the
+            CPA_PASSWORD environment variable when there is no terminal.
+            """;
+
+    static CliOptions parse(String[] args) {
+        Path pairsFile = Files.exists(PairsFileService.DEFAULT_PATH) || !Files.exists(PairsFileService.LEGACY_TEXT_PATH)
+                ? PairsFileService.DEFAULT_PATH
+                : PairsFileService.LEGACY_TEXT_PATH;
+        ReplacementMode mode = ReplacementMode.LEFT_TO_RIGHT;
+        boolean ignoreCase = false;
+        Normalizer.Form normalization = null;
+        boolean tolerateWhitespace = false;
+        int maxEditDistance = 0;
+        int minFuzzyKeyLength = MatchOptions.DEFAULT_MIN_FUZZY_KEY_LENGTH;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path outputDir = null;
+        List<String> targets = new ArrayList<>();
+        boolean filter = false;
+        Charset charset = StandardCharsets.UTF_8;
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--pairs" -> pairsFile = Path.of(requireValue(args, ++i, arg));
+                case "--mode" -> mode = parseMode(requireValue(args, ++i, arg));
+                case "--ignore-case" -> ignoreCase = true;
+                case "--normalize" -> normalization = parseNormalization(requireValue(args, ++i, arg));
+                case "--tolerate-whitespace" -> tolerateWhitespace = true;
+                case "--fuzzy" -> maxEditDistance = parseInt(requireValue(args, ++i, arg), 0, MatchOptions.MAX_EDIT_DISTANCE, "edit distance");
+                case "--fuzzy-min-length" -> minFuzzyKeyLength = parseInt(requireValue(args, ++i, arg), 1, Integer.MAX_VALUE, "fuzzy key length");
+                case "--threads" -> threads = parseThreads(requireValue(args, ++i, arg));
+                case "--output" -> outputDir = Path.of(requireValue(args, ++i, arg));
+                case "--filter" -> filter = true;
+                case "--charset" -> charset = parseCharset(requireValue(args, ++i, arg));
+                default -> {
+                    if (arg.startsWith("--")) {
+                        throw new IllegalArgumentException("Unknown option: " + arg);
+                    }
+                    targets.add(arg);
+                }
+            }
+        }
+
+        if (filter && (!targets.isEmpty() || outputDir != null)) {
+            throw new IllegalArgumentException("--filter reads standard input and cannot be combined with files or --output.");
+        }
+        if (!filter && targets.isEmpty()) {
+            throw new IllegalArgumentException("No files, directories or globs given.");
+        }
+        MatchOptions matchOptions = new MatchOptions(ignoreCase, normalization, tolerateWhitespace, maxEditDistance, minFuzzyKeyLength);
+        return new CliOptions(pairsFile, mode, matchOptions, threads, outputDir, List.copyOf(targets), filter, charset);
+    }
+
+    private static String requireValue(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + option);
+        }
+        return args[index];
+    }
+
+    private static ReplacementMode parseMode(String value) {
+        try {
+            return ReplacementMode.valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown mode: " + value);
+        }
+    }
+
+    private static Normalizer.Form parseNormalization(String value) {
+        return switch (value.toUpperCase()) {
+            case "NFC" -> Normalizer.Form.NFC;
+            case "NFKC" -> Normalizer.Form.NFKC;
+            default -> throw new IllegalArgumentException("Unknown normalization form: " + value);
+        };
+    }
+
+    private static Charset parseCharset(String value) {
+        try {
+            return Charset.forName(value);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown charset: " + value);
+        }
+    }
+
+    private static int parseThreads(String value) {
+        return parseInt(value, 1, Integer.MAX_VALUE, "thread count");
+    }
+
+    private static int parseInt(String value, int min, int max, String name) {
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed >= min && parsed <= max) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Invalid %s: %s".formatted(name, value));
+    }
+}
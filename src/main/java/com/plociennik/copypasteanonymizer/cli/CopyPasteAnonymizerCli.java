@@ -0,0 +1,166 @@
+package com.plociennik.copypasteanonymizer.cli;
+
+import com.plociennik.copypasteanonymizer.common.CopyPasteAnonymizerException;
+import com.plociennik.copypasteanonymizer.enums.OverflowPolicy;
+import com.plociennik.copypasteanonymizer.enums.ReplacementMode;
+import com.plociennik.copypasteanonymizer.services.PairsCipher;
+import com.plociennik.copypasteanonymizer.services.PairsDictionary;
+import com.plociennik.copypasteanonymizer.services.PairsFileService;
+import com.plociennik.copypasteanonymizer.services.PairsStore;
+import com.plociennik.copypasteanonymizer.services.ReplacementService;
+
+import java.io.BufferedWriter;
+import java.io.Console;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+public final class CopyPasteAnonymizerCli {
+
+    private static final int EXIT_OK = 0;
+    private static final int EXIT_FAILURES = 1;
+    private static final int EXIT_USAGE = 2;
+    private static final int STREAM_CHUNK_SIZE = 8 * 1024;
+    private static final int PASSWORD_ATTEMPTS = 3;
+    private static final String PASSWORD_VARIABLE = "CPA_PASSWORD";
+
+    private CopyPasteAnonymizerCli() {
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    static int run(String[] args) {
+        if (List.of(args).contains("--help")) {
+            System.out.print(CliOptions.USAGE);
+            return EXIT_OK;
+        }
+
+        CliOptions options;
+        try {
+            options = CliOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(CliOptions.USAGE);
+            return EXIT_USAGE;
+        }
+
+        if (!Files.isRegularFile(options.pairsFile())) {
+            System.err.println("Pairs file not found: " + options.pairsFile());
+            return EXIT_USAGE;
+        }
+
+        if (options.filter()) {
+            return runFilter(options);
+        }
+
+        try {
+            ReplacementService replacementService = newStreamingService();
+            replacementService.setMatchOptions(options.matchOptions());
+            PairsDictionary dictionary = readPairs(options.pairsFile());
+            replacementService.publish(dictionary.pairs(), dictionary.automaton()).join();
+
+            List<SourceFile> files = TargetResolver.resolve(options.targets());
+            BatchSummary summary = new BatchAnonymizer(replacementService, options.mode(), options.outputDir(), options.threads(), options.charset())
+                    .run(files);
+
+            System.out.println(summary.format());
+            return summary.failed() > 0 ? EXIT_FAILURES : EXIT_OK;
+        } catch (CopyPasteAnonymizerException e) {
+            System.err.println(e.getMessage());
+            return EXIT_FAILURES;
+        }
+    }
+
+    private static int runFilter(CliOptions options) {
+        if (options.mode() == ReplacementMode.BIDIRECTIONAL) {
+            System.err.println("Note: BIDIRECTIONAL mode buffers the whole input before writing anything.");
+        }
+
+        ReplacementService replacementService = newStreamingService();
+        Reader input = new InputStreamReader(System.in, options.charset());
+        Writer output = new BufferedWriter(new OutputStreamWriter(System.out, options.charset()));
+
+        try {
+            replacementService.setMatchOptions(options.matchOptions());
+            PairsDictionary dictionary = readPairs(options.pairsFile());
+            replacementService.publish(dictionary.pairs(), dictionary.automaton()).join();
+            replacementService.applyReplacements(input, output, options.mode());
+            return EXIT_OK;
+        } catch (IOException | CopyPasteAnonymizerException e) {
+            System.err.println(e.getMessage());
+            return EXIT_FAILURES;
+        }
+    }
+
+    /**
+     * Files and standard input are streamed chunk by chunk, so neither mode needs the payload cap the clipboard uses.
+     */
+    private static ReplacementService newStreamingService() {
+        return new ReplacementService(STREAM_CHUNK_SIZE, Long.MAX_VALUE, OverflowPolicy.REJECT);
+    }
+
+    /**
+     * Reads the pairs, asking for the password first if the dictionary is encrypted. The console reads the terminal
+     * directly, so standard input stays free for --filter.
+     */
+    private static PairsDictionary readPairs(Path pairsFile) {
+        PairsCipher cipher = null;
+        try {
+            if (PairsCipher.isEncrypted(pairsFile)) {
+                cipher = unlock(pairsFile);
+            }
+            return PairsStore.read(pairsFile, new PairsFileService(), cipher);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new CopyPasteAnonymizerException("1907_18102026", "Something happened when trying to unlock the pairs dictionary:", e);
+        } finally {
+            if (cipher != null) {
+                cipher.close();
+            }
+        }
+    }
+
+    private static PairsCipher unlock(Path pairsFile) throws IOException {
+        Console console = System.console();
+        if (console == null) {
+            String variable = System.getenv(PASSWORD_VARIABLE);
+            if (variable == null) {
+                throw new CopyPasteAnonymizerException("1908_18102026", "The pairs dictionary is encrypted. Run in a terminal or set %s.".formatted(PASSWORD_VARIABLE));
+            }
+            char[] password = variable.toCharArray();
+            try {
+                PairsCipher cipher = PairsCipher.unlock(password, pairsFile);
+                if (cipher == null) {
+                    throw new CopyPasteAnonymizerException("1909_18102026", "Wrong password for the pairs dictionary.");
+                }
+                return cipher;
+            } finally {
+                Arrays.fill(password, '\0');
+            }
+        }
+
+        for (int attempt = 0; attempt < PASSWORD_ATTEMPTS; attempt++) {
+            char[] password = console.readPassword("Password for %s: ", pairsFile);
+            if (password == null) {
+                break;
+            }
+            try {
+                PairsCipher cipher = PairsCipher.unlock(password, pairsFile);
+                if (cipher != null) {
+                    return cipher;
+                }
+            } finally {
+                Arrays.fill(password, '\0');
+            }
+            console.printf("Wrong password.%n");
+        }
+        throw new CopyPasteAnonymizerException("1909_18102026", "Wrong password for the pairs dictionary.");
+    }
+}
@@ -0,0 +1,6 @@
+package com.plociennik.copypasteanonymizer.cli;
+
+import java.nio.file.Path;
+
+record SourceFile(Path path, Path relativePath) {
+}
@@ -0,0 +1,80 @@
+package com.plociennik.copypasteanonymizer.cli;
+
+import com.plociennik.copypasteanonymizer.common.CopyPasteAnonymizerException;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+final class TargetResolver {
+
+    private static final String GLOB_CHARACTERS = "*?[{";
+
+    private TargetResolver() {
+    }
+
+    static List<SourceFile> resolve(List<String> targets) {
+        Map<Path, SourceFile> files = new LinkedHashMap<>();
+        for (String target : targets) {
+            for (SourceFile file : resolve(target)) {
+                files.putIfAbsent(file.path().toAbsolutePath().normalize(), file);
+            }
+        }
+        return new ArrayList<>(files.values());
+    }
+
+    private static List<SourceFile> resolve(String target) {
+        if (isGlob(target)) {
+            return resolveGlob(target);
+        }
+
+        Path path = Path.of(target);
+        if (Files.isDirectory(path)) {
+            return walk(path, path, null);
+        }
+        if (Files.isRegularFile(path)) {
+            return List.of(new SourceFile(path, path.getFileName()));
+        }
+        throw new CopyPasteAnonymizerException("1140_18102026", "The path [%s] does not exist.".formatted(target));
+    }
+
+    private static List<SourceFile> resolveGlob(String target) {
+        String normalized = target.replace('\\', '/');
+        String[] segments = normalized.split("/");
+
+        StringBuilder base = new StringBuilder();
+        int firstGlob = 0;
+        while (firstGlob < segments.length && !isGlob(segments[firstGlob])) {
+            base.append(segments[firstGlob]).append('/');
+            firstGlob++;
+        }
+
+        Path baseDir = base.isEmpty() ? Path.of(".") : Path.of(base.toString());
+        String pattern = String.join("/", List.of(segments).subList(firstGlob, segments.length));
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        return Files.isDirectory(baseDir) ? walk(baseDir, baseDir, matcher) : List.of();
+    }
+
+    private static List<SourceFile> walk(Path root, Path relativeTo, PathMatcher matcher) {
+        try (Stream<Path> paths = Files.walk(root)) {
+            return paths
+                    .filter(Files::isRegularFile)
+                    .map(path -> new SourceFile(path, relativeTo.relativize(path)))
+                    .filter(file -> matcher == null || matcher.matches(file.relativePath()))
+                    .toList();
+        } catch (IOException e) {
+            throw new CopyPasteAnonymizerException("1141_18102026", "Something happened when trying to list [%s]:".formatted(root), e);
+        }
+    }
+
+    private static boolean isGlob(String value) {
+        return value.chars().anyMatch(c -> GLOB_CHARACTERS.indexOf(c) >= 0);
+    }
+}
@@ -0,0 +1,90 @@
+package com.plociennik.copypasteanonymizer.clipboard;
+
+import java.awt.datatransfer.Clipboard;
+import java.awt.datatransfer.ClipboardOwner;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.Transferable;
+import java.awt.datatransfer.UnsupportedFlavorException;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Clipboard contents written by this application. Besides the text it offers a JVM-local marker flavor, which is never
+ * exported to other applications, so the change sources can recognize their own writes without reading the text.
+ * <p>
+ * A selection that was written with itself as owner is also told when another application takes the clipboard, so
+ * while it is the owner, polling can skip the clipboard altogether.
+ */
+final class AnonymizedSelection implements Transferable, ClipboardOwner {
+
+    static final DataFlavor MARKER_FLAVOR = new DataFlavor(
+            DataFlavor.javaJVMLocalObjectMimeType + ";class=" + AnonymizedSelection.class.getName(), "Copy Paste Anonymizer write");
+
+    private static final DataFlavor[] FLAVORS = {DataFlavor.stringFlavor, MARKER_FLAVOR};
+    private static final AtomicReference<AnonymizedSelection> OWNER = new AtomicReference<>();
+
+    private final String content;
+
+    AnonymizedSelection(String content) {
+        this.content = content;
+    }
+
+    static boolean isOwnWrite(Transferable contents) {
+        return contents != null && contents.isDataFlavorSupported(MARKER_FLAVOR);
+    }
+
+    /**
+     * Whether the system clipboard still holds a write of this application, as far as ownership notifications tell.
+     */
+    static boolean ownsClipboard() {
+        return OWNER.get() != null;
+    }
+
+    /**
+     * Writes this selection with itself as owner.
+     */
+    void writeTo(Clipboard clipboard) {
+        clipboard.setContents(this, this);
+        OWNER.set(this);
+    }
+
+    /**
+     * Whether the contents are this very write, not just any write of this application.
+     */
+    boolean isContentsOf(Transferable contents) {
+        if (contents == this) {
+            return true;
+        }
+        try {
+            return isOwnWrite(contents) && contents.getTransferData(MARKER_FLAVOR) == this;
+        } catch (UnsupportedFlavorException | IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public DataFlavor[] getTransferDataFlavors() {
+        return FLAVORS.clone();
+    }
+
+    @Override
+    public boolean isDataFlavorSupported(DataFlavor flavor) {
+        return DataFlavor.stringFlavor.equals(flavor) || MARKER_FLAVOR.equals(flavor);
+    }
+
+    @Override
+    public Object getTransferData(DataFlavor flavor) throws UnsupportedFlavorException {
+        if (DataFlavor.stringFlavor.equals(flavor)) {
+            return content;
+        }
+        if (MARKER_FLAVOR.equals(flavor)) {
+            return this;
+        }
+        throw new UnsupportedFlavorException(flavor);
+    }
+
+    @Override
+    public void lostOwnership(Clipboard clipboard, Transferable contents) {
+        OWNER.compareAndSet(this, null);
+    }
+}
@@ -0,0 +1,12 @@
+package com.plociennik.copypasteanonymizer.clipboard;
+
+public interface ClipboardChangeSource {
+
+    void start();
+
+    void stop();
+
+    void setProcessing(boolean processing);
+
+    ClipboardCounters getCounters();
+}
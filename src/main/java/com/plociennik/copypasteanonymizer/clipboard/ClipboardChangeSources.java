@@ -0,0 +1,19 @@
+package com.plociennik.copypasteanonymizer.clipboard;
+
+import java.util.function.Consumer;
+
+public final class ClipboardChangeSources {
+
+    private ClipboardChangeSources() {
+    }
+
+    public static ClipboardChangeSource create(Consumer<String> onClipboardChange) {
+        if (WindowsClipboardListener.isSupported()) {
+            return new WindowsClipboardListener(onClipboardChange);
+        }
+        if (X11ClipboardListener.isSupported()) {
+            return new X11ClipboardListener(onClipboardChange);
+        }
+        return new SimpleClipboardMonitor(onClipboardChange);
+    }
+}
@@ -0,0 +1,43 @@
+package com.plociennik.copypasteanonymizer.clipboard;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public final class ClipboardCounters {
+
+    private final LongAdder polls = new LongAdder();
+    private final LongAdder fetchesSkipped = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder ownWritesSkipped = new LongAdder();
+
+    void recordPoll() {
+        polls.increment();
+    }
+
+    void recordFetchSkipped() {
+        fetchesSkipped.increment();
+    }
+
+    void recordOwnWriteSkipped() {
+        ownWritesSkipped.increment();
+    }
+
+    void recordCharsRead(int chars) {
+        bytesRead.add((long) chars * Character.BYTES);
+    }
+
+    public long getPolls() {
+        return polls.sum();
+    }
+
+    public long getFetchesSkipped() {
+        return fetchesSkipped.sum();
+    }
+
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    public long getOwnWritesSkipped() {
+        return ownWritesSkipped.sum();
+    }
+}
@@ -0,0 +1,81 @@
+package com.plociennik.copypasteanonymizer.clipboard;
+
+import com.sun.jna.Platform;
+import com.sun.jna.Pointer;
+
+final class ClipboardFingerprint {
+
+    static final long NO_SEQUENCE = -1;
+
+    private static final boolean SEQUENCE_SUPPORTED = Platform.isWindows() || Platform.isMac();
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private long lastSequence = NO_SEQUENCE;
+    private int lastLength = 0;
+    private long lastHash = FNV_OFFSET_BASIS;
+
+    static long currentSequence() {
+        if (!SEQUENCE_SUPPORTED) {
+            return NO_SEQUENCE;
+        }
+        if (Platform.isMac()) {
+            return MacPasteboard.changeCount();
+        }
+        return Integer.toUnsignedLong(ClipboardUser32.INSTANCE.GetClipboardSequenceNumber());
+    }
+
+    static long hash(CharSequence content) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < content.length(); i++) {
+            char c = content.charAt(i);
+            hash = (hash ^ (c & 0xFF)) * FNV_PRIME;
+            hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    boolean isSequenceUnchanged(long sequence) {
+        return sequence != NO_SEQUENCE && sequence == lastSequence;
+    }
+
+    boolean matches(int length, long hash) {
+        return length == lastLength && hash == lastHash;
+    }
+
+    void rememberSequence(long sequence) {
+        lastSequence = sequence;
+    }
+
+    /**
+     * Remembers the sequence of contents that were not read, so that the next external copy is processed even if it
+     * repeats the last text.
+     */
+    void forget(long sequence) {
+        lastSequence = sequence;
+        lastLength = -1;
+    }
+
+    void remember(long sequence, int length, long hash) {
+        lastSequence = sequence;
+        lastLength = length;
+        lastHash = hash;
+    }
+
+    /**
+     * The change count of the general pasteboard, the macOS counterpart of the Win32 clipboard sequence number.
+     */
+    private static final class MacPasteboard {
+
+        private static final Pointer GENERAL_PASTEBOARD = ClipboardObjC.INSTANCE.objc_msgSend(
+                ClipboardObjC.INSTANCE.objc_getClass("NSPasteboard"), ClipboardObjC.INSTANCE.sel_registerName("generalPasteboard"));
+        private static final Pointer CHANGE_COUNT = ClipboardObjC.INSTANCE.sel_registerName("changeCount");
+
+        private static long changeCount() {
+            if (GENERAL_PASTEBOARD == null) {
+                return NO_SEQUENCE;
+            }
+            return Pointer.nativeValue(ClipboardObjC.INSTANCE.objc_msgSend(GENERAL_PASTEBOARD, CHANGE_COUNT));
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.plociennik.copypasteanonymizer.clipboard;
+
+import com.sun.jna.Library;
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+
+public interface ClipboardObjC extends Library {
+
+    ClipboardObjC INSTANCE = Native.load("objc", ClipboardObjC.class);
+
+    Pointer objc_getClass(String name);
+
+    Pointer sel_registerName(String name);
+
+    Pointer objc_msgSend(Pointer receiver, Pointer selector);
+}
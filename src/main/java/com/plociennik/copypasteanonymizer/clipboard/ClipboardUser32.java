@@ -0,0 +1,17 @@
+package com.plociennik.copypasteanonymizer.clipboard;
+
+import com.sun.jna.Native;
+import com.sun.jna.platform.win32.WinDef.HWND;
+import com.sun.jna.win32.StdCallLibrary;
+import com.sun.jna.win32.W32APIOptions;
+
+public interface ClipboardUser32 extends StdCallLibrary {
+
+    ClipboardUser32 INSTANCE = Native.load("user32", ClipboardUser32.class, W32APIOptions.DEFAULT_OPTIONS);
+
+    boolean AddClipboardFormatListener(HWND hwnd);
+
+    boolean RemoveClipboardFormatListener(HWND hwnd);
+
+    int GetClipboardSequenceNumber();
+}
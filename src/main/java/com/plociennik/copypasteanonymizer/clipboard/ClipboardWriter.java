@@ -0,0 +1,215 @@
+package com.plociennik.copypasteanonymizer.clipboard;
+
+import com.plociennik.copypasteanonymizer.jfr.ClipboardWriteEvent;
+import com.plociennik.copypasteanonymizer.metrics.AppMetrics;
+
+import java.awt.Toolkit;
+import java.awt.datatransfer.Clipboard;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.Transferable;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+/**
+ * Writes anonymized text back to the system clipboard on one dedicated thread.
+ * <p>
+ * Writes are coalesced: only the latest requested content is written, so a burst of copies ends with a single write of
+ * the last result. While the clipboard is locked by another application the write is retried with exponential backoff.
+ * The change source is kept in processing mode from the first pending write until the writer is idle again, and the
+ * written contents are marked as {@link AnonymizedSelection} so that it skips them once it resumes.
+ * <p>
+ * Each write carries the text it was anonymized from. Right before writing, the clipboard is checked to still hold
+ * that text; if something else was copied in the meantime the write is dropped rather than overwriting the newer copy.
+ * <p>
+ * {@link #clearLastWrite()} empties the clipboard again, but only while it still holds the last write, so that
+ * anything copied since is left alone.
+ */
+public final class ClipboardWriter {
+
+    private static final Logger LOG = Logger.getLogger(ClipboardWriter.class.getName());
+
+    private static final int MAX_WRITE_ATTEMPTS = 6;
+    private static final long LOCK_RETRY_BASE_MS = 10;
+
+    private record PendingWrite(String source, String content, long requestedAtNanos, ClipboardWriteEvent event, CompletableFuture<Boolean> written) {
+    }
+
+    private final AtomicReference<PendingWrite> pending = new AtomicReference<>();
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+
+    private final ClipboardChangeSource changeSource;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ClipboardWriter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Clipboard clipboard;
+    private AnonymizedSelection lastWritten;
+
+    public ClipboardWriter(ClipboardChangeSource changeSource) {
+        this.changeSource = Objects.requireNonNull(changeSource);
+    }
+
+    /**
+     * Schedules the content to be written in place of {@code source}, replacing any content that has not been written
+     * yet. The future completes with {@code true} once the content is on the clipboard, with {@code false} if newer
+     * content replaced it first or the clipboard no longer holds {@code source}, and exceptionally if the clipboard
+     * could not be updated.
+     */
+    public CompletableFuture<Boolean> write(String source, String content) {
+        ClipboardWriteEvent event = new ClipboardWriteEvent();
+        event.begin();
+        PendingWrite write = new PendingWrite(Objects.requireNonNull(source), Objects.requireNonNull(content), System.nanoTime(), event, new CompletableFuture<>());
+        PendingWrite replaced = pending.getAndSet(write);
+        if (replaced != null) {
+            commitEvent(replaced, "superseded", 0);
+            replaced.written().complete(false);
+        }
+        scheduleDrain();
+        return write.written();
+    }
+
+    /**
+     * Empties the clipboard on the writer thread if it still holds the last content written here and no newer write
+     * is pending. Completes with whether the clipboard was cleared.
+     */
+    public CompletableFuture<Boolean> clearLastWrite() {
+        try {
+            return CompletableFuture.supplyAsync(this::clearIfUnchanged, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(false);
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+        PendingWrite abandoned = pending.getAndSet(null);
+        if (abandoned != null) {
+            commitEvent(abandoned, "abandoned", 0);
+            abandoned.written().complete(false);
+        }
+    }
+
+    private void scheduleDrain() {
+        if (!draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> drain(1));
+        } catch (RejectedExecutionException e) {
+            draining.set(false);
+        }
+    }
+
+    private void drain(int attempt) {
+        changeSource.setProcessing(true);
+
+        PendingWrite write;
+        while ((write = pending.get()) != null) {
+            try {
+                if (clipboard == null) {
+                    clipboard = Toolkit.getDefaultToolkit().getSystemClipboard();
+                }
+                if (!holdsText(clipboard.getContents(null), write.source())) {
+                    if (pending.compareAndSet(write, null)) {
+                        AppMetrics.STALE_WRITES.increment();
+                        commitEvent(write, "stale", attempt);
+                    }
+                    attempt = 1;
+                    write.written().complete(false);
+                    continue;
+                }
+                AnonymizedSelection selection = new AnonymizedSelection(write.content());
+                selection.writeTo(clipboard);
+                lastWritten = selection;
+            } catch (IllegalStateException e) {
+                if (attempt < MAX_WRITE_ATTEMPTS) {
+                    AppMetrics.WRITE_LOCK_RETRIES.increment();
+                    int finalAttempt = attempt;
+                    LOG.fine(() -> "Clipboard temporarily locked (attempt " + finalAttempt + ")");
+                    executor.schedule(() -> drain(finalAttempt + 1), LOCK_RETRY_BASE_MS << (attempt - 1), TimeUnit.MILLISECONDS);
+                    return;
+                }
+                fail(write, e, attempt);
+                attempt = 1;
+                continue;
+            } catch (Exception e) {
+                fail(write, e, attempt);
+                attempt = 1;
+                continue;
+            }
+
+            if (pending.compareAndSet(write, null)) {
+                AppMetrics.WRITE_BACK_TIME.recordSince(write.requestedAtNanos());
+                commitEvent(write, "written", attempt);
+            }
+            attempt = 1;
+            write.written().complete(true);
+        }
+
+        changeSource.setProcessing(false);
+        draining.set(false);
+        if (pending.get() != null) {
+            scheduleDrain();
+        }
+    }
+
+    /**
+     * Whether the contents are the given text copied by the user. Our own writes never count, since they replaced
+     * whatever the text was anonymized from.
+     */
+    private static boolean holdsText(Transferable contents, String text) throws Exception {
+        if (contents == null || AnonymizedSelection.isOwnWrite(contents) || !contents.isDataFlavorSupported(DataFlavor.stringFlavor)) {
+            return false;
+        }
+        return contents.getTransferData(DataFlavor.stringFlavor) instanceof String current
+                && current.length() == text.length() && current.equals(text);
+    }
+
+    private boolean clearIfUnchanged() {
+        AnonymizedSelection written = lastWritten;
+        if (written == null || pending.get() != null) {
+            return false;
+        }
+        try {
+            if (!written.isContentsOf(clipboard.getContents(null))) {
+                return false;
+            }
+            new AnonymizedSelection("").writeTo(clipboard);
+        } catch (IllegalStateException e) {
+            LOG.fine("Clipboard locked by another application, not cleared");
+            return false;
+        }
+        lastWritten = null;
+        AppMetrics.CLIPBOARD_CLEARS.increment();
+        return true;
+    }
+
+    private void fail(PendingWrite write, Exception e, int attempts) {
+        LOG.warning("(%s) %s\n%s".formatted("1210_18102026", "Something happened when trying to update the clipboard:", e.toString()));
+        AppMetrics.WRITE_FAILURES.increment();
+        if (pending.compareAndSet(write, null)) {
+            commitEvent(write, "failed", attempts);
+        }
+        write.written().completeExceptionally(e);
+    }
+
+    private static void commitEvent(PendingWrite write, String outcome, int attempts) {
+        ClipboardWriteEvent event = write.event();
+        if (event.shouldCommit()) {
+            event.chars = write.content().length();
+            event.attempts = attempts;
+            event.outcome = outcome;
+            event.commit();
+        }
+    }
+}
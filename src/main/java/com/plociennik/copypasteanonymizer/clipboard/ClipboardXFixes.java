@@ -0,0 +1,19 @@
+package com.plociennik.copypasteanonymizer.clipboard;
+
+import com.sun.jna.Library;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLong;
+import com.sun.jna.platform.unix.X11;
+import com.sun.jna.ptr.IntByReference;
+
+public interface ClipboardXFixes extends Library {
+
+    ClipboardXFixes INSTANCE = Native.load("Xfixes", ClipboardXFixes.class);
+
+    int XFixesSelectionNotify = 0;
+    int XFixesSetSelectionOwnerNotifyMask = 1;
+
+    boolean XFixesQueryExtension(X11.Display display, IntByReference eventBase, IntByReference errorBase);
+
+    void XFixesSelectSelectionInput(X11.Display display, X11.Window window, X11.Atom selection, NativeLong eventMask);
+}
@@ -1,5 +1,9 @@
 package com.plociennik.copypasteanonymizer.clipboard;
 
+import com.plociennik.copypasteanonymizer.jfr.ClipboardFetchEvent;
+import com.plociennik.copypasteanonymizer.metrics.AppMetrics;
+import com.sun.jna.Platform;
+
 import java.awt.Toolkit;
 import java.awt.datatransfer.Clipboard;
 import java.awt.datatransfer.DataFlavor;
@@ -12,7 +16,7 @@ import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-public final class SimpleClipboardMonitor {
+public final class SimpleClipboardMonitor implements ClipboardChangeSource {
 
     private static final Logger LOG = Logger.getLogger(SimpleClipboardMonitor.class.getName());
 
@@ -28,14 +32,17 @@ public final class SimpleClipboardMonitor {
     private static final long MEDIUM_POLL_MS = 100;
     private static final long SLOW_POLL_MS = 200;
     private static final long LOCK_RETRY_BASE_MS = 150;
+    private static final boolean OWNERSHIP_NOTIFIED = Platform.isX11();
 
     private final AtomicBoolean running = new AtomicBoolean(false);
     private final AtomicBoolean processing = new AtomicBoolean(false);
 
     private final Consumer<String> onClipboardChange;
+    private final ClipboardFingerprint fingerprint = new ClipboardFingerprint();
+    private final ClipboardCounters counters = new ClipboardCounters();
 
-    private volatile String lastContent = "";
     private volatile long lastChangeTimeNs = 0;
+    private long lastPollTimeNs = 0;
 
     private Thread monitorThread;
 
@@ -43,6 +50,7 @@ public final class SimpleClipboardMonitor {
         this.onClipboardChange = Objects.requireNonNull(onClipboardChange);
     }
 
+    @Override
     public void start() {
         boolean compareSuccessful = running.compareAndSet(false, true);
         if (!compareSuccessful) {
@@ -53,6 +61,7 @@ public final class SimpleClipboardMonitor {
         monitorThread.start();
     }
 
+    @Override
     public void stop() {
         boolean compareSuccessful = running.compareAndSet(true, false);
         if (!compareSuccessful) {
@@ -71,10 +80,16 @@ public final class SimpleClipboardMonitor {
         monitorThread = null;
     }
 
+    @Override
     public void setProcessing(boolean processing) {
         this.processing.set(processing);
     }
 
+    @Override
+    public ClipboardCounters getCounters() {
+        return counters;
+    }
+
     private void runMonitorLoop() {
         Clipboard clipboard = Toolkit.getDefaultToolkit().getSystemClipboard();
         int consecutiveErrors = 0;
@@ -130,13 +145,58 @@ public final class SimpleClipboardMonitor {
     }
 
     private void pollClipboardOnce(Clipboard clipboard) throws UnsupportedFlavorException, IOException {
+        ClipboardFetchEvent event = new ClipboardFetchEvent();
+        event.begin();
+        try {
+            pollClipboardOnce(clipboard, event);
+        } finally {
+            if (event.shouldCommit()) {
+                event.source = "polling";
+                event.commit();
+            }
+        }
+    }
+
+    private void pollClipboardOnce(Clipboard clipboard, ClipboardFetchEvent event) throws UnsupportedFlavorException, IOException {
+        counters.recordPoll();
+        long pollTimeNs = System.nanoTime();
+        if (lastPollTimeNs != 0) {
+            AppMetrics.CLIPBOARD_POLL_INTERVAL.record(pollTimeNs - lastPollTimeNs);
+        }
+        lastPollTimeNs = pollTimeNs;
+
+        long sequence = ClipboardFingerprint.currentSequence();
+        if (fingerprint.isSequenceUnchanged(sequence)) {
+            counters.recordFetchSkipped();
+            return;
+        }
+        if (OWNERSHIP_NOTIFIED && AnonymizedSelection.ownsClipboard()) {
+            fingerprint.forget(sequence);
+            counters.recordOwnWriteSkipped();
+            return;
+        }
+
         Transferable contents = clipboard.getContents(null);
+        event.fetched = true;
+        if (AnonymizedSelection.isOwnWrite(contents)) {
+            event.ownWrite = true;
+            fingerprint.forget(sequence);
+            counters.recordOwnWriteSkipped();
+            return;
+        }
         if (contents == null || !contents.isDataFlavorSupported(DataFlavor.stringFlavor)) {
+            fingerprint.rememberSequence(sequence);
             return;
         }
 
         String content = (String) contents.getTransferData(DataFlavor.stringFlavor);
-        if (content.equals(lastContent)) {
+        AppMetrics.CLIPBOARD_FETCH_TIME.recordSince(pollTimeNs);
+        event.chars = content.length();
+        counters.recordCharsRead(content.length());
+
+        long hash = ClipboardFingerprint.hash(content);
+        if (fingerprint.matches(content.length(), hash)) {
+            fingerprint.rememberSequence(sequence);
             return;
         }
 
@@ -145,7 +205,7 @@ public final class SimpleClipboardMonitor {
             return;
         }
 
-        lastContent = content;
+        fingerprint.remember(sequence, content.length(), hash);
         lastChangeTimeNs = now;
         LOG.fine(() -> "Clipboard changed: " + truncate(content));
         onClipboardChange.accept(content);
@@ -0,0 +1,289 @@
+package com.plociennik.copypasteanonymizer.clipboard;
+
+import com.plociennik.copypasteanonymizer.jfr.ClipboardFetchEvent;
+import com.plociennik.copypasteanonymizer.metrics.AppMetrics;
+
+import com.sun.jna.Platform;
+import com.sun.jna.platform.win32.Kernel32;
+import com.sun.jna.platform.win32.User32;
+import com.sun.jna.platform.win32.WinDef.HINSTANCE;
+import com.sun.jna.platform.win32.WinDef.HWND;
+import com.sun.jna.platform.win32.WinDef.LPARAM;
+import com.sun.jna.platform.win32.WinDef.LRESULT;
+import com.sun.jna.platform.win32.WinDef.WPARAM;
+import com.sun.jna.platform.win32.WinUser;
+
+import java.awt.Toolkit;
+import java.awt.datatransfer.Clipboard;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.Transferable;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public final class WindowsClipboardListener implements ClipboardChangeSource {
+
+    private static final Logger LOG = Logger.getLogger(WindowsClipboardListener.class.getName());
+
+    private static final String WINDOW_CLASS_NAME = "CopyPasteAnonymizerClipboardListener";
+    private static final int WM_CLIPBOARDUPDATE = 0x031D;
+    private static final int WM_RECHECK = WinUser.WM_USER + 1;
+    private static final int MAX_READ_ATTEMPTS = 5;
+    private static final int MAX_LOCKED_RECHECKS = 10;
+    private static final long LOCK_RETRY_BASE_MS = 20;
+    private static final long JOIN_TIMEOUT_MS = 1_000;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicBoolean processing = new AtomicBoolean(false);
+    private final AtomicBoolean changedWhileProcessing = new AtomicBoolean(false);
+
+    private final Consumer<String> onClipboardChange;
+    private final WinUser.WindowProc windowProc = this::windowProc;
+    private final ClipboardFingerprint fingerprint = new ClipboardFingerprint();
+    private final ClipboardCounters counters = new ClipboardCounters();
+
+    private volatile int listenerThreadId;
+    private volatile SimpleClipboardMonitor fallback;
+    private long lastUpdateTimeNs;
+    private int lockedRechecks;
+
+    private Clipboard clipboard;
+    private Thread listenerThread;
+
+    public WindowsClipboardListener(Consumer<String> onClipboardChange) {
+        this.onClipboardChange = Objects.requireNonNull(onClipboardChange);
+    }
+
+    public static boolean isSupported() {
+        return Platform.isWindows();
+    }
+
+    @Override
+    public void start() {
+        boolean compareSuccessful = running.compareAndSet(false, true);
+        if (!compareSuccessful) {
+            return;
+        }
+        listenerThread = new Thread(this::runMessageLoop, "ClipboardListener");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+    }
+
+    @Override
+    public void stop() {
+        boolean compareSuccessful = running.compareAndSet(true, false);
+        if (!compareSuccessful) {
+            return;
+        }
+        SimpleClipboardMonitor fallbackMonitor = fallback;
+        if (fallbackMonitor != null) {
+            fallbackMonitor.stop();
+        }
+        if (listenerThreadId != 0) {
+            User32.INSTANCE.PostThreadMessage(listenerThreadId, WinUser.WM_QUIT, new WPARAM(0), new LPARAM(0));
+        }
+        Thread thread = listenerThread;
+        if (thread != null) {
+            try {
+                thread.join(JOIN_TIMEOUT_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                LOG.severe("(%s) %s\n%s".formatted("1012_18102026", "Something happened when trying to join the listener thread:", e.toString()));
+            }
+        }
+        listenerThread = null;
+    }
+
+    @Override
+    public void setProcessing(boolean processing) {
+        SimpleClipboardMonitor fallbackMonitor = fallback;
+        if (fallbackMonitor != null) {
+            fallbackMonitor.setProcessing(processing);
+            return;
+        }
+        this.processing.set(processing);
+        if (!processing && changedWhileProcessing.getAndSet(false) && listenerThreadId != 0) {
+            User32.INSTANCE.PostThreadMessage(listenerThreadId, WM_RECHECK, new WPARAM(0), new LPARAM(0));
+        }
+    }
+
+    @Override
+    public ClipboardCounters getCounters() {
+        SimpleClipboardMonitor fallbackMonitor = fallback;
+        return fallbackMonitor != null ? fallbackMonitor.getCounters() : counters;
+    }
+
+    private void runMessageLoop() {
+        listenerThreadId = Kernel32.INSTANCE.GetCurrentThreadId();
+        clipboard = Toolkit.getDefaultToolkit().getSystemClipboard();
+
+        HINSTANCE instance = Kernel32.INSTANCE.GetModuleHandle(null);
+        HWND hwnd = createMessageWindow(instance);
+        if (hwnd == null || !ClipboardUser32.INSTANCE.AddClipboardFormatListener(hwnd)) {
+            LOG.warning("(%s) %s".formatted("1013_18102026", "Could not register a clipboard format listener. Falling back to polling."));
+            destroyMessageWindow(hwnd, instance);
+            startFallback();
+            return;
+        }
+
+        LOG.info("Clipboard listener started");
+
+        try {
+            WinUser.MSG msg = new WinUser.MSG();
+            while (running.get() && User32.INSTANCE.GetMessage(msg, null, 0, 0) > 0) {
+                if (msg.hWnd == null && msg.message == WM_RECHECK) {
+                    onClipboardUpdate();
+                    continue;
+                }
+                User32.INSTANCE.TranslateMessage(msg);
+                User32.INSTANCE.DispatchMessage(msg);
+            }
+        } finally {
+            ClipboardUser32.INSTANCE.RemoveClipboardFormatListener(hwnd);
+            destroyMessageWindow(hwnd, instance);
+            listenerThreadId = 0;
+            LOG.info("Clipboard listener stopped");
+        }
+    }
+
+    private HWND createMessageWindow(HINSTANCE instance) {
+        WinUser.WNDCLASSEX windowClass = new WinUser.WNDCLASSEX();
+        windowClass.hInstance = instance;
+        windowClass.lpszClassName = WINDOW_CLASS_NAME;
+        windowClass.lpfnWndProc = windowProc;
+        User32.INSTANCE.RegisterClassEx(windowClass);
+
+        return User32.INSTANCE.CreateWindowEx(0, WINDOW_CLASS_NAME, WINDOW_CLASS_NAME, 0, 0, 0, 0, 0,
+                WinUser.HWND_MESSAGE, null, instance, null);
+    }
+
+    private void destroyMessageWindow(HWND hwnd, HINSTANCE instance) {
+        if (hwnd != null) {
+            User32.INSTANCE.DestroyWindow(hwnd);
+        }
+        User32.INSTANCE.UnregisterClass(WINDOW_CLASS_NAME, instance);
+    }
+
+    private void startFallback() {
+        if (!running.get()) {
+            return;
+        }
+        SimpleClipboardMonitor fallbackMonitor = new SimpleClipboardMonitor(onClipboardChange);
+        fallback = fallbackMonitor;
+        fallbackMonitor.setProcessing(processing.get());
+        fallbackMonitor.start();
+    }
+
+    private LRESULT windowProc(HWND hwnd, int message, WPARAM wParam, LPARAM lParam) {
+        if (message == WM_CLIPBOARDUPDATE) {
+            onClipboardUpdate();
+            return new LRESULT(0);
+        }
+        return User32.INSTANCE.DefWindowProc(hwnd, message, wParam, lParam);
+    }
+
+    private void onClipboardUpdate() {
+        if (processing.get()) {
+            changedWhileProcessing.set(true);
+            return;
+        }
+
+        counters.recordPoll();
+        long updateTimeNs = System.nanoTime();
+        if (lastUpdateTimeNs != 0) {
+            AppMetrics.CLIPBOARD_POLL_INTERVAL.record(updateTimeNs - lastUpdateTimeNs);
+        }
+        lastUpdateTimeNs = updateTimeNs;
+
+        ClipboardFetchEvent event = new ClipboardFetchEvent();
+        event.begin();
+        try {
+            long sequence = ClipboardFingerprint.currentSequence();
+            if (fingerprint.isSequenceUnchanged(sequence)) {
+                counters.recordFetchSkipped();
+                return;
+            }
+
+            Transferable contents = readClipboardContents();
+            lockedRechecks = 0;
+            event.fetched = true;
+            if (AnonymizedSelection.isOwnWrite(contents)) {
+                event.ownWrite = true;
+                fingerprint.forget(sequence);
+                counters.recordOwnWriteSkipped();
+                return;
+            }
+            if (contents == null || !contents.isDataFlavorSupported(DataFlavor.stringFlavor)) {
+                fingerprint.rememberSequence(sequence);
+                return;
+            }
+            String content = (String) contents.getTransferData(DataFlavor.stringFlavor);
+            AppMetrics.CLIPBOARD_FETCH_TIME.recordSince(updateTimeNs);
+            event.chars = content.length();
+            counters.recordCharsRead(content.length());
+
+            long hash = ClipboardFingerprint.hash(content);
+            if (fingerprint.matches(content.length(), hash)) {
+                fingerprint.rememberSequence(sequence);
+                return;
+            }
+            fingerprint.remember(sequence, content.length(), hash);
+            onClipboardChange.accept(content);
+        } catch (IllegalStateException e) {
+            recheckLocked();
+        } catch (Exception e) {
+            LOG.log(Level.WARNING, "Unexpected clipboard error", e);
+        } finally {
+            if (event.shouldCommit()) {
+                event.source = "listener";
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Reads the clipboard, retrying while another application holds it open. Throws {@link IllegalStateException} if
+     * it stays locked.
+     */
+    private Transferable readClipboardContents() {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return clipboard.getContents(null);
+            } catch (IllegalStateException e) {
+                if (attempt >= MAX_READ_ATTEMPTS || !interruptibleSleep(LOCK_RETRY_BASE_MS * attempt)) {
+                    throw e;
+                }
+                int finalAttempt = attempt;
+                LOG.fine(() -> "Clipboard temporarily locked (attempt " + finalAttempt + ")");
+            }
+        }
+    }
+
+    /**
+     * Queues another read of a change that could not be read because the clipboard stayed locked. Its sequence number
+     * is not remembered, so the change is read as soon as the clipboard opens again, or with the next update at the
+     * latest.
+     */
+    private void recheckLocked() {
+        if (++lockedRechecks > MAX_LOCKED_RECHECKS) {
+            lockedRechecks = 0;
+            LOG.warning("Clipboard repeatedly locked. Waiting for the next update.");
+            return;
+        }
+        LOG.fine("Clipboard locked. Rechecking.");
+        User32.INSTANCE.PostThreadMessage(listenerThreadId, WM_RECHECK, new WPARAM(0), new LPARAM(0));
+    }
+
+    private boolean interruptibleSleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.warning("(%s) %s\n%s".formatted("1014_18102026", "The sleep was interrupted.", e.toString()));
+            return false;
+        }
+    }
+}
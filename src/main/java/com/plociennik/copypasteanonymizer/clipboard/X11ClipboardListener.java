@@ -0,0 +1,260 @@
+package com.plociennik.copypasteanonymizer.clipboard;
+
+import com.plociennik.copypasteanonymizer.jfr.ClipboardFetchEvent;
+import com.plociennik.copypasteanonymizer.metrics.AppMetrics;
+
+import com.sun.jna.NativeLong;
+import com.sun.jna.Platform;
+import com.sun.jna.platform.unix.X11;
+import com.sun.jna.ptr.IntByReference;
+
+import java.awt.GraphicsEnvironment;
+import java.awt.Toolkit;
+import java.awt.datatransfer.Clipboard;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.Transferable;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Listens for changes of the owner of the X11 {@code CLIPBOARD} selection through the XFixes extension. Every copy
+ * makes the copying application the new owner, so the clipboard is only read after a copy, however big the last one
+ * was. The listener waits on its own display connection, which it checks for events between short sleeps.
+ */
+public final class X11ClipboardListener implements ClipboardChangeSource {
+
+    private static final Logger LOG = Logger.getLogger(X11ClipboardListener.class.getName());
+
+    private static final long EVENT_WAIT_MS = 50;
+    private static final int MAX_READ_ATTEMPTS = 5;
+    private static final long LOCK_RETRY_BASE_MS = 20;
+    private static final long JOIN_TIMEOUT_MS = 1_000;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicBoolean processing = new AtomicBoolean(false);
+    private final AtomicBoolean changedWhileProcessing = new AtomicBoolean(false);
+
+    private final Consumer<String> onClipboardChange;
+    private final ClipboardFingerprint fingerprint = new ClipboardFingerprint();
+    private final ClipboardCounters counters = new ClipboardCounters();
+
+    private volatile SimpleClipboardMonitor fallback;
+    private long lastUpdateTimeNs;
+
+    private Clipboard clipboard;
+    private Thread listenerThread;
+
+    public X11ClipboardListener(Consumer<String> onClipboardChange) {
+        this.onClipboardChange = Objects.requireNonNull(onClipboardChange);
+    }
+
+    public static boolean isSupported() {
+        return Platform.isX11() && !GraphicsEnvironment.isHeadless() && System.getenv("DISPLAY") != null;
+    }
+
+    @Override
+    public void start() {
+        boolean compareSuccessful = running.compareAndSet(false, true);
+        if (!compareSuccessful) {
+            return;
+        }
+        listenerThread = new Thread(this::runEventLoop, "ClipboardListener");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+    }
+
+    @Override
+    public void stop() {
+        boolean compareSuccessful = running.compareAndSet(true, false);
+        if (!compareSuccessful) {
+            return;
+        }
+        SimpleClipboardMonitor fallbackMonitor = fallback;
+        if (fallbackMonitor != null) {
+            fallbackMonitor.stop();
+        }
+        Thread thread = listenerThread;
+        if (thread != null) {
+            try {
+                thread.join(JOIN_TIMEOUT_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                LOG.severe("(%s) %s\n%s".formatted("1015_18102026", "Something happened when trying to join the listener thread:", e.toString()));
+            }
+        }
+        listenerThread = null;
+    }
+
+    @Override
+    public void setProcessing(boolean processing) {
+        SimpleClipboardMonitor fallbackMonitor = fallback;
+        if (fallbackMonitor != null) {
+            fallbackMonitor.setProcessing(processing);
+            return;
+        }
+        this.processing.set(processing);
+    }
+
+    @Override
+    public ClipboardCounters getCounters() {
+        SimpleClipboardMonitor fallbackMonitor = fallback;
+        return fallbackMonitor != null ? fallbackMonitor.getCounters() : counters;
+    }
+
+    private void runEventLoop() {
+        X11.Display display;
+        try {
+            display = X11.INSTANCE.XOpenDisplay(null);
+        } catch (LinkageError e) {
+            display = null;
+        }
+        if (display == null) {
+            LOG.warning("(%s) %s".formatted("1016_18102026", "Could not open the X display. Falling back to polling."));
+            startFallback();
+            return;
+        }
+
+        try {
+            int eventBase = selectOwnerNotifications(display);
+            if (eventBase < 0) {
+                LOG.warning("(%s) %s".formatted("1017_18102026", "The XFixes extension is not available. Falling back to polling."));
+                startFallback();
+                return;
+            }
+            clipboard = Toolkit.getDefaultToolkit().getSystemClipboard();
+
+            LOG.info("Clipboard listener started");
+
+            X11.XEvent event = new X11.XEvent();
+            while (running.get()) {
+                if (!processing.get() && changedWhileProcessing.getAndSet(false)) {
+                    onClipboardUpdate();
+                }
+                if (X11.INSTANCE.XPending(display) == 0) {
+                    if (!interruptibleSleep(EVENT_WAIT_MS)) {
+                        break;
+                    }
+                    continue;
+                }
+                X11.INSTANCE.XNextEvent(display, event);
+                if (event.type == eventBase + ClipboardXFixes.XFixesSelectionNotify) {
+                    onClipboardUpdate();
+                }
+            }
+            LOG.info("Clipboard listener stopped");
+        } finally {
+            X11.INSTANCE.XCloseDisplay(display);
+        }
+    }
+
+    /**
+     * Asks for an event whenever the clipboard changes owner. Returns the XFixes event base, or -1 when the extension
+     * is missing.
+     */
+    private int selectOwnerNotifications(X11.Display display) {
+        try {
+            IntByReference eventBase = new IntByReference();
+            IntByReference errorBase = new IntByReference();
+            if (!ClipboardXFixes.INSTANCE.XFixesQueryExtension(display, eventBase, errorBase)) {
+                return -1;
+            }
+            X11.Atom clipboardAtom = X11.INSTANCE.XInternAtom(display, "CLIPBOARD", false);
+            ClipboardXFixes.INSTANCE.XFixesSelectSelectionInput(display, X11.INSTANCE.XDefaultRootWindow(display),
+                    clipboardAtom, new NativeLong(ClipboardXFixes.XFixesSetSelectionOwnerNotifyMask));
+            X11.INSTANCE.XFlush(display);
+            return eventBase.getValue();
+        } catch (LinkageError e) {
+            return -1;
+        }
+    }
+
+    private void startFallback() {
+        if (!running.get()) {
+            return;
+        }
+        SimpleClipboardMonitor fallbackMonitor = new SimpleClipboardMonitor(onClipboardChange);
+        fallback = fallbackMonitor;
+        fallbackMonitor.setProcessing(processing.get());
+        fallbackMonitor.start();
+    }
+
+    private void onClipboardUpdate() {
+        if (processing.get()) {
+            changedWhileProcessing.set(true);
+            return;
+        }
+
+        counters.recordPoll();
+        long updateTimeNs = System.nanoTime();
+        if (lastUpdateTimeNs != 0) {
+            AppMetrics.CLIPBOARD_POLL_INTERVAL.record(updateTimeNs - lastUpdateTimeNs);
+        }
+        lastUpdateTimeNs = updateTimeNs;
+
+        ClipboardFetchEvent event = new ClipboardFetchEvent();
+        event.begin();
+        try {
+            Transferable contents = readClipboardContents();
+            event.fetched = true;
+            if (AnonymizedSelection.isOwnWrite(contents)) {
+                event.ownWrite = true;
+                fingerprint.forget(ClipboardFingerprint.NO_SEQUENCE);
+                counters.recordOwnWriteSkipped();
+                return;
+            }
+            if (contents == null || !contents.isDataFlavorSupported(DataFlavor.stringFlavor)) {
+                return;
+            }
+            String content = (String) contents.getTransferData(DataFlavor.stringFlavor);
+            AppMetrics.CLIPBOARD_FETCH_TIME.recordSince(updateTimeNs);
+            event.chars = content.length();
+            counters.recordCharsRead(content.length());
+
+            long hash = ClipboardFingerprint.hash(content);
+            if (fingerprint.matches(content.length(), hash)) {
+                return;
+            }
+            fingerprint.remember(ClipboardFingerprint.NO_SEQUENCE, content.length(), hash);
+            onClipboardChange.accept(content);
+        } catch (Exception e) {
+            LOG.log(Level.WARNING, "Unexpected clipboard error", e);
+        } finally {
+            if (event.shouldCommit()) {
+                event.source = "listener";
+                event.commit();
+            }
+        }
+    }
+
+    private Transferable readClipboardContents() {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return clipboard.getContents(null);
+            } catch (IllegalStateException e) {
+                if (attempt >= MAX_READ_ATTEMPTS) {
+                    LOG.warning("Clipboard repeatedly locked. Skipping update.");
+                    return null;
+                }
+                int finalAttempt = attempt;
+                LOG.fine(() -> "Clipboard temporarily locked (attempt " + finalAttempt + ")");
+                if (!interruptibleSleep(LOCK_RETRY_BASE_MS * attempt)) {
+                    return null;
+                }
+            }
+        }
+    }
+
+    private boolean interruptibleSleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.warning("(%s) %s\n%s".formatted("1018_18102026", "The sleep was interrupted.", e.toString()));
+            return false;
+        }
+    }
+}
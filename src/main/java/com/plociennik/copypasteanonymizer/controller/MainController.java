@@ -1,43 +1,98 @@
 package com.plociennik.copypasteanonymizer.controller;
 
-import com.plociennik.copypasteanonymizer.clipboard.SimpleClipboardMonitor;
+import com.plociennik.copypasteanonymizer.clipboard.ClipboardChangeSource;
+import com.plociennik.copypasteanonymizer.clipboard.ClipboardChangeSources;
+import com.plociennik.copypasteanonymizer.clipboard.ClipboardWriter;
 import com.plociennik.copypasteanonymizer.common.CopyPasteAnonymizerException;
+import com.plociennik.copypasteanonymizer.enums.BackpressurePolicy;
 import com.plociennik.copypasteanonymizer.enums.NotificationType;
 import com.plociennik.copypasteanonymizer.enums.ReplacementMode;
+import com.plociennik.copypasteanonymizer.matcher.AnonymizationResult;
+import com.plociennik.copypasteanonymizer.matcher.CompiledRuleSet;
+import com.plociennik.copypasteanonymizer.matcher.MatchOptions;
+import com.plociennik.copypasteanonymizer.matcher.ReplacementAutomaton;
+import com.plociennik.copypasteanonymizer.metrics.AppMetrics;
+import com.plociennik.copypasteanonymizer.metrics.MetricsExporter;
+import com.plociennik.copypasteanonymizer.model.PairItem;
+import com.plociennik.copypasteanonymizer.pipeline.ClipboardEvent;
+import com.plociennik.copypasteanonymizer.pipeline.ClipboardPipeline;
+import com.plociennik.copypasteanonymizer.services.FlightRecordingService;
 import com.plociennik.copypasteanonymizer.services.NotifyService;
+import com.plociennik.copypasteanonymizer.services.PairSearchIndex;
+import com.plociennik.copypasteanonymizer.services.PairSearchService;
+import com.plociennik.copypasteanonymizer.services.PairValidationIndex;
 import com.plociennik.copypasteanonymizer.services.PairValidationService;
+import com.plociennik.copypasteanonymizer.services.PairsDictionary;
+import com.plociennik.copypasteanonymizer.services.PairsFileService;
+import com.plociennik.copypasteanonymizer.services.PairsStore;
+import com.plociennik.copypasteanonymizer.services.ProfileService;
 import com.plociennik.copypasteanonymizer.services.ReplacementService;
+import com.plociennik.copypasteanonymizer.services.TimerService;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.application.Platform;
+import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
 import javafx.fxml.FXML;
-import javafx.scene.Node;
 import javafx.scene.control.*;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
-import javafx.scene.control.TextField;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
+import javafx.util.Duration;
 import javafx.util.Pair;
 
-import java.awt.*;
-import java.awt.datatransfer.Clipboard;
-import java.awt.datatransfer.StringSelection;
 import java.io.File;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.nio.file.Files;
+import java.text.Normalizer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
 
 public class MainController {
 
-    private final List<Pair<String, String>> replacementPairs = new ArrayList<>();
-    private final AtomicReference<String> lastProcessedContent = new AtomicReference<>("");
-    private SimpleClipboardMonitor clipboardMonitor;
+    private static final Logger LOG = Logger.getLogger(MainController.class.getName());
+
+    private static final String SEARCH_TIMER = "pair-search";
+    private static final String CLIPBOARD_CLEAR_TIMER = "clipboard-clear";
+    private static final java.time.Duration SEARCH_DELAY = java.time.Duration.ofMillis(150);
+    private static final Map<String, java.time.Duration> AUTO_CLEAR_OPTIONS = new LinkedHashMap<>();
+
+    static {
+        AUTO_CLEAR_OPTIONS.put("Never", null);
+        AUTO_CLEAR_OPTIONS.put("After 30 s", java.time.Duration.ofSeconds(30));
+        AUTO_CLEAR_OPTIONS.put("After 1 min", java.time.Duration.ofMinutes(1));
+        AUTO_CLEAR_OPTIONS.put("After 5 min", java.time.Duration.ofMinutes(5));
+    }
+
+    private volatile ReplacementMode replacementMode = ReplacementMode.LEFT_TO_RIGHT;
+    private ClipboardChangeSource clipboardMonitor;
+    private ClipboardWriter clipboardWriter;
+    private ClipboardPipeline clipboardPipeline;
+
+    @FXML
+    private ListView<PairItem> pairsList;
 
     @FXML
-    private VBox pairsContainer;
+    private TextField pairsSearch;
+
+    @FXML
+    private ComboBox<String> profileSelector;
+
+    @FXML
+    private Label profileStatus;
 
     @FXML
     private HBox notificationFooter;
@@ -57,20 +112,66 @@ public class MainController {
     @FXML
     private RadioButton bidirectionalMode;
 
+    @FXML
+    private CheckBox ignoreCaseOption;
+
+    @FXML
+    private CheckBox normalizeOption;
+
+    @FXML
+    private CheckBox tolerateWhitespaceOption;
+
+    @FXML
+    private CheckBox tolerateTyposOption;
+
     @FXML
     private Button monitoringToggle;
 
+    @FXML
+    private ComboBox<String> autoClearSelector;
+
+    @FXML
+    private TitledPane diagnosticsPane;
+
+    @FXML
+    private TextArea diagnosticsText;
+
+    @FXML
+    private Button recordingToggle;
+
+    @FXML
+    private Button passwordButton;
+
+    private Timeline diagnosticsRefresh;
+
     private ToggleGroup replacementModeGroup;
-    private boolean isMonitoringPaused = false;
+    private volatile boolean isMonitoringPaused = false;
+    private volatile java.time.Duration autoClearAfter;
 
     private PairValidationService pairValidationService;
     private ReplacementService replacementService;
     private NotifyService notifyService;
+    private TimerService timerService;
+    private ProfileService profileService;
+    private PairsStore pairsStore;
+    private FlightRecordingService flightRecordingService;
+
+    private long searchSequence;
+
+    private PairSearchService pairSearchService;
+    private ProfileEditor editor;
+    private final Map<String, ProfileEditor> profileEditors = new HashMap<>();
+    private final Map<String, List<Pair<String, String>>> profilePairs = new HashMap<>();
+    private String activeProfile;
 
     public MainController() {
         this.pairValidationService = new PairValidationService();
+        this.pairSearchService = new PairSearchService();
         this.replacementService = new ReplacementService();
-        this.notifyService = new NotifyService();
+        this.timerService = new TimerService();
+        this.notifyService = new NotifyService(timerService);
+        this.profileService = new ProfileService(new PairsFileService());
+        this.flightRecordingService = new FlightRecordingService();
     }
 
 
@@ -86,13 +187,38 @@ public class MainController {
         replacementModeGroup.selectedToggleProperty().addListener((obs, oldToggle, newToggle) -> {
             if (newToggle != null) {
                 ReplacementMode mode = getCurrentReplacementMode();
+                replacementMode = mode;
                 this.notifyService.showFooterStatus("Replacement mode: " + getModeDescription(mode), NotificationType.INFO, notificationFooter, notificationIcon, notificationText);
             }
         });
 
-        handleLoadPairs();
+        pairsList.setCellFactory(list -> new PairListCell(this::removePair));
+        pairsSearch.textProperty().addListener((obs, oldQuery, query) -> {
+            if (query.isBlank()) {
+                showAllPairs();
+            } else {
+                timerService.schedule(SEARCH_TIMER, SEARCH_DELAY, Platform::runLater, this::runSearch);
+            }
+        });
+
+        if (!activateProfile(ProfileService.DEFAULT_PROFILE)) {
+            return;
+        }
+        profileSelector.getItems().setAll(profileService.listProfiles());
+        profileSelector.setValue(activeProfile);
         this.notifyService.showFooterStatus("App started. Loaded saved pairs.", NotificationType.SUCCESS, notificationFooter, notificationIcon, notificationText);
+        autoClearSelector.getItems().setAll(AUTO_CLEAR_OPTIONS.keySet());
+        autoClearSelector.setValue("Never");
         startClipboardMonitor();
+        initDiagnostics();
+    }
+
+    /**
+     * Whether a profile was opened on startup. It is not when the user cancels unlocking the default profile, and the
+     * application then shuts down without showing the window.
+     */
+    public boolean isProfileOpen() {
+        return editor != null;
     }
 
     private ReplacementMode getCurrentReplacementMode() {
@@ -113,6 +239,64 @@ public class MainController {
         };
     }
 
+    @FXML
+    private void handleMatchOptionsChanged() {
+        MatchOptions options = new MatchOptions(
+                ignoreCaseOption.isSelected(),
+                normalizeOption.isSelected() ? Normalizer.Form.NFKC : null,
+                tolerateWhitespaceOption.isSelected());
+        if (tolerateTyposOption.isSelected()) {
+            options = options.withFuzzy(1, MatchOptions.DEFAULT_MIN_FUZZY_KEY_LENGTH);
+        }
+        MatchOptions selectedOptions = options;
+        String profile = activeProfile;
+
+        showProfilePending();
+        this.replacementService.setMatchOptions(options).whenComplete((ruleSet, e) -> Platform.runLater(() -> {
+            if (e != null) {
+                notifyService.showFooterStatus("Error while compiling pairs", NotificationType.ERROR, notificationFooter, notificationIcon, notificationText);
+            } else {
+                showProfileActive(profile, ruleSet);
+                notifyService.showFooterStatus("Matching: " + getMatchOptionsDescription(selectedOptions), NotificationType.INFO, notificationFooter, notificationIcon, notificationText);
+            }
+        }));
+    }
+
+    private String getMatchOptionsDescription(MatchOptions options) {
+        if (options.isExact()) {
+            return "exact";
+        }
+        List<String> parts = new ArrayList<>();
+        if (options.ignoreCase()) {
+            parts.add("ignoring case");
+        }
+        if (options.normalization() != null) {
+            parts.add("ignoring Unicode variants");
+        }
+        if (options.tolerateWhitespace()) {
+            parts.add("ignoring extra whitespace");
+        }
+        if (options.isFuzzy()) {
+            parts.add("tolerating up to %d typo(s)".formatted(options.maxEditDistance()));
+        }
+        return String.join(", ", parts);
+    }
+
+    @FXML
+    private void handleAutoClearChanged() {
+        java.time.Duration clearAfter = AUTO_CLEAR_OPTIONS.get(autoClearSelector.getValue());
+        if (Objects.equals(clearAfter, autoClearAfter)) {
+            return;
+        }
+        autoClearAfter = clearAfter;
+        if (clearAfter == null) {
+            timerService.cancel(CLIPBOARD_CLEAR_TIMER);
+            notifyService.showFooterStatus("Anonymized clipboard content is kept", NotificationType.INFO, notificationFooter, notificationIcon, notificationText);
+        } else {
+            notifyService.showFooterStatus("Anonymized clipboard content is cleared " + autoClearSelector.getValue().toLowerCase(), NotificationType.INFO, notificationFooter, notificationIcon, notificationText);
+        }
+    }
+
     @FXML
     private void toggleMonitoring() {
         isMonitoringPaused = !isMonitoringPaused;
@@ -132,119 +316,336 @@ public class MainController {
 
     @FXML
     private void handleAddPair() {
-        boolean arePairsNotValid = this.pairValidationService.arePairsNotValid(pairsContainer);
-        if (arePairsNotValid) {
+        if (validatePairs()) {
             notifyService.showFooterStatus("Please fix the errors before adding a new pair.", NotificationType.ERROR, notificationFooter, notificationIcon, notificationText);
             return;
         }
 
-        addPair("", "");
+        clearSearch();
+        PairItem item = new PairItem("", "");
+        editor.pairs().add(item);
+        pairsList.scrollTo(item);
         notifyService.showFooterStatus("Added a new empty pair.", NotificationType.INFO, notificationFooter, notificationIcon, notificationText);
     }
 
-    private void addPair(String key, String value) {
-        VBox pairContainer = new VBox(5);
-        pairContainer.getStyleClass().add("pair-container");
-
-        HBox row = new HBox(10);
-        row.getStyleClass().add("pair-row");
-
-        TextField keyField = new TextField(key);
-        keyField.setPromptText("Original Text");
-        keyField.getStyleClass().add("text-field");
-
-        TextField valueField = new TextField(value);
-        valueField.setPromptText("Replacement Text");
-        valueField.getStyleClass().add("text-field");
+    private void removePair(PairItem item) {
+        editor.pairs().remove(item);
+        notifyService.showFooterStatus("Removed a pair.", NotificationType.WARNING, notificationFooter, notificationIcon, notificationText);
+    }
 
-        Button removeBtn = new Button("❌");
-        removeBtn.getStyleClass().addAll("button", "remove-button");
-        removeBtn.setOnAction(e -> {
-            pairsContainer.getChildren().remove(pairContainer);
-            notifyService.showFooterStatus("Removed a pair.", NotificationType.WARNING, notificationFooter, notificationIcon, notificationText);
-        });
+    /**
+     * Scrolls to the first invalid pair of the active profile, returning {@code false} if there is none. The pairs are
+     * validated as they are edited, so this does not go through them.
+     */
+    private boolean validatePairs() {
+        if (!editor.validation().hasErrors()) {
+            return false;
+        }
+        PairItem firstInvalid = editor.validation().firstInvalid();
+        Predicate<? super PairItem> filter = editor.visiblePairs().getPredicate();
+        if (filter != null && !filter.test(firstInvalid)) {
+            clearSearch();
+        }
+        pairsList.scrollTo(firstInvalid);
+        return true;
+    }
 
-        row.getChildren().addAll(keyField, valueField, removeBtn);
+    /**
+     * Searches the pairs of the active profile on the search thread and shows the matches, unless the query or the
+     * profile has changed meanwhile.
+     */
+    private void runSearch() {
+        ProfileEditor searched = editor;
+        String query = pairsSearch.getText();
+        long sequence = ++searchSequence;
+        pairSearchService.search(searched.search(), query).whenComplete((matches, e) -> Platform.runLater(() -> {
+            if (sequence != searchSequence || searched != editor) {
+                return;
+            }
+            if (e != null) {
+                LOG.warning("(%s) %s\n%s".formatted("2301_18102026", "Something happened when trying to search the pairs:", e.toString()));
+                notifyService.showFooterStatus("Error while searching pairs", NotificationType.ERROR, notificationFooter, notificationIcon, notificationText);
+                return;
+            }
+            searched.visiblePairs().setPredicate(matches::contains);
+        }));
+    }
 
-        Label errorLabel = new Label();
-        errorLabel.getStyleClass().add("error-message");
-        errorLabel.setVisible(false);
-        errorLabel.setManaged(false);
+    private void showAllPairs() {
+        timerService.cancel(SEARCH_TIMER);
+        searchSequence++;
+        editor.visiblePairs().setPredicate(null);
+    }
 
-        pairContainer.getChildren().addAll(row, errorLabel);
-        pairsContainer.getChildren().add(pairContainer);
+    private void clearSearch() {
+        pairsSearch.clear();
+        showAllPairs();
     }
 
     @FXML
     public void handleSavePairs() {
-        boolean arePairsValid = this.pairValidationService.arePairsNotValid(pairsContainer);
-        if (arePairsValid) {
+        savePairs();
+    }
+
+    /**
+     * Journals the edits since the last save and publishes the pairs; the compiled matcher is stored with the next
+     * compaction. The returned future completes when the edits are on disk or saving has failed.
+     */
+    public CompletableFuture<Void> savePairs() {
+        if (validatePairs()) {
             notifyService.showFooterStatus("Please fix the errors before saving.", NotificationType.ERROR, notificationFooter, notificationIcon, notificationText);
-            return;
+            return CompletableFuture.completedFuture(null);
         }
 
-        replacementPairs.clear();
+        List<Pair<String, String>> replacementPairs = new ArrayList<>(editor.pairs().size());
+        for (PairItem item : editor.pairs()) {
+            if (!item.isEmpty()) {
+                replacementPairs.add(item.toPair());
+            }
+        }
 
-        List<String> pairs = new ArrayList<>();
+        PairsStore store = pairsStore;
+        publishRuleSet(replacementPairs, null)
+                .thenAccept(ruleSet -> store.compactLater(replacementPairs, ruleSet.automaton()));
+
+        return store.save(replacementPairs)
+                .handle((changes, e) -> {
+                    if (e == null) {
+                        notifyService.showFooterStatus("Successfully saved " + replacementPairs.size() + " pairs.", NotificationType.SUCCESS, notificationFooter, notificationIcon, notificationText);
+                    } else {
+                        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                        LOG.warning("(%s) %s\n%s".formatted("1134_13072026", "Something happened when trying to save pairs:", cause.toString()));
+                        notifyService.showFooterStatus("Error saving pairs: " + cause.getMessage(), NotificationType.ERROR, notificationFooter, notificationIcon, notificationText);
+                    }
+                    return null;
+                });
+    }
 
-        for (var pairRow : pairsContainer.getChildren()) {
-            if (pairRow instanceof VBox row) {
-                ObservableList<Node> children = row.getChildren();
-                if (children.getFirst() instanceof HBox box) {
-                    List<TextField> textFields = box.getChildren().stream()
-                            .filter(n -> n instanceof TextField)
-                            .map(n -> (TextField) n)
-                            .toList();
+    @FXML
+    private void handleProfileSelected() {
+        String profile = profileSelector.getValue();
+        if (profile == null || profile.equals(activeProfile)) {
+            return;
+        }
+        if (!activateProfile(profile)) {
+            profileSelector.setValue(activeProfile);
+        }
+    }
 
-                    if (textFields.size() >= 2) {
-                        String key = textFields.get(0).getText().trim();
-                        String value = textFields.get(1).getText().trim();
-                        if (!key.isEmpty() || !value.isEmpty()) {
-                            replacementPairs.add(new Pair<>(key, value));
-                            pairs.add(key + " = " + value);
-                        }
-                    }
-                }
+    @FXML
+    private void handleNewProfile() {
+        TextInputDialog dialog = new TextInputDialog();
+        dialog.setTitle("New Profile");
+        dialog.setHeaderText("Enter a name for the new profile.");
+        dialog.showAndWait().ifPresent(name -> {
+            String profile;
+            try {
+                profile = profileService.createProfile(name);
+            } catch (IllegalArgumentException e) {
+                notifyService.showFooterStatus(e.getMessage(), NotificationType.ERROR, notificationFooter, notificationIcon, notificationText);
+                return;
+            }
+            profileSelector.getItems().setAll(profileService.listProfiles());
+            profileSelector.setValue(activateProfile(profile) ? profile : activeProfile);
+        });
+    }
+
+    /**
+     * Saves the current profile and makes the given one active. A profile that was active before keeps its pairs and
+     * its compiled matcher, so switching back only swaps references. The first switch to a profile loads it and compiles
+     * its matcher in the background while the previous matcher stays in effect. Returns {@code false} if the current
+     * profile has invalid edits, which could not be saved, or the profile stays locked.
+     */
+    private boolean activateProfile(String profile) {
+        if (activeProfile != null) {
+            if (validatePairs()) {
+                notifyService.showFooterStatus("Please fix the errors before switching profiles.", NotificationType.ERROR, notificationFooter, notificationIcon, notificationText);
+                return false;
             }
+            savePairs();
+            clearSearch();
         }
 
-        try (PrintWriter writer = new PrintWriter("pairs.txt")) {
-            for (String pair : pairs) {
-                writer.println(pair);
+        PairsStore store = profileService.store(profile);
+        ProfileEditor profileEditor = profileEditors.get(profile);
+        PairsDictionary dictionary = null;
+        if (profileEditor == null) {
+            if (store.isLocked() && !unlockPairs(store, profile)) {
+                return false;
             }
-            notifyService.showFooterStatus("Successfully saved " + pairs.size() + " pairs.", NotificationType.SUCCESS, notificationFooter, notificationIcon, notificationText);
-        } catch (IOException e) {
-            notifyService.showFooterStatus("Error saving pairs: " + e.getMessage(), NotificationType.ERROR, notificationFooter, notificationIcon, notificationText);
-            throw new CopyPasteAnonymizerException("1134_13072026", "Something happened when trying to show a notification:", e);
+            dictionary = store.open();
+            ObservableList<PairItem> items = FXCollections.observableArrayList(dictionary.pairs().stream()
+                    .map(pair -> new PairItem(pair.getKey(), pair.getValue()))
+                    .toList());
+            profileEditor = new ProfileEditor(items, new FilteredList<>(items),
+                    pairValidationService.watch(items), pairSearchService.watch(items));
+            profileEditors.put(profile, profileEditor);
+        }
+
+        activeProfile = profile;
+        pairsStore = store;
+        editor = profileEditor;
+        pairsList.setItems(profileEditor.visiblePairs());
+        updatePasswordButton();
+
+        if (dictionary == null) {
+            publishRuleSet(profilePairs.get(profile), null);
+        } else {
+            List<Pair<String, String>> loadedPairs = dictionary.pairs();
+            publishRuleSet(loadedPairs, dictionary.automaton())
+                    .thenAccept(ruleSet -> store.compactLater(loadedPairs, ruleSet.automaton()));
         }
+        return true;
     }
 
-    private void handleLoadPairs() {
-        File file = new File("pairs.txt");
-        if (!file.exists())
+    /**
+     * The editor state of a profile that has been opened: its pairs, the ones the search shows, and the indexes that
+     * follow their edits.
+     */
+    private record ProfileEditor(ObservableList<PairItem> pairs, FilteredList<PairItem> visiblePairs,
+                                 PairValidationIndex validation, PairSearchIndex search) {
+    }
+
+    private void showProfilePending() {
+        profileStatus.setText("Switching...");
+        profileStatus.getStyleClass().remove("active");
+        profileStatus.getStyleClass().add("pending");
+    }
+
+    /**
+     * Marks the profile as in effect, unless another profile or a newer rule set has been published meanwhile.
+     */
+    private void showProfileActive(String profile, CompiledRuleSet ruleSet) {
+        if (!profile.equals(activeProfile) || replacementService.getActiveRuleSet().version() != ruleSet.version()) {
             return;
+        }
+        profileStatus.setText("Active (%d pairs)".formatted(ruleSet.pairCount()));
+        profileStatus.getStyleClass().remove("pending");
+        profileStatus.getStyleClass().add("active");
+    }
 
-        List<String> lines;
-        try {
-            lines = Files.readAllLines(file.toPath());
-        } catch (IOException e) {
-            throw new CopyPasteAnonymizerException("1135_13072026", "Something happened when trying to load existing pairs:", e);
+    /**
+     * Asks for the password until the profile's store unlocks, returning {@code false} if the user gives up.
+     */
+    private boolean unlockPairs(PairsStore store, String profile) {
+        String header = "The pairs of profile '%s' are encrypted. Enter the password to unlock them.".formatted(profile);
+        while (true) {
+            char[] password = promptPassword("Unlock Pairs", header, false);
+            if (password == null) {
+                return false;
+            }
+            try {
+                if (store.unlock(password)) {
+                    return true;
+                }
+            } finally {
+                Arrays.fill(password, '\0');
+            }
+            header = "Wrong password. Enter the password to unlock the pairs of profile '%s'.".formatted(profile);
         }
+    }
 
-        pairsContainer.getChildren().clear();
-        replacementPairs.clear();
+    @FXML
+    private void handleChangePassword() {
+        PairsStore store = pairsStore;
+        boolean encrypted = store.isEncrypted();
+        char[] password = encrypted
+                ? promptPassword("Change Password", "Enter a new password, or leave it empty to store the pairs unencrypted.", true)
+                : promptPassword("Set Password", "Enter a password to encrypt the saved pairs.", true);
+        if (password == null || (password.length == 0 && !encrypted)) {
+            return;
+        }
 
-        for (String line : lines) {
-            String[] parts = line.split("=", 2);
-            String key = parts.length > 0 ? parts[0].trim() : "";
-            String value = parts.length > 1 ? parts[1].trim() : "";
-            addPair(key, value);
-            replacementPairs.add(new Pair<>(key, value));
+        passwordButton.setDisable(true);
+        notifyService.showFooterStatus(password.length == 0 ? "Decrypting pairs..." : "Encrypting pairs...", NotificationType.INFO, notificationFooter, notificationIcon, notificationText);
+        savePairs()
+                .thenCompose(ignored -> store.changePassword(password.length == 0 ? null : password))
+                .whenComplete((ignored, e) -> {
+                    Arrays.fill(password, '\0');
+                    Platform.runLater(() -> {
+                        passwordButton.setDisable(false);
+                        updatePasswordButton();
+                        if (e != null) {
+                            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                            LOG.warning(cause.getMessage());
+                            notifyService.showFooterStatus("Error while changing the password", NotificationType.ERROR, notificationFooter, notificationIcon, notificationText);
+                        } else if (store.isEncrypted() && Files.exists(store.getTextPath())) {
+                            notifyService.showFooterStatus("Pairs encrypted, but the old unencrypted " + store.getTextPath() + " still exists", NotificationType.WARNING, notificationFooter, notificationIcon, notificationText);
+                        } else {
+                            notifyService.showFooterStatus(store.isEncrypted() ? "Pairs encrypted" : "Pairs stored unencrypted", NotificationType.SUCCESS, notificationFooter, notificationIcon, notificationText);
+                        }
+                    });
+                });
+    }
+
+    private void updatePasswordButton() {
+        passwordButton.setText(pairsStore.isEncrypted() ? "Change Password" : "Set Password");
+    }
+
+    /**
+     * Shows a password dialog and returns the password, or {@code null} if it was cancelled or the confirmation did not
+     * match. The caller should clear the returned array.
+     */
+    private char[] promptPassword(String title, String header, boolean confirm) {
+        PasswordField password = new PasswordField();
+        password.setPromptText("Password");
+        PasswordField confirmation = new PasswordField();
+        confirmation.setPromptText("Repeat password");
+        VBox content = new VBox(8, password);
+        if (confirm) {
+            content.getChildren().add(confirmation);
+        }
+
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle(title);
+        dialog.setHeaderText(header);
+        dialog.getDialogPane().setContent(content);
+        dialog.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+        Platform.runLater(password::requestFocus);
+
+        char[] chars = null;
+        if (dialog.showAndWait().filter(ButtonType.OK::equals).isPresent()) {
+            if (confirm && CharSequence.compare(password.getCharacters(), confirmation.getCharacters()) != 0) {
+                notifyService.showFooterStatus("The passwords do not match.", NotificationType.ERROR, notificationFooter, notificationIcon, notificationText);
+            } else {
+                CharSequence characters = password.getCharacters();
+                chars = new char[characters.length()];
+                for (int i = 0; i < chars.length; i++) {
+                    chars[i] = characters.charAt(i);
+                }
+            }
         }
+        password.clear();
+        confirmation.clear();
+        return chars;
+    }
+
+    /**
+     * Publishes the pairs of the active profile; the status next to the profile selector shows when they are in effect.
+     */
+    private CompletableFuture<CompiledRuleSet> publishRuleSet(List<Pair<String, String>> replacementPairs, ReplacementAutomaton precompiled) {
+        String profile = activeProfile;
+        List<Pair<String, String>> snapshot = List.copyOf(replacementPairs);
+        profilePairs.put(profile, snapshot);
+
+        showProfilePending();
+        return this.replacementService.publish(profile, snapshot, precompiled).whenComplete((ruleSet, e) -> Platform.runLater(() -> {
+            if (e != null) {
+                notifyService.showFooterStatus("Error while compiling pairs", NotificationType.ERROR, notificationFooter, notificationIcon, notificationText);
+            } else {
+                showProfileActive(profile, ruleSet);
+            }
+        }));
     }
 
     private void startClipboardMonitor() {
-        clipboardMonitor = new SimpleClipboardMonitor(this::onClipboardChanged);
+        clipboardPipeline = ClipboardPipeline.builder()
+                .stage(ClipboardPipeline.ANONYMIZE, BackpressurePolicy.COALESCE, 1, this::anonymize)
+                .stage(ClipboardPipeline.WRITE_BACK, BackpressurePolicy.COALESCE, 1, this::writeBack)
+                .stage(ClipboardPipeline.NOTIFY, BackpressurePolicy.COALESCE, 1, this::notifyAnonymized)
+                .build();
+        clipboardMonitor = ClipboardChangeSources.create(this::onClipboardChanged);
+        clipboardWriter = new ClipboardWriter(clipboardMonitor);
         clipboardMonitor.start();
         notifyService.showFooterStatus("Clipboard monitoring started", NotificationType.SUCCESS, notificationFooter, notificationIcon, notificationText);
     }
@@ -253,53 +654,154 @@ public class MainController {
         if (isMonitoringPaused) {
             return;
         }
+        clipboardPipeline.submit(content);
+    }
 
-        System.out.println("Processing clipboard content: " + content.substring(0, Math.min(30, content.length())) + "...");
+    private ClipboardEvent anonymize(ClipboardEvent event) {
+        String content = event.content();
+        LOG.fine(() -> "Processing clipboard content of %d characters".formatted(content.length()));
 
-        if (content.equals(lastProcessedContent.get())) {
-            System.out.println("Skipping - this is content we just set");
-            return;
+        AnonymizationResult result;
+        try {
+            result = this.replacementService.applyReplacements(content, replacementMode);
+        } catch (CopyPasteAnonymizerException e) {
+            notifyService.showFooterStatus("Clipboard content is too large to anonymize", NotificationType.ERROR, notificationFooter, notificationIcon, notificationText);
+            return null;
         }
 
-        String replacedContent = this.replacementService.applyReplacements(content, getCurrentReplacementMode(), replacementPairs);
+        if (!result.changed()) {
+            LOG.fine("No replacement needed");
+            return null;
+        }
+        return event.withResult(result);
+    }
 
-        if (!replacedContent.equals(content)) {
-            lastProcessedContent.set(replacedContent);
-            clipboardMonitor.setProcessing(true);
+    private ClipboardEvent writeBack(ClipboardEvent event) {
+        try {
+            if (!clipboardWriter.write(event.content(), event.result().content()).join()) {
+                return null;
+            }
+            java.time.Duration clearAfter = autoClearAfter;
+            if (clearAfter != null) {
+                timerService.schedule(CLIPBOARD_CLEAR_TIMER, clearAfter, this::clearClipboard);
+            }
+            return event;
+        } catch (CompletionException e) {
+            notifyService.showFooterStatus("Error while updating clipboard", NotificationType.ERROR, notificationFooter, notificationIcon, notificationText);
+            return null;
+        }
+    }
 
-            Thread updater = new Thread(() -> {
-                try {
-                    Thread.sleep(100);
+    /**
+     * Clears the clipboard if it still holds the last anonymized content; anything copied since is left alone.
+     */
+    private void clearClipboard() {
+        clipboardWriter.clearLastWrite().thenAccept(cleared -> {
+            if (cleared) {
+                notifyService.showFooterStatus("Clipboard cleared", NotificationType.INFO, notificationFooter, notificationIcon, notificationText);
+            }
+        });
+    }
 
-                    Clipboard clipboard = Toolkit.getDefaultToolkit().getSystemClipboard();
-                    StringSelection selection = new StringSelection(replacedContent);
-                    clipboard.setContents(selection, null);
+    private ClipboardEvent notifyAnonymized(ClipboardEvent event) {
+        notifyService.showAnonymized(notificationFooter, notificationIcon, notificationText);
+        return event;
+    }
 
-                    Platform.runLater(() -> {
-                        notifyService.showFooterStatus("Clipboard content anonymized", NotificationType.SUCCESS, notificationFooter, notificationIcon, notificationText);
-                        notifyService.showAnonymizationSuccessMessage();
-                    });
-                    Thread.sleep(200);
-                } catch (Exception e) {
-                    Platform.runLater(() -> notifyService.showFooterStatus("Error while updating clipboard", NotificationType.ERROR, notificationFooter, notificationIcon, notificationText));
-                    throw new CopyPasteAnonymizerException("1134_13072026", "Something happened when trying to update the clipboard:", e);
-                } finally {
-                    clipboardMonitor.setProcessing(false);
-                }
-            });
+    private void initDiagnostics() {
+        ClipboardChangeSource monitor = clipboardMonitor;
+        AppMetrics.REGISTRY.gauge("cpa_clipboard_checks", "Clipboard checks by the change source.", () -> monitor.getCounters().getPolls());
+        AppMetrics.REGISTRY.gauge("cpa_clipboard_fetches_skipped", "Clipboard checks answered by the sequence number alone.", () -> monitor.getCounters().getFetchesSkipped());
+        AppMetrics.REGISTRY.gauge("cpa_clipboard_read_bytes", "UTF-16 bytes of clipboard text read.", () -> monitor.getCounters().getBytesRead());
+        AppMetrics.REGISTRY.gauge("cpa_clipboard_own_writes_skipped", "Clipboard changes recognized as own writes.", () -> monitor.getCounters().getOwnWritesSkipped());
+        AppMetrics.REGISTRY.gauge("cpa_timers_scheduled", "Timers waiting on the shared scheduler.", timerService::getScheduledCount);
+        for (String stage : List.of(ClipboardPipeline.ANONYMIZE, ClipboardPipeline.WRITE_BACK, ClipboardPipeline.NOTIFY)) {
+            AppMetrics.REGISTRY.gauge("cpa_pipeline_queued", "Events waiting in a pipeline stage queue.", Map.of("stage", stage),
+                    () -> clipboardPipeline.getQueued(stage));
+        }
 
-            updater.setDaemon(true);
-            updater.setName("ClipboardUpdater");
-            updater.start();
-        } else {
-            System.out.println("No replacement needed");
-            lastProcessedContent.set(content);
+        recordingToggle.setDisable(!flightRecordingService.isAvailable());
+
+        diagnosticsRefresh = new Timeline(new KeyFrame(Duration.seconds(1), e -> refreshDiagnostics()));
+        diagnosticsRefresh.setCycleCount(Animation.INDEFINITE);
+        diagnosticsPane.expandedProperty().addListener((obs, wasExpanded, expanded) -> {
+            if (expanded) {
+                refreshDiagnostics();
+                diagnosticsRefresh.play();
+            } else {
+                diagnosticsRefresh.stop();
+            }
+        });
+    }
+
+    private void refreshDiagnostics() {
+        diagnosticsText.setText(MetricsExporter.toText(AppMetrics.REGISTRY));
+    }
+
+    @FXML
+    private void handleExportMetrics() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Export Metrics");
+        fileChooser.setInitialFileName("cpa-metrics.prom");
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Prometheus text", "*.prom", "*.txt"),
+                new FileChooser.ExtensionFilter("JSON", "*.json"));
+
+        File file = fileChooser.showSaveDialog(diagnosticsPane.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+        try {
+            MetricsExporter.export(AppMetrics.REGISTRY, file.toPath());
+            notifyService.showFooterStatus("Metrics exported to " + file.getName(), NotificationType.SUCCESS, notificationFooter, notificationIcon, notificationText);
+        } catch (IOException e) {
+            LOG.warning("(%s) %s\n%s".formatted("1501_18102026", "Something happened when trying to export the metrics:", e.toString()));
+            notifyService.showFooterStatus("Error while exporting metrics", NotificationType.ERROR, notificationFooter, notificationIcon, notificationText);
+        }
+    }
+
+    @FXML
+    private void toggleRecording() {
+        if (!flightRecordingService.isRecording()) {
+            flightRecordingService.start();
+            recordingToggle.setText("Stop Recording");
+            notifyService.showFooterStatus("Flight recording started", NotificationType.INFO, notificationFooter, notificationIcon, notificationText);
+            return;
+        }
+
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Save Flight Recording");
+        fileChooser.setInitialFileName("cpa.jfr");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Flight recording", "*.jfr"));
+        File file = fileChooser.showSaveDialog(diagnosticsPane.getScene().getWindow());
+
+        recordingToggle.setText("Start Recording");
+        try {
+            flightRecordingService.stop(file == null ? null : file.toPath());
+            String message = file == null ? "Flight recording discarded" : "Flight recording saved to " + file.getName();
+            notifyService.showFooterStatus(message, NotificationType.SUCCESS, notificationFooter, notificationIcon, notificationText);
+        } catch (CopyPasteAnonymizerException e) {
+            LOG.warning(e.getMessage());
+            notifyService.showFooterStatus("Error while saving the flight recording", NotificationType.ERROR, notificationFooter, notificationIcon, notificationText);
         }
     }
 
     public void shutdown() {
+        flightRecordingService.stop(null);
+        if (diagnosticsRefresh != null) {
+            diagnosticsRefresh.stop();
+        }
+        if (clipboardPipeline != null) {
+            clipboardPipeline.shutdown();
+        }
+        timerService.shutdown();
+        if (clipboardWriter != null) {
+            clipboardWriter.shutdown();
+        }
         if (clipboardMonitor != null) {
             clipboardMonitor.stop();
         }
+        pairSearchService.shutdown();
+        profileService.close();
     }
 }
\ No newline at end of file
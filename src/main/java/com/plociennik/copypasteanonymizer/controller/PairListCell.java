@@ -0,0 +1,92 @@
+package com.plociennik.copypasteanonymizer.controller;
+
+import com.plociennik.copypasteanonymizer.model.PairIssue;
+import com.plociennik.copypasteanonymizer.model.PairItem;
+import javafx.beans.value.ChangeListener;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+
+import java.util.function.Consumer;
+
+/**
+ * A row of the pair editor. The list view only creates the cells that fit on screen and hands them another
+ * {@link PairItem} while scrolling, so the fields are rebound instead of rebuilt.
+ */
+class PairListCell extends ListCell<PairItem> {
+
+    private final TextField keyField = new TextField();
+    private final TextField valueField = new TextField();
+    private final Label errorLabel = new Label();
+    private final HBox row;
+    private final VBox pairContainer;
+    private final ChangeListener<PairIssue> issueListener = (obs, oldIssue, newIssue) -> showIssue(newIssue);
+
+    private PairItem boundItem;
+
+    PairListCell(Consumer<PairItem> onRemove) {
+        keyField.setPromptText("Original Text");
+        keyField.getStyleClass().add("text-field");
+
+        valueField.setPromptText("Replacement Text");
+        valueField.getStyleClass().add("text-field");
+
+        Button removeBtn = new Button("❌");
+        removeBtn.getStyleClass().addAll("button", "remove-button");
+        removeBtn.setOnAction(e -> {
+            if (boundItem != null) {
+                onRemove.accept(boundItem);
+            }
+        });
+
+        row = new HBox(10, keyField, valueField, removeBtn);
+        row.getStyleClass().add("pair-row");
+
+        errorLabel.getStyleClass().add("error-message");
+
+        pairContainer = new VBox(5, row, errorLabel);
+        pairContainer.getStyleClass().add("pair-container");
+    }
+
+    @Override
+    protected void updateItem(PairItem item, boolean empty) {
+        super.updateItem(item, empty);
+        if (boundItem != null) {
+            keyField.textProperty().unbindBidirectional(boundItem.keyProperty());
+            valueField.textProperty().unbindBidirectional(boundItem.valueProperty());
+            boundItem.issueProperty().removeListener(issueListener);
+            boundItem = null;
+        }
+
+        if (empty || item == null) {
+            setGraphic(null);
+            return;
+        }
+
+        keyField.textProperty().bindBidirectional(item.keyProperty());
+        valueField.textProperty().bindBidirectional(item.valueProperty());
+        item.issueProperty().addListener(issueListener);
+        boundItem = item;
+        showIssue(item.getIssue());
+        setGraphic(pairContainer);
+    }
+
+    private void showIssue(PairIssue issue) {
+        keyField.getStyleClass().remove("error");
+        valueField.getStyleClass().remove("error");
+        row.getStyleClass().remove("has-error");
+        errorLabel.setVisible(issue != null);
+        errorLabel.setManaged(issue != null);
+        if (issue == null) {
+            return;
+        }
+
+        if (issue.keyInvalid()) keyField.getStyleClass().add("error");
+        if (issue.valueInvalid()) valueField.getStyleClass().add("error");
+        row.getStyleClass().add("has-error");
+        errorLabel.setText(issue.message());
+    }
+}
@@ -0,0 +1,7 @@
+package com.plociennik.copypasteanonymizer.enums;
+
+public enum BackpressurePolicy {
+    COALESCE,
+    DROP_OLDEST,
+    DROP_NEWEST
+}
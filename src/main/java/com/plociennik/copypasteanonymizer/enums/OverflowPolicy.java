@@ -0,0 +1,6 @@
+package com.plociennik.copypasteanonymizer.enums;
+
+public enum OverflowPolicy {
+    REJECT,
+    TRUNCATE
+}
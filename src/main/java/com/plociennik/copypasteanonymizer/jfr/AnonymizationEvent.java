@@ -0,0 +1,33 @@
+package com.plociennik.copypasteanonymizer.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.plociennik.cpa.Anonymization")
+@Label("Anonymization")
+@Description("One payload run through the active rule set. The content itself is never recorded.")
+@Category({"Copy-Paste Anonymizer", "Matching"})
+@StackTrace(false)
+public final class AnonymizationEvent extends jdk.jfr.Event {
+
+    @Label("Mode")
+    public String mode;
+
+    @Label("Streaming")
+    public boolean streaming;
+
+    @Label("Payload Characters")
+    public long chars;
+
+    @Label("Rule Set Version")
+    public long ruleSetVersion;
+
+    @Label("Replacements")
+    public long replacements;
+
+    @Label("Truncated")
+    public boolean truncated;
+}
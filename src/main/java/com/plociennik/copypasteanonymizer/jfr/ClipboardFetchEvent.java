@@ -0,0 +1,28 @@
+package com.plociennik.copypasteanonymizer.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.plociennik.cpa.ClipboardFetch")
+@Label("Clipboard Fetch")
+@Description("One check of the clipboard by a change source, including fetching and decoding the text when it changed.")
+@Category({"Copy-Paste Anonymizer", "Clipboard"})
+@StackTrace(false)
+public final class ClipboardFetchEvent extends jdk.jfr.Event {
+
+    @Label("Source")
+    public String source;
+
+    @Label("Fetched")
+    @Description("Whether the clipboard contents were fetched; false when the sequence number showed no change.")
+    public boolean fetched;
+
+    @Label("Own Write")
+    public boolean ownWrite;
+
+    @Label("Characters")
+    public int chars;
+}
@@ -0,0 +1,24 @@
+package com.plociennik.copypasteanonymizer.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.plociennik.cpa.ClipboardWrite")
+@Label("Clipboard Write")
+@Description("A requested clipboard write, from the request until it was written, superseded by newer content or failed.")
+@Category({"Copy-Paste Anonymizer", "Clipboard"})
+@StackTrace(false)
+public final class ClipboardWriteEvent extends jdk.jfr.Event {
+
+    @Label("Characters")
+    public int chars;
+
+    @Label("Attempts")
+    public int attempts;
+
+    @Label("Outcome")
+    public String outcome;
+}
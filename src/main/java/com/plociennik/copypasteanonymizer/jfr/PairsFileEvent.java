@@ -0,0 +1,22 @@
+package com.plociennik.copypasteanonymizer.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.plociennik.cpa.PairsFile")
+@Label("Pairs File")
+@Category({"Copy-Paste Anonymizer", "Storage"})
+@StackTrace(false)
+public final class PairsFileEvent extends jdk.jfr.Event {
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("File")
+    public String file;
+
+    @Label("Pairs")
+    public int pairs;
+}
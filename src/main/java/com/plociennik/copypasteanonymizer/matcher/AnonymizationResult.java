@@ -0,0 +1,5 @@
+package com.plociennik.copypasteanonymizer.matcher;
+
+public record AnonymizationResult(String content, boolean changed, boolean truncated, long replacements,
+                                  long ruleSetVersion) {
+}
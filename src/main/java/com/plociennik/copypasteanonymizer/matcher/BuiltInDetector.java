@@ -0,0 +1,68 @@
+package com.plociennik.copypasteanonymizer.matcher;
+
+import java.math.BigInteger;
+import java.util.Locale;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+public enum BuiltInDetector {
+
+    EMAIL("(?<![A-Za-z0-9._%+-])[A-Za-z0-9._%+-]++@(?:[A-Za-z0-9-]++\\.)+[A-Za-z]{2,}+(?![A-Za-z0-9-])", "@", null),
+    IPV4("(?<![\\d.])(?:(?:25[0-5]|2[0-4]\\d|1\\d\\d|[1-9]?\\d)\\.){3}(?:25[0-5]|2[0-4]\\d|1\\d\\d|[1-9]?\\d)(?![\\d.]?\\d)", ".", null),
+    IPV6("(?<![\\w:])(?:(?:H:){7}H|(?:H(?::H){0,5})?::H(?::H){0,5}|H(?::H){0,6}::)(?![\\w:])"
+            .replace("H", "[0-9A-Fa-f]{1,4}"), ":", null),
+    IBAN("\\b[A-Z]{2}\\d{2}(?: ?[A-Z0-9]{4}){2,7}(?: ?[A-Z0-9]{1,3})?\\b", null, BuiltInDetector::hasValidIbanChecksum),
+    UUID("\\b[0-9A-Fa-f]{8}-[0-9A-Fa-f]{4}-[0-9A-Fa-f]{4}-[0-9A-Fa-f]{4}-[0-9A-Fa-f]{12}\\b", "-", null);
+
+    private static final BigInteger NINETY_SEVEN = BigInteger.valueOf(97);
+
+    private final Pattern pattern;
+    private final String requiredLiteral;
+    private final Predicate<CharSequence> validator;
+
+    BuiltInDetector(String regex, String requiredLiteral, Predicate<CharSequence> validator) {
+        this.pattern = Pattern.compile(regex);
+        this.requiredLiteral = requiredLiteral;
+        this.validator = validator;
+    }
+
+    public static BuiltInDetector byName(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown detector '%s'.".formatted(name.trim()), e);
+        }
+    }
+
+    Pattern pattern() {
+        return pattern;
+    }
+
+    String requiredLiteral() {
+        return requiredLiteral;
+    }
+
+    Predicate<CharSequence> validator() {
+        return validator;
+    }
+
+    private static boolean hasValidIbanChecksum(CharSequence candidate) {
+        StringBuilder compact = new StringBuilder(candidate.length());
+        for (int i = 0; i < candidate.length(); i++) {
+            char c = candidate.charAt(i);
+            if (c != ' ') {
+                compact.append(c);
+            }
+        }
+        if (compact.length() < 15 || compact.length() > 34) {
+            return false;
+        }
+
+        StringBuilder digits = new StringBuilder(compact.length() * 2);
+        String rearranged = compact.substring(4) + compact.substring(0, 4);
+        for (int i = 0; i < rearranged.length(); i++) {
+            digits.append(Character.digit(rearranged.charAt(i), 36));
+        }
+        return new BigInteger(digits.toString()).mod(NINETY_SEVEN).intValue() == 1;
+    }
+}
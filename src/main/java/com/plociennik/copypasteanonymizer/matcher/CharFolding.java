@@ -0,0 +1,122 @@
+package com.plociennik.copypasteanonymizer.matcher;
+
+import java.text.Normalizer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-character folding table for one set of {@link MatchOptions}. Normalization folds to the decomposed form
+ * (NFD or NFKD), which is equivalent to comparing the composed forms and can be done one character at a time.
+ * Characters outside the Basic Multilingual Plane are compared as they are.
+ */
+final class CharFolding {
+
+    static final char SPACE = ' ';
+
+    private static final Map<MatchOptions, CharFolding> CACHE = new ConcurrentHashMap<>();
+
+    private final char[] single = new char[Character.MAX_VALUE + 1];
+    private final char[][] expansions = new char[Character.MAX_VALUE + 1][];
+    private final boolean tolerateWhitespace;
+    private final int maxExpansion;
+
+    private CharFolding(MatchOptions options) {
+        this.tolerateWhitespace = options.tolerateWhitespace();
+
+        Normalizer.Form decomposition = null;
+        if (options.normalization() == Normalizer.Form.NFC) {
+            decomposition = Normalizer.Form.NFD;
+        } else if (options.normalization() == Normalizer.Form.NFKC) {
+            decomposition = Normalizer.Form.NFKD;
+        }
+
+        int longest = 1;
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            String folded = String.valueOf((char) c);
+            if (decomposition != null && !Character.isSurrogate((char) c)) {
+                folded = Normalizer.normalize(folded, decomposition);
+            }
+
+            char[] chars = folded.toCharArray();
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = foldChar(chars[i], options);
+            }
+            if (chars.length == 1) {
+                single[c] = chars[0];
+            } else {
+                expansions[c] = chars;
+                longest = Math.max(longest, chars.length);
+            }
+        }
+        this.maxExpansion = longest;
+    }
+
+    static CharFolding of(MatchOptions options) {
+        MatchOptions foldingOnly = new MatchOptions(options.ignoreCase(), options.normalization(), options.tolerateWhitespace());
+        return CACHE.computeIfAbsent(foldingOnly, CharFolding::new);
+    }
+
+    /**
+     * Returns the folded characters of {@code c}, or {@code null} when it folds to the single character returned by
+     * {@link #single}.
+     */
+    char[] expansion(char c) {
+        return expansions[c];
+    }
+
+    char single(char c) {
+        return single[c];
+    }
+
+    /**
+     * Whether a run of whitespace continues after {@code c}, so that following whitespace has to be collapsed.
+     */
+    boolean endsWithSpace(char c) {
+        if (!tolerateWhitespace) {
+            return false;
+        }
+        char[] expansion = expansions[c];
+        return (expansion == null ? single[c] : expansion[expansion.length - 1]) == SPACE;
+    }
+
+    boolean tolerateWhitespace() {
+        return tolerateWhitespace;
+    }
+
+    int maxExpansion() {
+        return maxExpansion;
+    }
+
+    String fold(String pattern) {
+        StringBuilder folded = new StringBuilder(pattern.length());
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            char[] expansion = expansions[c];
+            if (expansion == null) {
+                append(folded, single[c]);
+            } else {
+                for (char f : expansion) {
+                    append(folded, f);
+                }
+            }
+        }
+        return folded.toString();
+    }
+
+    private void append(StringBuilder folded, char f) {
+        boolean collapsed = tolerateWhitespace && f == SPACE && !folded.isEmpty() && folded.charAt(folded.length() - 1) == SPACE;
+        if (!collapsed) {
+            folded.append(f);
+        }
+    }
+
+    private static char foldChar(char c, MatchOptions options) {
+        if (options.tolerateWhitespace() && (Character.isWhitespace(c) || Character.isSpaceChar(c))) {
+            return SPACE;
+        }
+        if (options.ignoreCase()) {
+            return Character.toLowerCase(Character.toUpperCase(c));
+        }
+        return c;
+    }
+}
@@ -0,0 +1,135 @@
+package com.plociennik.copypasteanonymizer.matcher;
+
+import com.plociennik.copypasteanonymizer.enums.ReplacementMode;
+import javafx.util.Pair;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+public final class CompiledRuleSet {
+
+    public static final CompiledRuleSet EMPTY = new CompiledRuleSet(0, ReplacementAutomaton.EMPTY, PatternRuleSet.EMPTY, null);
+
+    private static final Logger LOG = Logger.getLogger(CompiledRuleSet.class.getName());
+
+    private final long version;
+    private final ReplacementAutomaton automaton;
+    private final PatternRuleSet patternRules;
+    private final FuzzyIndex fuzzyIndex;
+
+    private CompiledRuleSet(long version, ReplacementAutomaton automaton, PatternRuleSet patternRules, FuzzyIndex fuzzyIndex) {
+        this.version = version;
+        this.automaton = automaton;
+        this.patternRules = patternRules;
+        this.fuzzyIndex = fuzzyIndex;
+    }
+
+    public static CompiledRuleSet compile(long version, List<Pair<String, String>> replacementPairs) {
+        return compile(version, replacementPairs, MatchOptions.EXACT);
+    }
+
+    public static CompiledRuleSet compile(long version, List<Pair<String, String>> replacementPairs, MatchOptions options) {
+        return compile(version, replacementPairs, options, null);
+    }
+
+    /**
+     * Reuses a precompiled automaton of the same pairs, for example one read from a dictionary file, when it was
+     * compiled with the same folding options; otherwise the automaton is compiled from scratch.
+     */
+    public static CompiledRuleSet compile(long version, List<Pair<String, String>> replacementPairs, MatchOptions options,
+                                          ReplacementAutomaton precompiled) {
+        List<Pair<String, String>> literalPairs = new ArrayList<>(replacementPairs.size());
+        List<PatternRule> rules = new ArrayList<>();
+
+        for (Pair<String, String> pair : replacementPairs) {
+            if (pair.getKey() == null || !PatternRule.isPatternKey(pair.getKey())) {
+                literalPairs.add(pair);
+                continue;
+            }
+            try {
+                rules.add(PatternRule.parse(pair.getKey(), pair.getValue(), options.ignoreCase()));
+            } catch (IllegalArgumentException e) {
+                LOG.warning("(%s) %s\n%s".formatted("1121_18102026", "Skipping invalid pattern rule '%s':".formatted(pair.getKey()), e.getMessage()));
+            }
+        }
+
+        PatternRuleSet patternRuleSet = rules.isEmpty()
+                ? PatternRuleSet.EMPTY
+                : new PatternRuleSet(rules);
+        ReplacementAutomaton automaton = precompiled != null && precompiled.options().equals(options.withoutFuzzy())
+                ? precompiled
+                : ReplacementAutomaton.compile(literalPairs, options);
+        FuzzyIndex fuzzyIndex = FuzzyIndex.build(automaton.keys(), automaton.values(), options);
+        return new CompiledRuleSet(version, automaton, patternRuleSet, fuzzyIndex);
+    }
+
+    /**
+     * The same matcher under a new version, so that a cached rule set can be activated again.
+     */
+    public CompiledRuleSet withVersion(long newVersion) {
+        return new CompiledRuleSet(newVersion, automaton, patternRules, fuzzyIndex);
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public int pairCount() {
+        return automaton.pairCount() + patternRules.size();
+    }
+
+    public ReplacementAutomaton automaton() {
+        return automaton;
+    }
+
+    public int fuzzyKeyCount() {
+        return fuzzyIndex == null ? 0 : fuzzyIndex.size();
+    }
+
+    /**
+     * Pattern rules and fuzzy matches only anonymize: they have no inverse, so they are skipped in
+     * {@link ReplacementMode#RIGHT_TO_LEFT}.
+     */
+    public boolean hasPatternRules(ReplacementMode mode) {
+        return (!patternRules.isEmpty() || fuzzyIndex != null) && mode != ReplacementMode.RIGHT_TO_LEFT;
+    }
+
+    public AnonymizationResult apply(CharSequence input, ReplacementMode mode) {
+        return apply(input, input.length(), mode);
+    }
+
+    public AnonymizationResult apply(CharSequence input, int end, ReplacementMode mode) {
+        boolean truncated = end < input.length();
+        PatternMatches patternMatches = hasPatternRules(mode) ? findPatternMatches(input, end) : PatternMatches.NONE;
+
+        if (automaton.isEmpty() && patternMatches.size() == 0) {
+            return withoutReplacements(input, end, truncated);
+        }
+
+        ReplacementAutomaton.Scanner scanner = automaton.newScanner(mode, input, end, end + 16, patternMatches);
+        scanner.scan(input, end, true);
+        if (!scanner.hasReplacements()) {
+            return withoutReplacements(input, end, truncated);
+        }
+        scanner.finish(input, end);
+
+        String output = scanner.output().toString();
+        boolean changed = truncated || !output.contentEquals(input);
+        return new AnonymizationResult(output, changed, truncated, scanner.replacements(), version);
+    }
+
+    private PatternMatches findPatternMatches(CharSequence input, int end) {
+        List<PatternMatches.Hit> hits = new ArrayList<>();
+        patternRules.collect(input, end, hits);
+        if (fuzzyIndex != null) {
+            fuzzyIndex.collect(input, end, patternRules.size(), hits);
+        }
+        return PatternMatches.sorted(hits);
+    }
+
+    private AnonymizationResult withoutReplacements(CharSequence input, int end, boolean truncated) {
+        String content = end == input.length() ? input.toString() : input.subSequence(0, end).toString();
+        return new AnonymizationResult(content, truncated, truncated, 0, version);
+    }
+}
@@ -0,0 +1,412 @@
+package com.plociennik.copypasteanonymizer.matcher;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Symmetric-deletion (SymSpell-style) index over the keys for typo-tolerant matching.
+ * <p>
+ * Every key is indexed under the hashes of all strings obtained by deleting up to {@code maxEditDistance} characters.
+ * Two strings within that distance always share such a deletion, so a word from the input is looked up by hashing its
+ * own deletions, which costs the same no matter how many keys there are. Candidates are then confirmed with the
+ * optimal string alignment distance, which counts a swap of two neighbouring characters as one typo.
+ * <p>
+ * The input is split into words (letters and digits, joined by {@code - _ . @ '}); a key of n words is compared with
+ * every run of n consecutive words, joined by single spaces. A run that reads exactly like one of the values is never
+ * matched: it is text that was already anonymized, or that the literal rules turn back into its key.
+ */
+final class FuzzyIndex {
+
+    private static final int NONE = -1;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final String[] keys;
+    private final String[] replacements;
+    private final Set<String> values;
+    private final int[] wordCounts;
+    private final int[] minLengthByWords;
+    private final int[] maxLengthByWords;
+    private final int maxEditDistance;
+    private final CharFolding folding;
+
+    private long[] slotHashes;
+    private int[] slotHeads;
+    private int[] entryKeys;
+    private int[] entryNext;
+    private int entryCount;
+    private int slotCount;
+
+    private FuzzyIndex(String[] keys, String[] replacements, Set<String> values, int[] keyWordCounts, int maxEditDistance,
+                       CharFolding folding) {
+        this.keys = keys;
+        this.replacements = replacements;
+        this.values = values;
+        this.maxEditDistance = maxEditDistance;
+        this.folding = folding;
+
+        int maxWords = Arrays.stream(keyWordCounts).max().orElse(0);
+        this.minLengthByWords = new int[maxWords + 1];
+        this.maxLengthByWords = new int[maxWords + 1];
+        Arrays.fill(minLengthByWords, Integer.MAX_VALUE);
+        for (int i = 0; i < keys.length; i++) {
+            int words = keyWordCounts[i];
+            minLengthByWords[words] = Math.min(minLengthByWords[words], keys[i].length());
+            maxLengthByWords[words] = Math.max(maxLengthByWords[words], keys[i].length());
+        }
+        this.wordCounts = Arrays.stream(keyWordCounts).distinct().sorted().toArray();
+
+        int capacity = Integer.highestOneBit(Math.max(16, keys.length * 8)) << 1;
+        this.slotHashes = new long[capacity];
+        this.slotHeads = new int[capacity];
+        this.entryKeys = new int[capacity];
+        this.entryNext = new int[capacity];
+
+        int[] removed = new int[maxEditDistance];
+        for (int key = 0; key < keys.length; key++) {
+            index(keys[key], key, removed, 0, 0);
+        }
+    }
+
+    /**
+     * Returns {@code null} when fuzzy matching is off or no key is long enough for it.
+     */
+    static FuzzyIndex build(String[] keys, String[] values, MatchOptions options) {
+        if (!options.isFuzzy()) {
+            return null;
+        }
+        CharFolding folding = options.folds() ? CharFolding.of(options) : null;
+
+        String[] indexedKeys = new String[keys.length];
+        String[] replacements = new String[keys.length];
+        int[] wordCounts = new int[keys.length];
+        int count = 0;
+
+        for (int i = 0; i < keys.length; i++) {
+            StringBuilder joined = new StringBuilder(keys[i].length());
+            int words = joinWords(keys[i], folding, joined);
+            if (words > 0 && joined.length() >= options.minFuzzyKeyLength()) {
+                indexedKeys[count] = joined.toString();
+                replacements[count] = values[i];
+                wordCounts[count] = words;
+                count++;
+            }
+        }
+
+        if (count == 0) {
+            return null;
+        }
+
+        Set<String> joinedValues = new HashSet<>();
+        for (String value : values) {
+            StringBuilder joined = new StringBuilder(value.length());
+            if (joinWords(value, folding, joined) > 0) {
+                joinedValues.add(joined.toString());
+            }
+        }
+        return new FuzzyIndex(Arrays.copyOf(indexedKeys, count), Arrays.copyOf(replacements, count), joinedValues,
+                Arrays.copyOf(wordCounts, count), options.maxEditDistance(), folding);
+    }
+
+    /**
+     * Appends the folded words of the text to the target, joined by single spaces, and returns how many there were.
+     */
+    private static int joinWords(String text, CharFolding folding, StringBuilder target) {
+        int words = 0;
+        for (int start = nextWordStart(text, 0, text.length()); start < text.length();
+             start = nextWordStart(text, start, text.length())) {
+            int end = wordEnd(text, start, text.length());
+            if (words++ > 0) {
+                target.append(' ');
+            }
+            appendFolded(target, text, start, end, folding);
+            start = end;
+        }
+        return words;
+    }
+
+    /**
+     * Adds a hit for every run of words within the first {@code end} characters that is within the edit distance of
+     * a key, unless it reads exactly like a value; the closest key wins and earlier keys win ties.
+     */
+    void collect(CharSequence input, int end, int priority, List<PatternMatches.Hit> hits) {
+        Words words = Words.split(input, end, folding);
+        Lookup lookup = new Lookup();
+        StringBuilder window = new StringBuilder();
+
+        for (int first = 0; first < words.count; first++) {
+            for (int wordCount : wordCounts) {
+                int last = first + wordCount - 1;
+                if (last >= words.count) {
+                    break;
+                }
+
+                int length = words.offsets[last + 1] - words.offsets[first] - 1;
+                if (length < minLengthByWords[wordCount] - maxEditDistance
+                        || length > maxLengthByWords[wordCount] + maxEditDistance) {
+                    continue;
+                }
+
+                window.setLength(0);
+                window.append(words.folded, words.offsets[first], words.offsets[first] + length);
+                int key = lookup.closest(window);
+                if (key != NONE && !values.contains(window.toString())) {
+                    hits.add(new PatternMatches.Hit(words.starts[first], words.ends[last], priority, replacements[key]));
+                }
+            }
+        }
+    }
+
+    int size() {
+        return keys.length;
+    }
+
+    private void index(String key, int keyIndex, int[] removed, int removedCount, int from) {
+        add(deletionHash(key, removed, removedCount), keyIndex);
+        if (removedCount == maxEditDistance || key.length() - removedCount <= 1) {
+            return;
+        }
+        for (int i = from; i < key.length(); i++) {
+            removed[removedCount] = i;
+            index(key, keyIndex, removed, removedCount + 1, i + 1);
+        }
+    }
+
+    private void add(long hash, int keyIndex) {
+        int slot = slot(hash);
+        if (slotHashes[slot] == 0) {
+            slotHashes[slot] = hash;
+            slotHeads[slot] = NONE;
+            slotCount++;
+        } else if (slotHeads[slot] != NONE && entryKeys[slotHeads[slot]] == keyIndex) {
+            return;
+        }
+
+        if (entryCount == entryKeys.length) {
+            entryKeys = Arrays.copyOf(entryKeys, entryCount * 2);
+            entryNext = Arrays.copyOf(entryNext, entryCount * 2);
+        }
+        entryKeys[entryCount] = keyIndex;
+        entryNext[entryCount] = slotHeads[slot];
+        slotHeads[slot] = entryCount++;
+
+        if (slotCount * 2 > slotHashes.length) {
+            rehash();
+        }
+    }
+
+    private int slot(long hash) {
+        int mask = slotHashes.length - 1;
+        int slot = (int) (hash ^ (hash >>> 32)) & mask;
+        while (slotHashes[slot] != 0 && slotHashes[slot] != hash) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int head(long hash) {
+        int slot = slot(hash);
+        return slotHashes[slot] == 0 ? NONE : slotHeads[slot];
+    }
+
+    private void rehash() {
+        long[] oldHashes = slotHashes;
+        int[] oldHeads = slotHeads;
+        slotHashes = new long[oldHashes.length * 2];
+        slotHeads = new int[oldHashes.length * 2];
+        for (int i = 0; i < oldHashes.length; i++) {
+            if (oldHashes[i] != 0) {
+                int slot = slot(oldHashes[i]);
+                slotHashes[slot] = oldHashes[i];
+                slotHeads[slot] = oldHeads[i];
+            }
+        }
+    }
+
+    private static long deletionHash(CharSequence text, int[] removed, int removedCount) {
+        long hash = FNV_OFFSET;
+        int next = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (next < removedCount && removed[next] == i) {
+                next++;
+                continue;
+            }
+            hash = (hash ^ text.charAt(i)) * FNV_PRIME;
+        }
+        return hash == 0 ? 1 : hash;
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c);
+    }
+
+    private static boolean isJoiner(char c) {
+        return c == '-' || c == '_' || c == '.' || c == '@' || c == '\'';
+    }
+
+    private static int nextWordStart(CharSequence text, int from, int end) {
+        while (from < end && !isWordChar(text.charAt(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    private static int wordEnd(CharSequence text, int start, int end) {
+        int i = start + 1;
+        while (i < end) {
+            char c = text.charAt(i);
+            if (isWordChar(c) || (isJoiner(c) && i + 1 < end && isWordChar(text.charAt(i + 1)))) {
+                i++;
+            } else {
+                break;
+            }
+        }
+        return i;
+    }
+
+    private static void appendFolded(StringBuilder target, CharSequence text, int start, int end, CharFolding folding) {
+        if (folding == null) {
+            target.append(text, start, end);
+            return;
+        }
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            char[] expansion = folding.expansion(c);
+            if (expansion == null) {
+                target.append(folding.single(c));
+            } else {
+                target.append(expansion);
+            }
+        }
+    }
+
+    /**
+     * The words of one input: their positions in the input and their folded text, joined by single spaces.
+     */
+    private static final class Words {
+
+        private int count;
+        private int[] starts = new int[64];
+        private int[] ends = new int[64];
+        private int[] offsets = new int[65];
+        private final StringBuilder folded = new StringBuilder();
+
+        private static Words split(CharSequence input, int end, CharFolding folding) {
+            Words words = new Words();
+            for (int start = nextWordStart(input, 0, end); start < end; start = nextWordStart(input, start, end)) {
+                int wordEnd = wordEnd(input, start, end);
+                words.add(input, start, wordEnd, folding);
+                start = wordEnd;
+            }
+            words.offsets[words.count] = words.folded.length();
+            return words;
+        }
+
+        private void add(CharSequence input, int start, int end, CharFolding folding) {
+            if (count + 1 == offsets.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+                offsets = Arrays.copyOf(offsets, count * 2 + 1);
+            }
+            starts[count] = start;
+            ends[count] = end;
+            offsets[count] = folded.length();
+            appendFolded(folded, input, start, end, folding);
+            folded.append(' ');
+            count++;
+        }
+    }
+
+    /**
+     * Per-call scratch space, so that one index can be used from several threads.
+     */
+    private final class Lookup {
+
+        private final int[] seen = new int[keys.length];
+        private final int[] removed = new int[maxEditDistance];
+        private int[] previousRow = new int[0];
+        private int[] currentRow = new int[0];
+        private int[] beforePreviousRow = new int[0];
+        private int stamp;
+        private int best;
+        private int bestDistance;
+
+        private int closest(CharSequence word) {
+            if (++stamp == 0) {
+                Arrays.fill(seen, 0);
+                stamp = 1;
+            }
+            best = NONE;
+            bestDistance = maxEditDistance + 1;
+            visitDeletions(word, 0, 0);
+            return best;
+        }
+
+        private void visitDeletions(CharSequence word, int removedCount, int from) {
+            for (int entry = head(deletionHash(word, removed, removedCount)); entry != NONE; entry = entryNext[entry]) {
+                int key = entryKeys[entry];
+                if (seen[key] == stamp) {
+                    continue;
+                }
+                seen[key] = stamp;
+                int distance = distance(word, keys[key], Math.min(bestDistance, maxEditDistance));
+                if (distance < bestDistance || (distance == bestDistance && distance <= maxEditDistance && key < best)) {
+                    best = key;
+                    bestDistance = distance;
+                }
+            }
+            if (removedCount == maxEditDistance || word.length() - removedCount <= 1) {
+                return;
+            }
+            for (int i = from; i < word.length(); i++) {
+                removed[removedCount] = i;
+                visitDeletions(word, removedCount + 1, i + 1);
+            }
+        }
+
+        /**
+         * Optimal string alignment distance, or {@code limit + 1} as soon as it is known to exceed {@code limit}.
+         */
+        private int distance(CharSequence a, String b, int limit) {
+            int n = a.length();
+            int m = b.length();
+            if (Math.abs(n - m) > limit) {
+                return limit + 1;
+            }
+            if (previousRow.length <= m) {
+                previousRow = new int[m + 1];
+                currentRow = new int[m + 1];
+                beforePreviousRow = new int[m + 1];
+            }
+
+            for (int j = 0; j <= m; j++) {
+                previousRow[j] = j;
+            }
+            for (int i = 1; i <= n; i++) {
+                currentRow[0] = i;
+                int rowMinimum = i;
+                char ac = a.charAt(i - 1);
+                for (int j = 1; j <= m; j++) {
+                    char bc = b.charAt(j - 1);
+                    int cost = ac == bc ? 0 : 1;
+                    int value = Math.min(Math.min(previousRow[j] + 1, currentRow[j - 1] + 1), previousRow[j - 1] + cost);
+                    if (i > 1 && j > 1 && ac == b.charAt(j - 2) && a.charAt(i - 2) == bc) {
+                        value = Math.min(value, beforePreviousRow[j - 2] + 1);
+                    }
+                    currentRow[j] = value;
+                    rowMinimum = Math.min(rowMinimum, value);
+                }
+                if (rowMinimum > limit) {
+                    return limit + 1;
+                }
+                int[] recycled = beforePreviousRow;
+                beforePreviousRow = previousRow;
+                previousRow = currentRow;
+                currentRow = recycled;
+            }
+            return Math.min(previousRow[m], limit + 1);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.plociennik.copypasteanonymizer.matcher;
+
+import java.text.Normalizer;
+
+/**
+ * How literal keys and values are compared with the input. {@code normalization} is {@code null}, {@link
+ * Normalizer.Form#NFC} or {@link Normalizer.Form#NFKC}; with {@code tolerateWhitespace} any run of whitespace matches
+ * any other run. A positive {@code maxEditDistance} additionally replaces words that are within that many typos of a
+ * key of at least {@code minFuzzyKeyLength} characters.
+ */
+public record MatchOptions(boolean ignoreCase, Normalizer.Form normalization, boolean tolerateWhitespace,
+                           int maxEditDistance, int minFuzzyKeyLength) {
+
+    public static final int MAX_EDIT_DISTANCE = 3;
+    public static final int DEFAULT_MIN_FUZZY_KEY_LENGTH = 5;
+
+    public static final MatchOptions EXACT = new MatchOptions(false, null, false);
+
+    public MatchOptions {
+        if (normalization != null && normalization != Normalizer.Form.NFC && normalization != Normalizer.Form.NFKC) {
+            throw new IllegalArgumentException("Only NFC and NFKC normalization is supported, got " + normalization + ".");
+        }
+        if (maxEditDistance < 0 || maxEditDistance > MAX_EDIT_DISTANCE) {
+            throw new IllegalArgumentException("The edit distance must be between 0 and %d.".formatted(MAX_EDIT_DISTANCE));
+        }
+        if (minFuzzyKeyLength < 1) {
+            throw new IllegalArgumentException("The minimum fuzzy key length must be positive.");
+        }
+    }
+
+    public MatchOptions(boolean ignoreCase, Normalizer.Form normalization, boolean tolerateWhitespace) {
+        this(ignoreCase, normalization, tolerateWhitespace, 0, DEFAULT_MIN_FUZZY_KEY_LENGTH);
+    }
+
+    public boolean isExact() {
+        return !folds() && !isFuzzy();
+    }
+
+    public boolean folds() {
+        return ignoreCase || normalization != null || tolerateWhitespace;
+    }
+
+    public boolean isFuzzy() {
+        return maxEditDistance > 0;
+    }
+
+    /**
+     * The options that decide how the literal automaton is compiled.
+     */
+    public MatchOptions withoutFuzzy() {
+        return new MatchOptions(ignoreCase, normalization, tolerateWhitespace);
+    }
+
+    public MatchOptions withFuzzy(int maxEditDistance, int minFuzzyKeyLength) {
+        return new MatchOptions(ignoreCase, normalization, tolerateWhitespace, maxEditDistance, minFuzzyKeyLength);
+    }
+}
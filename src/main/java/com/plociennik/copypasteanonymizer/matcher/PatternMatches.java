@@ -0,0 +1,80 @@
+package com.plociennik.copypasteanonymizer.matcher;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Pattern rule and fuzzy matches sorted leftmost-longest, handed to the literal scanner so that every kind of rule is
+ * emitted in the same pass. Overlapping matches are kept: which of them wins depends on the literal matches as well,
+ * so only the scanner can resolve them.
+ */
+final class PatternMatches {
+
+    static final PatternMatches NONE = new PatternMatches(0);
+
+    private static final Comparator<Hit> LEFTMOST_LONGEST = Comparator
+            .comparingInt(Hit::start)
+            .thenComparing(Comparator.comparingInt(Hit::end).reversed())
+            .thenComparingInt(Hit::priority);
+
+    private int[] starts;
+    private int[] ends;
+    private String[] replacements;
+    private int size;
+
+    PatternMatches(int capacity) {
+        this.starts = new int[capacity];
+        this.ends = new int[capacity];
+        this.replacements = new String[capacity];
+    }
+
+    /**
+     * Sorts the hits by start index, longest first among hits starting at the same index and with the lower priority
+     * value first among hits of the same span.
+     */
+    static PatternMatches sorted(List<Hit> hits) {
+        if (hits.isEmpty()) {
+            return NONE;
+        }
+
+        hits.sort(LEFTMOST_LONGEST);
+        PatternMatches matches = new PatternMatches(hits.size());
+        for (Hit hit : hits) {
+            matches.add(hit.start(), hit.end(), hit.replacement());
+        }
+        return matches;
+    }
+
+    void add(int start, int end, String replacement) {
+        if (size == starts.length) {
+            int capacity = Math.max(4, size * 2);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            replacements = Arrays.copyOf(replacements, capacity);
+        }
+        starts[size] = start;
+        ends[size] = end;
+        replacements[size] = replacement;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int start(int index) {
+        return starts[index];
+    }
+
+    int end(int index) {
+        return ends[index];
+    }
+
+    String replacement(int index) {
+        return replacements[index];
+    }
+
+    record Hit(int start, int end, int priority, String replacement) {
+    }
+}
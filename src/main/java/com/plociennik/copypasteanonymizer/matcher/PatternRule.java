@@ -0,0 +1,64 @@
+package com.plociennik.copypasteanonymizer.matcher;
+
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * A replacement pair whose key is a regular expression or a built-in detector instead of literal text. In the pairs
+ * file such keys are written as {@code regex:<expression>} or {@code detect:<email|ipv4|ipv6|iban|uuid>}; the value is
+ * inserted literally. Of the {@link MatchOptions} only case insensitivity applies to regular expressions.
+ */
+public record PatternRule(String name, Pattern pattern, String replacement, String requiredLiteral,
+                          Predicate<CharSequence> validator) {
+
+    public static final String REGEX_PREFIX = "regex:";
+    public static final String DETECTOR_PREFIX = "detect:";
+
+    private static final String REGEX_METACHARACTERS = "\\^$.|?*+()[]{}";
+
+    public static boolean isPatternKey(String key) {
+        return key.startsWith(REGEX_PREFIX) || key.startsWith(DETECTOR_PREFIX);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the expression does not compile or the detector does not exist
+     */
+    public static PatternRule parse(String key, String replacement) {
+        return parse(key, replacement, false);
+    }
+
+    public static PatternRule parse(String key, String replacement, boolean ignoreCase) {
+        if (key.startsWith(DETECTOR_PREFIX)) {
+            BuiltInDetector detector = BuiltInDetector.byName(key.substring(DETECTOR_PREFIX.length()));
+            return new PatternRule(key, detector.pattern(), replacement, detector.requiredLiteral(), detector.validator());
+        }
+        if (key.startsWith(REGEX_PREFIX)) {
+            String regex = key.substring(REGEX_PREFIX.length());
+            if (regex.isEmpty()) {
+                throw new IllegalArgumentException("The regular expression is empty.");
+            }
+            if (ignoreCase) {
+                return new PatternRule(key, Pattern.compile(regex, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE), replacement, null, null);
+            }
+            return new PatternRule(key, Pattern.compile(regex), replacement, literalPrefix(regex), null);
+        }
+        throw new IllegalArgumentException("'%s' is not a pattern key.".formatted(key));
+    }
+
+    /**
+     * The literal text every match has to start with, used to skip the expression when the input cannot contain it.
+     */
+    private static String literalPrefix(String regex) {
+        if (regex.indexOf('|') >= 0) {
+            return null;
+        }
+        int length = 0;
+        while (length < regex.length() && REGEX_METACHARACTERS.indexOf(regex.charAt(length)) < 0) {
+            length++;
+        }
+        if (length < regex.length() && "?*{".indexOf(regex.charAt(length)) >= 0) {
+            length--;
+        }
+        return length > 0 ? regex.substring(0, length) : null;
+    }
+}
@@ -0,0 +1,157 @@
+package com.plociennik.copypasteanonymizer.matcher;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+
+/**
+ * Pattern rules compiled once per dictionary. Every rule runs under its own time budget: a rule that exceeds it is
+ * skipped for that input instead of stalling the caller, which is usually the clipboard thread. The budget grows
+ * linearly with the input, so only rules that backtrack super-linearly run out of it, but never beyond a fixed
+ * ceiling. All rules together share a total budget per input, and the rules left when it runs out are skipped.
+ * A rule whose matching overflows the stack, as repeated groups do on long inputs, is skipped the same way.
+ */
+final class PatternRuleSet {
+
+    static final PatternRuleSet EMPTY = new PatternRuleSet(List.of(), 0, 0, 0, 0);
+    static final long DEFAULT_RULE_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    static final long DEFAULT_RULE_BUDGET_NANOS_PER_CHAR = 1_000;
+    static final long DEFAULT_MAX_RULE_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+    static final long DEFAULT_TOTAL_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private static final Logger LOG = Logger.getLogger(PatternRuleSet.class.getName());
+
+    private final PatternRule[] rules;
+    private final long ruleBudgetNanos;
+    private final long ruleBudgetNanosPerChar;
+    private final long maxRuleBudgetNanos;
+    private final long totalBudgetNanos;
+
+    PatternRuleSet(List<PatternRule> rules, long ruleBudgetNanos, long ruleBudgetNanosPerChar, long maxRuleBudgetNanos,
+                   long totalBudgetNanos) {
+        this.rules = rules.toArray(PatternRule[]::new);
+        this.ruleBudgetNanos = ruleBudgetNanos;
+        this.ruleBudgetNanosPerChar = ruleBudgetNanosPerChar;
+        this.maxRuleBudgetNanos = maxRuleBudgetNanos;
+        this.totalBudgetNanos = totalBudgetNanos;
+    }
+
+    /**
+     * A rule set with the default budgets.
+     */
+    PatternRuleSet(List<PatternRule> rules) {
+        this(rules, DEFAULT_RULE_BUDGET_NANOS, DEFAULT_RULE_BUDGET_NANOS_PER_CHAR, DEFAULT_MAX_RULE_BUDGET_NANOS,
+                DEFAULT_TOTAL_BUDGET_NANOS);
+    }
+
+    int size() {
+        return rules.length;
+    }
+
+    boolean isEmpty() {
+        return rules.length == 0;
+    }
+
+    /**
+     * Adds the matches of all rules within the first {@code end} characters to {@code hits}, using the rule index as
+     * priority.
+     */
+    void collect(CharSequence input, int end, List<PatternMatches.Hit> hits) {
+        long budget = Math.min(ruleBudgetNanos + end * ruleBudgetNanosPerChar, maxRuleBudgetNanos);
+        long totalDeadline = System.nanoTime() + totalBudgetNanos;
+
+        for (int r = 0; r < rules.length; r++) {
+            PatternRule rule = rules[r];
+            if (rule.requiredLiteral() != null && !containsWithin(input, end, rule.requiredLiteral())) {
+                continue;
+            }
+
+            long now = System.nanoTime();
+            if (now - totalDeadline >= 0) {
+                LOG.warning("(%s) %s".formatted("1122_18102026", "Pattern rules exceeded their %d ms total budget, %d rule(s) were skipped."
+                        .formatted(TimeUnit.NANOSECONDS.toMillis(totalBudgetNanos), rules.length - r)));
+                return;
+            }
+
+            long deadline = Math.min(now + budget, totalDeadline);
+            int firstHit = hits.size();
+            try {
+                Matcher matcher = rule.pattern()
+                        .matcher(new BudgetedCharSequence(input, deadline))
+                        .region(0, end);
+                while (matcher.find()) {
+                    if (matcher.end() > matcher.start()
+                            && (rule.validator() == null || rule.validator().test(matcher.group()))) {
+                        hits.add(new PatternMatches.Hit(matcher.start(), matcher.end(), r, rule.replacement()));
+                    }
+                }
+            } catch (BudgetExceededException e) {
+                hits.subList(firstHit, hits.size()).clear();
+                LOG.warning("(%s) %s".formatted("1120_18102026", "Pattern rule '%s' exceeded its %d ms budget and was skipped."
+                        .formatted(rule.name(), TimeUnit.NANOSECONDS.toMillis(deadline - now))));
+            } catch (StackOverflowError e) {
+                hits.subList(firstHit, hits.size()).clear();
+                LOG.warning("(%s) %s".formatted("1123_18102026", "Pattern rule '%s' recursed too deeply and was skipped."
+                        .formatted(rule.name())));
+            }
+        }
+    }
+
+    private static boolean containsWithin(CharSequence input, int end, String literal) {
+        if (input instanceof String text) {
+            return text.indexOf(literal, 0, end) >= 0;
+        }
+        return StringUtils.indexOf(end == input.length() ? input : input.subSequence(0, end), literal) >= 0;
+    }
+
+    /**
+     * Checks the deadline while the regex engine reads the input, which is the only way to stop a backtracking
+     * {@link Matcher} from the outside.
+     */
+    private static final class BudgetedCharSequence implements CharSequence {
+
+        private static final int CHECK_INTERVAL_MASK = 0xFFF;
+
+        private final CharSequence delegate;
+        private final long deadline;
+        private int reads;
+
+        private BudgetedCharSequence(CharSequence delegate, long deadline) {
+            this.delegate = delegate;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if ((++reads & CHECK_INTERVAL_MASK) == 0 && System.nanoTime() - deadline > 0) {
+                throw new BudgetExceededException();
+            }
+            return delegate.charAt(index);
+        }
+
+        @Override
+        public int length() {
+            return delegate.length();
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return delegate.subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return delegate.toString();
+        }
+    }
+
+    private static final class BudgetExceededException extends RuntimeException {
+
+        private BudgetExceededException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,829 @@
+package com.plociennik.copypasteanonymizer.matcher;
+
+import com.plociennik.copypasteanonymizer.enums.ReplacementMode;
+import javafx.util.Pair;
+import org.apache.commons.lang3.StringUtils;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Aho-Corasick automaton over the keys and values of all replacement pairs.
+ * <p>
+ * The automaton is compiled once per dictionary and finds every occurrence in a single left-to-right pass.
+ * Overlapping occurrences are resolved leftmost-longest: the match starting earliest wins and, among matches
+ * starting at the same position, the longest one wins. Replaced text is never rescanned.
+ * <p>
+ * With non-exact {@link MatchOptions} the patterns are folded once at build time and the input is folded character by
+ * character while scanning, so the text around a match is copied unchanged.
+ * <p>
+ * A compiled automaton can be written as a {@link #writeSnapshot snapshot} and read back without rebuilding the trie.
+ */
+public final class ReplacementAutomaton {
+
+    public static final ReplacementAutomaton EMPTY = compile(List.of());
+
+    private static final int RING_SLACK = 32;
+
+    private static final int ROOT = 0;
+    private static final int NONE = -1;
+    private static final int PATTERN_MATCH = -2;
+    private static final int KEY_SIDE = 0;
+    private static final int VALUE_SIDE = 1;
+
+    private final String[] keys;
+    private final String[] values;
+    private final int[] patternLengths;
+    private final MatchOptions options;
+    private final CharFolding folding;
+
+    private final int[] rootNext;
+    private final int[] edgeStart;
+    private final char[] edgeChars;
+    private final int[] edgeTargets;
+    private final int[] fail;
+    private final int[] depth;
+    private final int[] keyPair;
+    private final int[] valuePair;
+    private final int[] keyOut;
+    private final int[] valueOut;
+    private final int maxPatternLength;
+
+    private ReplacementAutomaton(String[] keys, String[] values, int[] patternLengths, MatchOptions options, TrieBuilder trie) {
+        this.keys = keys;
+        this.values = values;
+        this.patternLengths = patternLengths;
+        this.options = options;
+        this.folding = options.folds() ? CharFolding.of(options) : null;
+
+        int nodeCount = trie.size;
+        this.depth = Arrays.copyOf(trie.depth, nodeCount);
+        this.keyPair = Arrays.copyOf(trie.keyPair, nodeCount);
+        this.valuePair = Arrays.copyOf(trie.valuePair, nodeCount);
+        this.maxPatternLength = Arrays.stream(depth).max().orElse(0);
+
+        this.edgeStart = new int[nodeCount + 1];
+        this.edgeChars = new char[nodeCount - 1];
+        this.edgeTargets = new int[nodeCount - 1];
+        compactEdges(trie);
+        this.rootNext = rootTransitions(edgeStart, edgeChars, edgeTargets);
+
+        this.fail = new int[nodeCount];
+        this.keyOut = new int[nodeCount];
+        this.valueOut = new int[nodeCount];
+        linkFailures();
+    }
+
+    private ReplacementAutomaton(String[] keys, String[] values, int[] patternLengths, MatchOptions options,
+                                 int[] edgeStart, char[] edgeChars, int[] edgeTargets, int[] fail, int[] depth,
+                                 int[] keyPair, int[] valuePair, int[] keyOut, int[] valueOut) {
+        this.keys = keys;
+        this.values = values;
+        this.patternLengths = patternLengths;
+        this.options = options;
+        this.folding = options.folds() ? CharFolding.of(options) : null;
+        this.edgeStart = edgeStart;
+        this.edgeChars = edgeChars;
+        this.edgeTargets = edgeTargets;
+        this.fail = fail;
+        this.depth = depth;
+        this.keyPair = keyPair;
+        this.valuePair = valuePair;
+        this.keyOut = keyOut;
+        this.valueOut = valueOut;
+        this.maxPatternLength = Arrays.stream(depth).max().orElse(0);
+        this.rootNext = rootTransitions(edgeStart, edgeChars, edgeTargets);
+    }
+
+    public static ReplacementAutomaton compile(List<Pair<String, String>> replacementPairs) {
+        return compile(replacementPairs, MatchOptions.EXACT);
+    }
+
+    public static ReplacementAutomaton compile(List<Pair<String, String>> replacementPairs, MatchOptions options) {
+        int pairCount = 0;
+        String[] keys = new String[replacementPairs.size()];
+        String[] values = new String[replacementPairs.size()];
+
+        for (Pair<String, String> pair : replacementPairs) {
+            if (StringUtils.isBlank(pair.getKey()) || StringUtils.isBlank(pair.getValue())) {
+                continue;
+            }
+            keys[pairCount] = pair.getKey();
+            values[pairCount] = pair.getValue();
+            pairCount++;
+        }
+
+        keys = Arrays.copyOf(keys, pairCount);
+        values = Arrays.copyOf(values, pairCount);
+
+        MatchOptions literalOptions = options.withoutFuzzy();
+        CharFolding folding = literalOptions.folds() ? CharFolding.of(literalOptions) : null;
+        int[] patternLengths = new int[pairCount * 2];
+        TrieBuilder trie = new TrieBuilder();
+        for (int i = 0; i < pairCount; i++) {
+            String key = folding == null ? keys[i] : folding.fold(keys[i]);
+            String value = folding == null ? values[i] : folding.fold(values[i]);
+            patternLengths[pattern(i, KEY_SIDE)] = key.length();
+            patternLengths[pattern(i, VALUE_SIDE)] = value.length();
+            trie.insert(key, i, KEY_SIDE);
+            trie.insert(value, i, VALUE_SIDE);
+        }
+        return new ReplacementAutomaton(keys, values, patternLengths, literalOptions, trie);
+    }
+
+    /**
+     * Reads an automaton written by {@link #writeSnapshot}, resolving keys and values by their string ids.
+     */
+    public static ReplacementAutomaton readSnapshot(ByteBuffer buffer, IntFunction<String> strings) {
+        try {
+            boolean ignoreCase = buffer.get() != 0;
+            Normalizer.Form normalization = switch (buffer.get()) {
+                case 0 -> null;
+                case 1 -> Normalizer.Form.NFC;
+                case 2 -> Normalizer.Form.NFKC;
+                default -> throw new IllegalArgumentException("Unknown normalization in matcher snapshot.");
+            };
+            boolean tolerateWhitespace = buffer.get() != 0;
+            buffer.get();
+            MatchOptions options = new MatchOptions(ignoreCase, normalization, tolerateWhitespace);
+
+            int pairCount = checkedLength(buffer.getInt(), buffer, 8);
+            String[] keys = new String[pairCount];
+            String[] values = new String[pairCount];
+            for (int i = 0; i < pairCount; i++) {
+                keys[i] = strings.apply(buffer.getInt());
+                values[i] = strings.apply(buffer.getInt());
+            }
+            int[] patternLengths = readInts(buffer, pairCount * 2);
+
+            int nodeCount = buffer.getInt();
+            if (nodeCount < 1) {
+                throw new IllegalArgumentException("A matcher snapshot needs at least the root node.");
+            }
+            int[] edgeStart = readInts(buffer, nodeCount + 1);
+            char[] edgeChars = new char[checkedLength(nodeCount - 1, buffer, 2)];
+            buffer.asCharBuffer().get(edgeChars);
+            buffer.position(buffer.position() + edgeChars.length * 2);
+            int[] edgeTargets = readInts(buffer, nodeCount - 1);
+            int[] fail = readInts(buffer, nodeCount);
+            int[] depth = readInts(buffer, nodeCount);
+            int[] keyPair = readInts(buffer, nodeCount);
+            int[] valuePair = readInts(buffer, nodeCount);
+            int[] keyOut = readInts(buffer, nodeCount);
+            int[] valueOut = readInts(buffer, nodeCount);
+
+            requireRange(edgeStart, 0, nodeCount - 1);
+            requireRange(edgeTargets, 1, nodeCount - 1);
+            requireRange(fail, ROOT, nodeCount - 1);
+            requireRange(depth, 0, Integer.MAX_VALUE);
+            requireRange(keyPair, NONE, pairCount - 1);
+            requireRange(valuePair, NONE, pairCount - 1);
+            requireRange(keyOut, NONE, nodeCount - 1);
+            requireRange(valueOut, NONE, nodeCount - 1);
+
+            return new ReplacementAutomaton(keys, values, patternLengths, options, edgeStart, edgeChars, edgeTargets,
+                    fail, depth, keyPair, valuePair, keyOut, valueOut);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("The matcher snapshot is truncated.", e);
+        }
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int length) {
+        int[] ints = new int[checkedLength(length, buffer, 4)];
+        buffer.asIntBuffer().get(ints);
+        buffer.position(buffer.position() + ints.length * 4);
+        return ints;
+    }
+
+    /**
+     * Guards against snapshots that passed the file checksum but still point outside the automaton.
+     */
+    private static void requireRange(int[] ints, int min, int max) {
+        for (int value : ints) {
+            if (value < min || value > max) {
+                throw new IllegalArgumentException("The matcher snapshot is inconsistent.");
+            }
+        }
+    }
+
+    private static int checkedLength(int length, ByteBuffer buffer, int bytesPerElement) {
+        if (length < 0 || (long) length * bytesPerElement > buffer.remaining()) {
+            throw new IllegalArgumentException("The matcher snapshot is truncated.");
+        }
+        return length;
+    }
+
+    private static int[] rootTransitions(int[] edgeStart, char[] edgeChars, int[] edgeTargets) {
+        int[] rootNext = new int[Character.MAX_VALUE + 1];
+        for (int e = edgeStart[ROOT]; e < edgeStart[ROOT + 1]; e++) {
+            rootNext[edgeChars[e]] = edgeTargets[e];
+        }
+        return rootNext;
+    }
+
+    /**
+     * The folding options this automaton was compiled with.
+     */
+    public MatchOptions options() {
+        return options;
+    }
+
+    /**
+     * Number of bytes {@link #writeSnapshot} writes.
+     */
+    public int snapshotSize() {
+        int nodeCount = depth.length;
+        long size = 4 + 4 + keys.length * 8L + patternLengths.length * 4L
+                + 4 + (nodeCount + 1) * 4L + (nodeCount - 1) * 6L + nodeCount * 24L;
+        return Math.toIntExact(size);
+    }
+
+    /**
+     * Writes the compiled automaton, referring to keys and values by the ids the given function assigns them. The
+     * buffer must use the same byte order as the one it is read back from.
+     */
+    public void writeSnapshot(ByteBuffer buffer, ToIntFunction<String> stringIds) {
+        buffer.put((byte) (options.ignoreCase() ? 1 : 0));
+        buffer.put((byte) (options.normalization() == null ? 0 : options.normalization() == Normalizer.Form.NFC ? 1 : 2));
+        buffer.put((byte) (options.tolerateWhitespace() ? 1 : 0));
+        buffer.put((byte) 0);
+
+        buffer.putInt(keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            buffer.putInt(stringIds.applyAsInt(keys[i]));
+            buffer.putInt(stringIds.applyAsInt(values[i]));
+        }
+        writeInts(buffer, patternLengths);
+
+        buffer.putInt(depth.length);
+        writeInts(buffer, edgeStart);
+        buffer.asCharBuffer().put(edgeChars);
+        buffer.position(buffer.position() + edgeChars.length * 2);
+        writeInts(buffer, edgeTargets);
+        writeInts(buffer, fail);
+        writeInts(buffer, depth);
+        writeInts(buffer, keyPair);
+        writeInts(buffer, valuePair);
+        writeInts(buffer, keyOut);
+        writeInts(buffer, valueOut);
+    }
+
+    private static void writeInts(ByteBuffer buffer, int[] ints) {
+        buffer.asIntBuffer().put(ints);
+        buffer.position(buffer.position() + ints.length * 4);
+    }
+
+    public int pairCount() {
+        return keys.length;
+    }
+
+    String[] keys() {
+        return keys;
+    }
+
+    String[] values() {
+        return values;
+    }
+
+    public boolean isEmpty() {
+        return keys.length == 0;
+    }
+
+    public int maxPatternLength() {
+        return maxPatternLength;
+    }
+
+    /**
+     * Returns the input with all replacements applied, or the very same instance when nothing matched.
+     */
+    public String replace(String input, ReplacementMode mode) {
+        if (input == null || input.isEmpty() || isEmpty()) {
+            return input;
+        }
+        return replace(input, input.length(), mode);
+    }
+
+    /**
+     * Replaces within the first {@code end} characters of the input; the rest is dropped.
+     */
+    public String replace(CharSequence input, int end, ReplacementMode mode) {
+        String unchanged = end == input.length() ? input.toString() : input.subSequence(0, end).toString();
+        if (isEmpty()) {
+            return unchanged;
+        }
+        Scanner scanner = newScanner(mode, input, end, end + 16, PatternMatches.NONE);
+        scanner.scan(input, end, true);
+        if (!scanner.hasReplacements()) {
+            return unchanged;
+        }
+        scanner.finish(input, end);
+        return scanner.output().toString();
+    }
+
+    /**
+     * Creates a resumable scanner. In {@link ReplacementMode#BIDIRECTIONAL} mode the whole input has to be known
+     * upfront, because the direction of every pair depends on whether its key occurs anywhere in it.
+     */
+    public Scanner newScanner(ReplacementMode mode, CharSequence wholeInput, int outputCapacity) {
+        return newScanner(mode, wholeInput, wholeInput == null ? 0 : wholeInput.length(), outputCapacity, PatternMatches.NONE);
+    }
+
+    /**
+     * Creates a one-shot scanner that also emits the given pattern matches. They compete with the literal matches
+     * leftmost-longest, with a literal match winning a tie.
+     */
+    Scanner newScanner(ReplacementMode mode, CharSequence wholeInput, int end, int outputCapacity,
+                       PatternMatches patternMatches) {
+        BitSet keysFound = null;
+        if (mode == ReplacementMode.BIDIRECTIONAL) {
+            if (wholeInput == null) {
+                throw new IllegalArgumentException("Bidirectional replacement needs the whole input upfront.");
+            }
+            keysFound = findKeys(wholeInput, end);
+        }
+        return new Scanner(mode, keysFound, outputCapacity, patternMatches);
+    }
+
+    private BitSet findKeys(CharSequence input, int end) {
+        BitSet keysFound = new BitSet(keys.length);
+        BitSet visited = new BitSet(depth.length);
+        int state = ROOT;
+        boolean lastWasSpace = false;
+
+        for (int i = 0; i < end; i++) {
+            char c = input.charAt(i);
+            if (folding == null) {
+                state = step(state, c);
+            } else {
+                char[] expansion = folding.expansion(c);
+                int length = expansion == null ? 1 : expansion.length;
+                for (int j = 0; j < length; j++) {
+                    char f = expansion == null ? folding.single(c) : expansion[j];
+                    if (f == CharFolding.SPACE && folding.tolerateWhitespace()) {
+                        if (lastWasSpace) {
+                            continue;
+                        }
+                        lastWasSpace = true;
+                    } else {
+                        lastWasSpace = false;
+                    }
+                    state = step(state, f);
+                }
+            }
+            for (int node = keyOut[state]; node != NONE && !visited.get(node); node = keyOut[fail[node]]) {
+                visited.set(node);
+                keysFound.set(keyPair[node]);
+            }
+        }
+        return keysFound;
+    }
+
+    private int resolve(int state, ReplacementMode mode, BitSet keysFound) {
+        return switch (mode) {
+            case LEFT_TO_RIGHT -> keyOut[state] == NONE ? NONE : pattern(keyPair[keyOut[state]], KEY_SIDE);
+            case RIGHT_TO_LEFT -> valueOut[state] == NONE ? NONE : pattern(valuePair[valueOut[state]], VALUE_SIDE);
+            case BIDIRECTIONAL -> resolveBidirectional(state, keysFound, Integer.MAX_VALUE);
+        };
+    }
+
+    /**
+     * Like {@link #resolve(int, ReplacementMode, BitSet)}, but only considers patterns of at most {@code maxLength}
+     * folded characters.
+     */
+    private int resolve(int state, ReplacementMode mode, BitSet keysFound, int maxLength) {
+        switch (mode) {
+            case LEFT_TO_RIGHT -> {
+                int node = keyOut[state];
+                while (node != NONE && depth[node] > maxLength) {
+                    node = keyOut[fail[node]];
+                }
+                return node == NONE ? NONE : pattern(keyPair[node], KEY_SIDE);
+            }
+            case RIGHT_TO_LEFT -> {
+                int node = valueOut[state];
+                while (node != NONE && depth[node] > maxLength) {
+                    node = valueOut[fail[node]];
+                }
+                return node == NONE ? NONE : pattern(valuePair[node], VALUE_SIDE);
+            }
+            default -> {
+                return resolveBidirectional(state, keysFound, maxLength);
+            }
+        }
+    }
+
+    private int resolveBidirectional(int state, BitSet keysFound, int maxLength) {
+        int keyNode = keyOut[state];
+        while (keyNode != NONE && (depth[keyNode] > maxLength || !keysFound.get(keyPair[keyNode]))) {
+            keyNode = keyOut[fail[keyNode]];
+        }
+        int valueNode = valueOut[state];
+        while (valueNode != NONE && (depth[valueNode] > maxLength || keysFound.get(valuePair[valueNode]))) {
+            valueNode = valueOut[fail[valueNode]];
+        }
+
+        if (keyNode == NONE && valueNode == NONE) {
+            return NONE;
+        }
+        if (valueNode == NONE || (keyNode != NONE && depth[keyNode] >= depth[valueNode])) {
+            return pattern(keyPair[keyNode], KEY_SIDE);
+        }
+        return pattern(valuePair[valueNode], VALUE_SIDE);
+    }
+
+    private int step(int state, char c) {
+        while (state != ROOT) {
+            int target = child(state, c);
+            if (target != NONE) {
+                return target;
+            }
+            state = fail[state];
+        }
+        return rootNext[c];
+    }
+
+    private int child(int node, char c) {
+        int low = edgeStart[node];
+        int high = edgeStart[node + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char midChar = edgeChars[mid];
+            if (midChar < c) {
+                low = mid + 1;
+            } else if (midChar > c) {
+                high = mid - 1;
+            } else {
+                return edgeTargets[mid];
+            }
+        }
+        return NONE;
+    }
+
+    private static int pattern(int pair, int side) {
+        return pair * 2 + side;
+    }
+
+
+    private String replacementFor(int pattern) {
+        return (pattern & 1) == KEY_SIDE ? values[pattern >> 1] : keys[pattern >> 1];
+    }
+
+    private void compactEdges(TrieBuilder trie) {
+        int edge = 0;
+        for (int node = 0; node < trie.size; node++) {
+            edgeStart[node] = edge;
+            int first = edge;
+            for (int c = trie.firstChild[node]; c != NONE; c = trie.nextSibling[c]) {
+                edgeChars[edge] = trie.label[c];
+                edgeTargets[edge] = c;
+                edge++;
+            }
+            sortEdges(first, edge);
+        }
+        edgeStart[trie.size] = edge;
+    }
+
+    private void sortEdges(int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            char c = edgeChars[i];
+            int target = edgeTargets[i];
+            int j = i - 1;
+            while (j >= from && edgeChars[j] > c) {
+                edgeChars[j + 1] = edgeChars[j];
+                edgeTargets[j + 1] = edgeTargets[j];
+                j--;
+            }
+            edgeChars[j + 1] = c;
+            edgeTargets[j + 1] = target;
+        }
+    }
+
+    private void linkFailures() {
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        fail[ROOT] = ROOT;
+        keyOut[ROOT] = NONE;
+        valueOut[ROOT] = NONE;
+        queue.add(ROOT);
+
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (int e = edgeStart[node]; e < edgeStart[node + 1]; e++) {
+                int child = edgeTargets[e];
+                fail[child] = node == ROOT ? ROOT : step(fail[node], edgeChars[e]);
+                keyOut[child] = keyPair[child] != NONE ? child : keyOut[fail[child]];
+                valueOut[child] = valuePair[child] != NONE ? child : valueOut[fail[child]];
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * Leftmost-longest scan that can be fed the input piece by piece.
+     * <p>
+     * Positions are indices into the text passed to {@link #scan}. A caller that keeps the input in a sliding window
+     * calls {@link #settle} after each chunk, drops the settled prefix from its window and then {@link #rebase}s the
+     * scanner by the same amount; at most {@link #maxPatternLength()} characters are ever carried over.
+     */
+    public final class Scanner {
+
+        private final ReplacementMode mode;
+        private final BitSet keysFound;
+        private final int outputCapacity;
+        private final PatternMatches patternMatches;
+
+        private StringBuilder output;
+        private int state = ROOT;
+        private int position;
+        private int copied;
+        private int candidate = NONE;
+        private int candidateStart;
+        private int candidateEnd;
+        private String candidateReplacement;
+        private int nextPatternMatch;
+        private long replacements;
+
+        /**
+         * With folding, the input index every recent folded character came from, bitwise negated when it is not the
+         * first folded character of that input character.
+         */
+        private final int[] origins;
+        private final int originMask;
+        private int folded;
+        private boolean lastWasSpace;
+
+        private Scanner(ReplacementMode mode, BitSet keysFound, int outputCapacity, PatternMatches patternMatches) {
+            this.mode = mode;
+            this.keysFound = keysFound;
+            this.outputCapacity = outputCapacity;
+            this.patternMatches = patternMatches;
+
+            if (folding == null) {
+                this.origins = null;
+                this.originMask = 0;
+            } else {
+                int capacity = Integer.highestOneBit(maxPatternLength + folding.maxExpansion() + RING_SLACK) << 1;
+                this.origins = new int[capacity];
+                this.originMask = capacity - 1;
+            }
+        }
+
+        public void scan(CharSequence text, int end, boolean endOfInput) {
+            if (folding != null) {
+                scanFolded(text, end, endOfInput);
+                return;
+            }
+
+            int patternMatchCount = patternMatches.size();
+            while (true) {
+                if (position < end) {
+                    if (nextPatternMatch == patternMatchCount || offerPatternMatch()) {
+                        state = step(state, text.charAt(position));
+                        if (candidate == NONE || position - depth[state] + 1 <= candidateStart) {
+                            int pattern = resolve(state, mode, keysFound);
+                            if (pattern != NONE) {
+                                offerLiteralMatch(pattern, position - patternLengths[pattern] + 1, position + 1);
+                            }
+                            position++;
+                            continue;
+                        }
+                    }
+                } else if (candidate == NONE || !endOfInput) {
+                    break;
+                }
+                emitCandidate(text);
+            }
+        }
+
+        private void scanFolded(CharSequence text, int end, boolean endOfInput) {
+            int patternMatchCount = patternMatches.size();
+            while (true) {
+                if (position < end) {
+                    if (nextPatternMatch == patternMatchCount || offerPatternMatch()) {
+                        if (!stepFolded(text.charAt(position))) {
+                            position++;
+                            continue;
+                        }
+                        int liveStart = depth[state] == 0 ? position + 1 : origin(folded - depth[state]);
+                        if (candidate == NONE || liveStart <= candidateStart) {
+                            int pattern = resolve(state, mode, keysFound);
+                            while (pattern != NONE) {
+                                int start = origins[(folded - patternLengths[pattern]) & originMask];
+                                if (start >= 0) {
+                                    offerLiteralMatch(pattern, start, position + 1);
+                                    break;
+                                }
+                                pattern = resolve(state, mode, keysFound, patternLengths[pattern] - 1);
+                            }
+                            position++;
+                            continue;
+                        }
+                    }
+                } else if (candidate == NONE || !endOfInput) {
+                    break;
+                }
+                emitCandidate(text);
+                lastWasSpace = folding.endsWithSpace(text.charAt(position - 1));
+            }
+        }
+
+        /**
+         * Feeds the folded form of one input character to the automaton. Returns {@code false} when nothing was fed
+         * because the character continues a run of whitespace.
+         */
+        private boolean stepFolded(char c) {
+            char[] expansion = folding.expansion(c);
+            int length = expansion == null ? 1 : expansion.length;
+            boolean stepped = false;
+
+            for (int i = 0; i < length; i++) {
+                char f = expansion == null ? folding.single(c) : expansion[i];
+                if (f == CharFolding.SPACE && folding.tolerateWhitespace()) {
+                    if (lastWasSpace) {
+                        continue;
+                    }
+                    lastWasSpace = true;
+                } else {
+                    lastWasSpace = false;
+                }
+                origins[folded & originMask] = stepped ? ~position : position;
+                folded++;
+                state = step(state, f);
+                stepped = true;
+            }
+            return stepped;
+        }
+
+        private int origin(int foldedIndex) {
+            int origin = origins[foldedIndex & originMask];
+            return origin >= 0 ? origin : ~origin;
+        }
+
+        private int liveStart() {
+            if (folding == null) {
+                return position - depth[state];
+            }
+            return depth[state] == 0 ? position : origin(folded - depth[state]);
+        }
+
+        private void offerLiteralMatch(int pattern, int start, int end) {
+            if (candidate == NONE || start < candidateStart || (start == candidateStart
+                    && (end > candidateEnd || (candidate == PATTERN_MATCH && end == candidateEnd)))) {
+                candidate = pattern;
+                candidateStart = start;
+                candidateEnd = end;
+            }
+        }
+
+        private void emitCandidate(CharSequence text) {
+            String replacement = candidate == PATTERN_MATCH ? candidateReplacement : replacementFor(candidate);
+            ensureOutput().append(text, copied, candidateStart).append(replacement);
+            replacements++;
+            copied = candidateEnd;
+            position = candidateEnd;
+            state = ROOT;
+            candidate = NONE;
+        }
+
+        /**
+         * Makes the best pattern match starting at the scan position the candidate once the scan reaches it, and drops
+         * the others starting there that the candidate overlaps. Returns {@code false} when the current candidate ends
+         * before that point and has to be emitted first.
+         */
+        private boolean offerPatternMatch() {
+            int count = patternMatches.size();
+            while (patternMatches.start(nextPatternMatch) < copied) {
+                if (++nextPatternMatch == count) {
+                    return true;
+                }
+            }
+            if (patternMatches.start(nextPatternMatch) != position) {
+                return true;
+            }
+
+            do {
+                int end = patternMatches.end(nextPatternMatch);
+                if (candidate == NONE || (candidateStart == position && end > candidateEnd)) {
+                    candidate = PATTERN_MATCH;
+                    candidateStart = position;
+                    candidateEnd = end;
+                    candidateReplacement = patternMatches.replacement(nextPatternMatch);
+                } else if (candidateEnd <= position) {
+                    return liveStart() <= candidateStart;
+                }
+                nextPatternMatch++;
+            } while (nextPatternMatch < count && patternMatches.start(nextPatternMatch) == position);
+            return true;
+        }
+
+        /**
+         * Copies every character that can no longer take part in a match to the output and returns the index up to
+         * which the text has been consumed.
+         */
+        public int settle(CharSequence text) {
+            int safe = liveStart();
+            if (candidate != NONE) {
+                safe = Math.min(safe, candidateStart);
+            }
+            ensureOutput().append(text, copied, safe);
+            copied = safe;
+            return safe;
+        }
+
+        public void rebase(int offset) {
+            position -= offset;
+            copied -= offset;
+            candidateStart -= offset;
+            candidateEnd -= offset;
+            if (origins != null) {
+                for (int i = 0; i < origins.length; i++) {
+                    origins[i] = origins[i] >= 0 ? origins[i] - offset : origins[i] + offset;
+                }
+            }
+        }
+
+        public void finish(CharSequence text, int end) {
+            scan(text, end, true);
+            ensureOutput().append(text, copied, end);
+            copied = end;
+        }
+
+        public boolean hasReplacements() {
+            return replacements > 0;
+        }
+
+        public long replacements() {
+            return replacements;
+        }
+
+        public StringBuilder output() {
+            return ensureOutput();
+        }
+
+        private StringBuilder ensureOutput() {
+            if (output == null) {
+                output = new StringBuilder(outputCapacity);
+            }
+            return output;
+        }
+    }
+
+    private static final class TrieBuilder {
+
+        private int size = 1;
+        private int[] firstChild = {NONE};
+        private int[] nextSibling = {NONE};
+        private char[] label = {0};
+        private int[] depth = {0};
+        private int[] keyPair = {NONE};
+        private int[] valuePair = {NONE};
+
+        private void insert(String pattern, int pair, int side) {
+            int node = ROOT;
+            for (int i = 0; i < pattern.length(); i++) {
+                node = childOrCreate(node, pattern.charAt(i));
+            }
+            if (side == KEY_SIDE && keyPair[node] == NONE) {
+                keyPair[node] = pair;
+            } else if (side == VALUE_SIDE && valuePair[node] == NONE) {
+                valuePair[node] = pair;
+            }
+        }
+
+        private int childOrCreate(int node, char c) {
+            for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+                if (label[child] == c) {
+                    return child;
+                }
+            }
+            if (size == label.length) {
+                grow();
+            }
+            int child = size++;
+            label[child] = c;
+            depth[child] = depth[node] + 1;
+            firstChild[child] = NONE;
+            keyPair[child] = NONE;
+            valuePair[child] = NONE;
+            nextSibling[child] = firstChild[node];
+            firstChild[node] = child;
+            return child;
+        }
+
+        private void grow() {
+            int capacity = label.length * 2;
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+            label = Arrays.copyOf(label, capacity);
+            depth = Arrays.copyOf(depth, capacity);
+            keyPair = Arrays.copyOf(keyPair, capacity);
+            valuePair = Arrays.copyOf(valuePair, capacity);
+        }
+    }
+}
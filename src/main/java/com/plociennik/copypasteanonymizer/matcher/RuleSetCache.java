@@ -0,0 +1,125 @@
+package com.plociennik.copypasteanonymizer.matcher;
+
+import javafx.util.Pair;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * LRU cache of compiled rule sets, one per profile, bounded by the approximate size of their automata.
+ * <p>
+ * A cached rule set is only handed out for the pairs and match options it was compiled from. Looking up the very list
+ * that was cached is O(1); any other list is hashed, and compared pair by pair only when the hash matches.
+ */
+public final class RuleSetCache {
+
+    public static final long DEFAULT_MAX_BYTES = 128L * 1024 * 1024;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private record Entry(List<Pair<String, String>> pairs, long contentHash, MatchOptions options, CompiledRuleSet ruleSet, long bytes) {
+    }
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    public RuleSetCache(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("The cache size must be positive.");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * The rule set cached for the profile if it was compiled from these pairs with these options, else {@code null}.
+     */
+    public CompiledRuleSet get(String profile, List<Pair<String, String>> pairs, MatchOptions options) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(profile);
+        }
+        if (entry == null || !entry.options().equals(options)) {
+            return null;
+        }
+        if (entry.pairs() == pairs) {
+            return entry.ruleSet();
+        }
+        return entry.pairs().size() == pairs.size() && entry.contentHash() == contentHash(pairs) && samePairs(entry.pairs(), pairs)
+                ? entry.ruleSet()
+                : null;
+    }
+
+    /**
+     * Caches the rule set as the one of the profile, evicting the least recently used profiles while the cache is over
+     * its size. The most recent entry is always kept.
+     */
+    public void put(String profile, List<Pair<String, String>> pairs, MatchOptions options, CompiledRuleSet ruleSet) {
+        Entry entry = new Entry(pairs, contentHash(pairs), options, ruleSet, ruleSet.automaton().snapshotSize());
+        synchronized (this) {
+            Entry replaced = entries.put(profile, entry);
+            if (replaced != null) {
+                bytes -= replaced.bytes();
+            }
+            bytes += entry.bytes();
+
+            Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            while (bytes > maxBytes && entries.size() > 1) {
+                bytes -= eldest.next().getValue().bytes();
+                eldest.remove();
+            }
+        }
+    }
+
+    public synchronized void invalidate(String profile) {
+        Entry removed = entries.remove(profile);
+        if (removed != null) {
+            bytes -= removed.bytes();
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    /**
+     * 64-bit FNV-1a over the lengths and characters of all keys and values.
+     */
+    static long contentHash(List<Pair<String, String>> pairs) {
+        long hash = FNV_OFFSET_BASIS;
+        for (Pair<String, String> pair : pairs) {
+            hash = hash(hash, pair.getKey());
+            hash = hash(hash, pair.getValue());
+        }
+        return hash;
+    }
+
+    private static long hash(long hash, String string) {
+        if (string == null) {
+            return (hash ^ 0xFFFF_FFFFL) * FNV_PRIME;
+        }
+        hash = (hash ^ string.length()) * FNV_PRIME;
+        for (int i = 0; i < string.length(); i++) {
+            hash = (hash ^ string.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static boolean samePairs(List<Pair<String, String>> first, List<Pair<String, String>> second) {
+        for (int i = 0; i < first.size(); i++) {
+            if (!Objects.equals(first.get(i).getKey(), second.get(i).getKey())
+                    || !Objects.equals(first.get(i).getValue(), second.get(i).getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
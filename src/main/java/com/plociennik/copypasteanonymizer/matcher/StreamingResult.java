@@ -0,0 +1,4 @@
+package com.plociennik.copypasteanonymizer.matcher;
+
+public record StreamingResult(long charsRead, long charsWritten, long replacements, boolean truncated, long ruleSetVersion) {
+}
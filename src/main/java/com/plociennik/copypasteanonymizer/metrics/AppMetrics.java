@@ -0,0 +1,41 @@
+package com.plociennik.copypasteanonymizer.metrics;
+
+/**
+ * Application-wide metrics, recorded on the hot paths without locks or allocation.
+ */
+public final class AppMetrics {
+
+    public static final MetricsRegistry REGISTRY = new MetricsRegistry();
+
+    public static final LatencyHistogram CLIPBOARD_POLL_INTERVAL = REGISTRY.histogram("cpa_clipboard_poll_interval_seconds",
+            "Time between two clipboard checks.");
+    public static final LatencyHistogram CLIPBOARD_FETCH_TIME = REGISTRY.histogram("cpa_clipboard_fetch_seconds",
+            "Time to fetch and decode the clipboard text.");
+    public static final LatencyHistogram MATCH_TIME = REGISTRY.histogram("cpa_match_seconds",
+            "Time to anonymize one payload.");
+    public static final Counter MATCHED_BYTES = REGISTRY.counter("cpa_match_input_bytes_total",
+            "UTF-16 bytes of text run through the matcher.");
+    public static final Counter REPLACEMENTS = REGISTRY.counter("cpa_replacements_total",
+            "Replacements applied.");
+    public static final LatencyHistogram WRITE_BACK_TIME = REGISTRY.histogram("cpa_clipboard_write_seconds",
+            "Time from requesting a clipboard write until it completed, including lock retries.");
+    public static final Counter WRITE_LOCK_RETRIES = REGISTRY.counter("cpa_clipboard_write_lock_retries_total",
+            "Clipboard writes retried because another application held the clipboard.");
+    public static final Counter WRITE_FAILURES = REGISTRY.counter("cpa_clipboard_write_failures_total",
+            "Clipboard writes that failed.");
+    public static final Counter STALE_WRITES = REGISTRY.counter("cpa_clipboard_stale_writes_total",
+            "Clipboard writes dropped because something else was copied while the text was being anonymized.");
+    public static final Counter CLIPBOARD_CLEARS = REGISTRY.counter("cpa_clipboard_clears_total",
+            "Anonymized clipboard contents cleared after the auto-clear delay.");
+    public static final Counter NOTIFICATIONS_REQUESTED = REGISTRY.counter("cpa_ui_notifications_total",
+            "Footer statuses and toasts requested.");
+    public static final Counter NOTIFICATION_UPDATES = REGISTRY.counter("cpa_ui_notification_updates_total",
+            "UI updates that applied the requested notifications, at most one per pulse.");
+    public static final Counter RULE_SET_CACHE_HITS = REGISTRY.counter("cpa_rule_set_cache_hits_total",
+            "Profile rule sets activated from the cache without compiling.");
+    public static final Counter RULE_SET_CACHE_MISSES = REGISTRY.counter("cpa_rule_set_cache_misses_total",
+            "Profile rule sets that had to be compiled.");
+
+    private AppMetrics() {
+    }
+}
@@ -0,0 +1,20 @@
+package com.plociennik.copypasteanonymizer.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public final class Counter implements Metric {
+
+    private final LongAdder value = new LongAdder();
+
+    public void increment() {
+        value.increment();
+    }
+
+    public void add(long amount) {
+        value.add(amount);
+    }
+
+    public long get() {
+        return value.sum();
+    }
+}
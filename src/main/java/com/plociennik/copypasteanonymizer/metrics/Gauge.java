@@ -0,0 +1,10 @@
+package com.plociennik.copypasteanonymizer.metrics;
+
+import java.util.function.LongSupplier;
+
+public record Gauge(LongSupplier value) implements Metric {
+
+    public long get() {
+        return value.getAsLong();
+    }
+}
@@ -0,0 +1,4 @@
+package com.plociennik.copypasteanonymizer.metrics;
+
+public sealed interface Metric permits Counter, Gauge, LatencyHistogram {
+}
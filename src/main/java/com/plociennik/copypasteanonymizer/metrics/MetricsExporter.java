@@ -0,0 +1,187 @@
+package com.plociennik.copypasteanonymizer.metrics;
+
+import com.plociennik.copypasteanonymizer.util.AtomicFileUtil;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Renders a {@link MetricsRegistry} as Prometheus text exposition format or as JSON. Histograms are exported as
+ * summaries in seconds with the 50th, 90th, 99th and 99.9th percentile.
+ */
+public final class MetricsExporter {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private MetricsExporter() {
+    }
+
+    /**
+     * Writes the metrics to the file, as JSON if its name ends with {@code .json} and as Prometheus text otherwise. The
+     * file is replaced atomically so that a scraper never reads a partial export.
+     */
+    public static void export(MetricsRegistry registry, Path path) throws IOException {
+        String content = path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".json")
+                ? toJson(registry)
+                : toPrometheus(registry);
+        AtomicFileUtil.write(path, ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public static String toPrometheus(MetricsRegistry registry) {
+        Map<String, List<MetricsRegistry.Entry>> families = registry.entries().stream()
+                .collect(Collectors.groupingBy(MetricsRegistry.Entry::name, LinkedHashMap::new, Collectors.toList()));
+
+        StringBuilder text = new StringBuilder();
+        for (List<MetricsRegistry.Entry> family : families.values()) {
+            MetricsRegistry.Entry first = family.getFirst();
+            String name = first.name();
+            switch (first.metric()) {
+                case Counter ignored -> describe(text, name, first.help(), "counter");
+                case Gauge ignored -> describe(text, name, first.help(), "gauge");
+                case LatencyHistogram ignored -> describe(text, name, first.help(), "summary");
+            }
+
+            for (MetricsRegistry.Entry entry : family) {
+                switch (entry.metric()) {
+                    case Counter counter -> sample(text, name, entry.labels(), null, counter.get());
+                    case Gauge gauge -> sample(text, name, entry.labels(), null, gauge.get());
+                    case LatencyHistogram histogram -> {
+                        for (double quantile : QUANTILES) {
+                            sample(text, name, entry.labels(), "quantile=\"%s\"".formatted(quantile),
+                                    seconds(histogram.getPercentileNanos(quantile * 100)));
+                        }
+                        sample(text, name + "_sum", entry.labels(), null, seconds(histogram.getSumNanos()));
+                        sample(text, name + "_count", entry.labels(), null, histogram.getCount());
+                    }
+                }
+            }
+
+            if (first.metric() instanceof LatencyHistogram) {
+                describe(text, name + "_max", "Maximum of " + name + ".", "gauge");
+                for (MetricsRegistry.Entry entry : family) {
+                    sample(text, name + "_max", entry.labels(), null, seconds(((LatencyHistogram) entry.metric()).getMaxNanos()));
+                }
+            }
+        }
+        return text.toString();
+    }
+
+    public static String toJson(MetricsRegistry registry) {
+        StringBuilder json = new StringBuilder("{\n  \"timestamp\": \"").append(Instant.now()).append("\",\n  \"metrics\": [");
+
+        String separator = "\n";
+        for (MetricsRegistry.Entry entry : registry.entries()) {
+            json.append(separator).append("    {\"name\": ").append(quote(entry.name())).append(", \"labels\": {")
+                    .append(entry.labels().entrySet().stream()
+                            .map(label -> quote(label.getKey()) + ": " + quote(label.getValue()))
+                            .collect(Collectors.joining(", ")))
+                    .append("}, ");
+            switch (entry.metric()) {
+                case Counter counter -> json.append("\"type\": \"counter\", \"value\": ").append(counter.get());
+                case Gauge gauge -> json.append("\"type\": \"gauge\", \"value\": ").append(gauge.get());
+                case LatencyHistogram histogram -> {
+                    json.append("\"type\": \"summary\", \"count\": ").append(histogram.getCount())
+                            .append(", \"sum\": ").append(format(seconds(histogram.getSumNanos())))
+                            .append(", \"max\": ").append(format(seconds(histogram.getMaxNanos())));
+                    for (double quantile : QUANTILES) {
+                        json.append(", \"p").append(format(quantile * 100).replace(".", "_")).append("\": ")
+                                .append(format(seconds(histogram.getPercentileNanos(quantile * 100))));
+                    }
+                }
+            }
+            json.append('}');
+            separator = ",\n";
+        }
+        return json.append("\n  ]\n}\n").toString();
+    }
+
+    /**
+     * One line per metric for the diagnostics pane, latencies in milliseconds.
+     */
+    public static String toText(MetricsRegistry registry) {
+        StringBuilder text = new StringBuilder();
+        for (MetricsRegistry.Entry entry : registry.entries()) {
+            String name = entry.labels().isEmpty()
+                    ? entry.name()
+                    : entry.name() + entry.labels().entrySet().stream()
+                            .map(label -> label.getKey() + "=" + label.getValue())
+                            .collect(Collectors.joining(",", "{", "}"));
+            text.append("%-52s ".formatted(name));
+            switch (entry.metric()) {
+                case Counter counter -> text.append(counter.get());
+                case Gauge gauge -> text.append(gauge.get());
+                case LatencyHistogram histogram -> text.append("n=%d p50=%.3fms p99=%.3fms max=%.3fms".formatted(
+                        histogram.getCount(), millis(histogram.getPercentileNanos(50)),
+                        millis(histogram.getPercentileNanos(99)), millis(histogram.getMaxNanos())));
+            }
+            text.append('\n');
+        }
+        return text.toString();
+    }
+
+    private static void describe(StringBuilder text, String name, String help, String type) {
+        text.append("# HELP ").append(name).append(' ').append(help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+        text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder text, String name, Map<String, String> labels, String extraLabel, double value) {
+        text.append(name);
+        String labelText = labels.entrySet().stream()
+                .map(label -> label.getKey() + "=\"" + escapeLabel(label.getValue()) + "\"")
+                .collect(Collectors.joining(","));
+        if (extraLabel != null) {
+            labelText = labelText.isEmpty() ? extraLabel : labelText + "," + extraLabel;
+        }
+        if (!labelText.isEmpty()) {
+            text.append('{').append(labelText).append('}');
+        }
+        text.append(' ').append(format(value)).append('\n');
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / 1e9;
+    }
+
+    private static String format(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private static String escapeLabel(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> quoted.append("\\\"");
+                case '\\' -> quoted.append("\\\\");
+                case '\n' -> quoted.append("\\n");
+                default -> {
+                    if (c < 0x20) {
+                        quoted.append("\\u%04x".formatted((int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+                }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
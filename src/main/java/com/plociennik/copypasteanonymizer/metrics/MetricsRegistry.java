@@ -0,0 +1,76 @@
+package com.plociennik.copypasteanonymizer.metrics;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongSupplier;
+
+/**
+ * Named metrics for export. Registering the same name and labels again returns the existing metric.
+ */
+public final class MetricsRegistry {
+
+    public record Entry(String name, Map<String, String> labels, String help, Metric metric) {
+    }
+
+    private record Key(String name, Map<String, String> labels) {
+    }
+
+    private final Map<Key, Entry> entriesByKey = new ConcurrentHashMap<>();
+    private final List<Entry> entries = new CopyOnWriteArrayList<>();
+
+    public Counter counter(String name, String help) {
+        return counter(name, help, Map.of());
+    }
+
+    public Counter counter(String name, String help, Map<String, String> labels) {
+        return register(name, labels, help, Counter.class, new Counter());
+    }
+
+    public LatencyHistogram histogram(String name, String help) {
+        return histogram(name, help, Map.of());
+    }
+
+    public LatencyHistogram histogram(String name, String help, Map<String, String> labels) {
+        return register(name, labels, help, LatencyHistogram.class, new LatencyHistogram());
+    }
+
+    public Gauge gauge(String name, String help, LongSupplier value) {
+        return gauge(name, help, Map.of(), value);
+    }
+
+    /**
+     * Unlike counters and histograms a gauge is replaced when registered again, so that it reads the latest source.
+     */
+    public synchronized Gauge gauge(String name, String help, Map<String, String> labels, LongSupplier value) {
+        Gauge gauge = new Gauge(value);
+        Entry entry = new Entry(name, Map.copyOf(labels), help, gauge);
+        Entry previous = entriesByKey.put(new Key(name, entry.labels()), entry);
+        if (previous == null) {
+            entries.add(entry);
+        } else {
+            entries.set(entries.indexOf(previous), entry);
+        }
+        return gauge;
+    }
+
+    public List<Entry> entries() {
+        return List.copyOf(entries);
+    }
+
+    private synchronized <M extends Metric> M register(String name, Map<String, String> labels, String help, Class<M> type, M metric) {
+        Key key = new Key(name, Map.copyOf(labels));
+        Entry existing = entriesByKey.get(key);
+        if (existing != null) {
+            if (!type.isInstance(existing.metric())) {
+                throw new IllegalArgumentException("Metric '%s' is already registered with another type.".formatted(name));
+            }
+            return type.cast(existing.metric());
+        }
+        Entry entry = new Entry(name, key.labels(), help, metric);
+        entriesByKey.put(key, entry);
+        entries.add(entry);
+        return metric;
+    }
+}
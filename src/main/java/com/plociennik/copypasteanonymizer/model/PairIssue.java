@@ -0,0 +1,7 @@
+package com.plociennik.copypasteanonymizer.model;
+
+/**
+ * Why a pair cannot be saved, and which of its fields is at fault.
+ */
+public record PairIssue(String message, boolean keyInvalid, boolean valueInvalid) {
+}
@@ -0,0 +1,74 @@
+package com.plociennik.copypasteanonymizer.model;
+
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
+import javafx.util.Pair;
+
+/**
+ * One row of the pair editor. The editor cells bind to it while it is on screen, so the text lives here and not in
+ * the text fields. The issue is set by the validation and is {@code null} while the pair is valid.
+ */
+public final class PairItem {
+
+    private final StringProperty key;
+    private final StringProperty value;
+    private final ReadOnlyObjectWrapper<PairIssue> issue = new ReadOnlyObjectWrapper<>(this, "issue");
+
+    public PairItem(String key, String value) {
+        this.key = new SimpleStringProperty(this, "key", key);
+        this.value = new SimpleStringProperty(this, "value", value);
+    }
+
+    public String getKey() {
+        return key.get();
+    }
+
+    public void setKey(String key) {
+        this.key.set(key);
+    }
+
+    public StringProperty keyProperty() {
+        return key;
+    }
+
+    public String getValue() {
+        return value.get();
+    }
+
+    public void setValue(String value) {
+        this.value.set(value);
+    }
+
+    public StringProperty valueProperty() {
+        return value;
+    }
+
+    public PairIssue getIssue() {
+        return issue.get();
+    }
+
+    public void setIssue(PairIssue issue) {
+        this.issue.set(issue);
+    }
+
+    public ReadOnlyObjectProperty<PairIssue> issueProperty() {
+        return issue.getReadOnlyProperty();
+    }
+
+    /**
+     * The key and the value without surrounding whitespace, as they are saved.
+     */
+    public Pair<String, String> toPair() {
+        return new Pair<>(trim(getKey()), trim(getValue()));
+    }
+
+    public boolean isEmpty() {
+        return trim(getKey()).isEmpty() && trim(getValue()).isEmpty();
+    }
+
+    private static String trim(String text) {
+        return text == null ? "" : text.trim();
+    }
+}
@@ -0,0 +1,13 @@
+package com.plociennik.copypasteanonymizer.pipeline;
+
+import com.plociennik.copypasteanonymizer.matcher.AnonymizationResult;
+
+/**
+ * A detected clipboard change on its way through the pipeline; {@code result} is {@code null} until it is anonymized.
+ */
+public record ClipboardEvent(long id, long detectedAtNanos, String content, AnonymizationResult result) {
+
+    public ClipboardEvent withResult(AnonymizationResult result) {
+        return new ClipboardEvent(id, detectedAtNanos, content, result);
+    }
+}
@@ -0,0 +1,89 @@
+package com.plociennik.copypasteanonymizer.pipeline;
+
+import com.plociennik.copypasteanonymizer.enums.BackpressurePolicy;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chain of stages that detected clipboard changes flow through, for example anonymize → write-back → notify.
+ * <p>
+ * {@link #submit(String)} only enqueues, so the thread that detects clipboard changes is never held up by a slow stage.
+ * Further consumers, such as an audit log, can {@link #subscribe(String, Flow.Subscriber) subscribe} to the output of
+ * any stage without changing the chain.
+ */
+public final class ClipboardPipeline {
+
+    public static final String ANONYMIZE = "anonymize";
+    public static final String WRITE_BACK = "write-back";
+    public static final String NOTIFY = "notify";
+
+    private final Map<String, StageNode<ClipboardEvent, ClipboardEvent>> stages;
+    private final StageNode<ClipboardEvent, ClipboardEvent> head;
+    private final AtomicLong eventSequence = new AtomicLong();
+
+    private ClipboardPipeline(Map<String, StageNode<ClipboardEvent, ClipboardEvent>> stages) {
+        this.stages = stages;
+        this.head = stages.values().iterator().next();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public void submit(String content) {
+        head.onNext(new ClipboardEvent(eventSequence.incrementAndGet(), System.nanoTime(), content, null));
+    }
+
+    public void subscribe(String stageName, Flow.Subscriber<? super ClipboardEvent> subscriber) {
+        StageNode<ClipboardEvent, ClipboardEvent> stage = stages.get(stageName);
+        if (stage == null) {
+            throw new IllegalArgumentException("Unknown pipeline stage: " + stageName);
+        }
+        stage.subscribe(subscriber);
+    }
+
+    public List<StageMetrics> getMetrics() {
+        return stages.values().stream().map(StageNode::metrics).toList();
+    }
+
+    public int getQueued(String stageName) {
+        StageNode<ClipboardEvent, ClipboardEvent> stage = stages.get(stageName);
+        return stage == null ? 0 : stage.queued();
+    }
+
+    public void shutdown() {
+        head.onComplete();
+    }
+
+    public static final class Builder {
+
+        private final Map<String, StageNode<ClipboardEvent, ClipboardEvent>> stages = new LinkedHashMap<>();
+
+        private Builder() {
+        }
+
+        public Builder stage(String name, BackpressurePolicy policy, int capacity, PipelineStage<ClipboardEvent, ClipboardEvent> stage) {
+            if (stages.containsKey(name)) {
+                throw new IllegalArgumentException("Duplicate pipeline stage: " + name);
+            }
+            stages.put(name, new StageNode<>(name, policy, capacity, stage));
+            return this;
+        }
+
+        public ClipboardPipeline build() {
+            if (stages.isEmpty()) {
+                throw new IllegalStateException("A pipeline needs at least one stage.");
+            }
+            List<StageNode<ClipboardEvent, ClipboardEvent>> chain = new ArrayList<>(stages.values());
+            for (int i = 1; i < chain.size(); i++) {
+                chain.get(i - 1).subscribe(chain.get(i));
+            }
+            return new ClipboardPipeline(new LinkedHashMap<>(stages));
+        }
+    }
+}
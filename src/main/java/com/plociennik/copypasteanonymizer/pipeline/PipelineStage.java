@@ -0,0 +1,10 @@
+package com.plociennik.copypasteanonymizer.pipeline;
+
+/**
+ * One step of the clipboard pipeline. Returning {@code null} drops the item without passing it on.
+ */
+@FunctionalInterface
+public interface PipelineStage<I, O> {
+
+    O process(I item) throws Exception;
+}
@@ -0,0 +1,90 @@
+package com.plociennik.copypasteanonymizer.pipeline;
+
+import com.plociennik.copypasteanonymizer.metrics.AppMetrics;
+import com.plociennik.copypasteanonymizer.metrics.Counter;
+import com.plociennik.copypasteanonymizer.metrics.LatencyHistogram;
+import com.plociennik.copypasteanonymizer.metrics.MetricsRegistry;
+
+import java.util.Map;
+
+/**
+ * Counters and latencies of one pipeline stage, registered in {@link AppMetrics#REGISTRY} under a {@code stage} label.
+ */
+public final class StageMetrics {
+
+    private final String stageName;
+
+    private final Counter received;
+    private final Counter processed;
+    private final Counter dropped;
+    private final Counter failed;
+    private final LatencyHistogram waitTime;
+    private final LatencyHistogram processingTime;
+
+    StageMetrics(String stageName) {
+        this.stageName = stageName;
+
+        MetricsRegistry registry = AppMetrics.REGISTRY;
+        Map<String, String> labels = Map.of("stage", stageName);
+        this.received = registry.counter("cpa_pipeline_received_total", "Events offered to a pipeline stage.", labels);
+        this.processed = registry.counter("cpa_pipeline_processed_total", "Events processed by a pipeline stage.", labels);
+        this.dropped = registry.counter("cpa_pipeline_dropped_total", "Events dropped or coalesced by a pipeline stage.", labels);
+        this.failed = registry.counter("cpa_pipeline_failed_total", "Events a pipeline stage failed to process.", labels);
+        this.waitTime = registry.histogram("cpa_pipeline_wait_seconds", "Time an event waited in a stage queue.", labels);
+        this.processingTime = registry.histogram("cpa_pipeline_processing_seconds", "Time a stage spent on one event.", labels);
+    }
+
+    void recordReceived() {
+        received.increment();
+    }
+
+    void recordDropped(int count) {
+        dropped.add(count);
+    }
+
+    void recordProcessed(long waitedNanos, long tookNanos) {
+        processed.increment();
+        waitTime.record(waitedNanos);
+        processingTime.record(tookNanos);
+    }
+
+    void recordFailed() {
+        failed.increment();
+    }
+
+    public String getStageName() {
+        return stageName;
+    }
+
+    public long getReceived() {
+        return received.get();
+    }
+
+    public long getProcessed() {
+        return processed.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public LatencyHistogram getWaitTime() {
+        return waitTime;
+    }
+
+    public LatencyHistogram getProcessingTime() {
+        return processingTime;
+    }
+
+    @Override
+    public String toString() {
+        return "%s: received=%d processed=%d dropped=%d failed=%d p99Wait=%dus p99Processing=%dus maxProcessing=%dus".formatted(
+                stageName, getReceived(), getProcessed(), getDropped(), getFailed(),
+                waitTime.getPercentileNanos(99) / 1_000, processingTime.getPercentileNanos(99) / 1_000,
+                processingTime.getMaxNanos() / 1_000);
+    }
+}
@@ -0,0 +1,218 @@
+package com.plociennik.copypasteanonymizer.pipeline;
+
+import com.plociennik.copypasteanonymizer.enums.BackpressurePolicy;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Runs one {@link PipelineStage} on its own virtual thread behind a bounded queue.
+ * <p>
+ * Upstream is never blocked: when the queue is full the {@link BackpressurePolicy} decides which item is dropped, and
+ * {@link BackpressurePolicy#COALESCE} keeps only the latest item regardless of the capacity. Items are delivered to
+ * subscribers that have outstanding demand; the others miss them and the miss is counted as a drop.
+ */
+final class StageNode<I, O> implements Flow.Processor<I, O> {
+
+    private static final Logger LOG = Logger.getLogger(StageNode.class.getName());
+
+    private record Queued<I>(I item, long enqueuedAtNanos) {
+    }
+
+    private final PipelineStage<I, O> stage;
+    private final BackpressurePolicy policy;
+    private final int capacity;
+    private final StageMetrics metrics;
+    private final ExecutorService executor;
+
+    private final ArrayDeque<Queued<I>> queue = new ArrayDeque<>();
+    private final List<StageSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    private boolean draining;
+    private boolean closed;
+
+    StageNode(String name, BackpressurePolicy policy, int capacity, PipelineStage<I, O> stage) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The queue capacity of stage '%s' must be positive.".formatted(name));
+        }
+        this.stage = Objects.requireNonNull(stage);
+        this.policy = Objects.requireNonNull(policy);
+        this.capacity = capacity;
+        this.metrics = new StageMetrics(name);
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("Pipeline-" + name).factory());
+    }
+
+    StageMetrics metrics() {
+        return metrics;
+    }
+
+    int queued() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(I item) {
+        synchronized (queue) {
+            if (closed) {
+                return;
+            }
+            metrics.recordReceived();
+            if (policy == BackpressurePolicy.COALESCE) {
+                metrics.recordDropped(queue.size());
+                queue.clear();
+            } else if (queue.size() >= capacity) {
+                metrics.recordDropped(1);
+                if (policy == BackpressurePolicy.DROP_NEWEST) {
+                    return;
+                }
+                queue.pollFirst();
+            }
+            queue.addLast(new Queued<>(item, System.nanoTime()));
+            if (draining) {
+                return;
+            }
+            draining = true;
+        }
+
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            synchronized (queue) {
+                draining = false;
+            }
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        LOG.warning("(%s) %s\n%s".formatted("1301_18102026", "The upstream of stage '%s' failed:".formatted(metrics.getStageName()), throwable.toString()));
+    }
+
+    @Override
+    public void onComplete() {
+        close();
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super O> subscriber) {
+        StageSubscription subscription = new StageSubscription(subscriber);
+        subscriptions.add(subscription);
+        subscriber.onSubscribe(subscription);
+    }
+
+    void close() {
+        synchronized (queue) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.clear();
+        }
+        executor.shutdownNow();
+        for (StageSubscription subscription : subscriptions) {
+            subscription.subscriber.onComplete();
+        }
+    }
+
+    /**
+     * Processes the queue until it is empty. The draining flag is also reset when the loop dies, since no item would be
+     * drained again while it stays set.
+     */
+    private void drain() {
+        boolean emptied = false;
+        try {
+            while (true) {
+                Queued<I> next;
+                synchronized (queue) {
+                    next = queue.pollFirst();
+                    if (next == null) {
+                        draining = false;
+                        emptied = true;
+                        return;
+                    }
+                }
+
+                long startedAt = System.nanoTime();
+                O output;
+                try {
+                    output = stage.process(next.item());
+                } catch (Throwable e) {
+                    metrics.recordFailed();
+                    LOG.warning("(%s) %s\n%s".formatted("1302_18102026", "Stage '%s' failed to process an item:".formatted(metrics.getStageName()), e.toString()));
+                    continue;
+                }
+                metrics.recordProcessed(startedAt - next.enqueuedAtNanos(), System.nanoTime() - startedAt);
+
+                if (output != null) {
+                    publish(output);
+                }
+            }
+        } finally {
+            if (!emptied) {
+                synchronized (queue) {
+                    draining = false;
+                }
+            }
+        }
+    }
+
+    private void publish(O output) {
+        for (StageSubscription subscription : subscriptions) {
+            if (!subscription.deliver(output)) {
+                metrics.recordDropped(1);
+            }
+        }
+    }
+
+    private final class StageSubscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super O> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+
+        private StageSubscription(Flow.Subscriber<? super O> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                subscriber.onError(new IllegalArgumentException("The requested demand must be positive."));
+                return;
+            }
+            demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+        }
+
+        @Override
+        public void cancel() {
+            subscriptions.remove(this);
+        }
+
+        private boolean deliver(O output) {
+            long remaining = demand.getAndUpdate(current -> current == Long.MAX_VALUE || current == 0 ? current : current - 1);
+            if (remaining == 0) {
+                return false;
+            }
+            try {
+                subscriber.onNext(output);
+            } catch (RuntimeException e) {
+                LOG.warning("(%s) %s\n%s".formatted("1303_18102026", "A subscriber of stage '%s' failed:".formatted(metrics.getStageName()), e.toString()));
+            }
+            return true;
+        }
+    }
+}
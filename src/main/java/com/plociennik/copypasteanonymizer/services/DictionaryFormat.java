@@ -0,0 +1,177 @@
+package com.plociennik.copypasteanonymizer.services;
+
+import com.plociennik.copypasteanonymizer.matcher.ReplacementAutomaton;
+import javafx.util.Pair;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary dictionary format, version 1, little-endian:
+ * <pre>
+ * header        magic "CPAD", format version, flags, pair count, string chars, string table offset,
+ *               snapshot offset and length, CRC32C of everything after the header, random snapshot id
+ * string table  pair count * 2 + 1 char offsets, then the UTF-16 chars of every key and value
+ * snapshot      optional {@link ReplacementAutomaton#writeSnapshot matcher snapshot} referring to the string table
+ * </pre>
+ * Keys and values are stored as they are, so any character, including {@code =} and line breaks, survives a round trip.
+ */
+final class DictionaryFormat {
+
+    static final int MAGIC = 0x44415043;
+    static final short FORMAT_VERSION = 1;
+
+    private static final short FLAG_MATCHER_SNAPSHOT = 1;
+    private static final int HEADER_SIZE = 48;
+    private static final int CHECKSUM_OFFSET = 40;
+    private static final int SNAPSHOT_ID_OFFSET = 44;
+
+    private DictionaryFormat() {
+    }
+
+    static boolean isDictionary(ByteBuffer buffer) {
+        return buffer.remaining() >= 4 && buffer.order(ByteOrder.LITTLE_ENDIAN).getInt(buffer.position()) == MAGIC;
+    }
+
+    /**
+     * Encodes the pairs; the snapshot id lets a {@link PairsJournal} tell whether it extends this very file.
+     */
+    static ByteBuffer write(List<Pair<String, String>> pairs, ReplacementAutomaton automaton, int snapshotId) {
+        int stringCount = pairs.size() * 2;
+        int[] offsets = new int[stringCount + 1];
+        Map<String, Integer> stringIds = automaton == null ? null : new HashMap<>(stringCount * 2);
+        long chars = 0;
+        for (int i = 0; i < stringCount; i++) {
+            String string = stringAt(pairs, i);
+            chars += string.length();
+            offsets[i + 1] = Math.toIntExact(chars);
+            if (stringIds != null) {
+                stringIds.putIfAbsent(string, i);
+            }
+        }
+
+        long stringTableSize = offsets.length * 4L + chars * 2;
+        long snapshotSize = automaton == null ? 0 : automaton.snapshotSize();
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(HEADER_SIZE + stringTableSize + snapshotSize))
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.putInt(MAGIC)
+                .putShort(FORMAT_VERSION)
+                .putShort(automaton == null ? 0 : FLAG_MATCHER_SNAPSHOT)
+                .putInt(pairs.size())
+                .putInt((int) chars)
+                .putLong(HEADER_SIZE)
+                .putLong(automaton == null ? 0 : HEADER_SIZE + stringTableSize)
+                .putLong(snapshotSize)
+                .putInt(0)
+                .putInt(snapshotId);
+
+        buffer.asIntBuffer().put(offsets);
+        buffer.position(buffer.position() + offsets.length * 4);
+        CharBuffer charTable = buffer.asCharBuffer();
+        for (int i = 0; i < stringCount; i++) {
+            charTable.put(stringAt(pairs, i));
+        }
+        buffer.position(buffer.position() + (int) chars * 2);
+
+        if (automaton != null) {
+            automaton.writeSnapshot(buffer, string -> {
+                Integer id = stringIds.get(string);
+                if (id == null) {
+                    throw new IllegalArgumentException("The matcher snapshot was not compiled from these pairs.");
+                }
+                return id;
+            });
+        }
+
+        buffer.putInt(CHECKSUM_OFFSET, checksum(buffer, HEADER_SIZE, buffer.capacity()));
+        return buffer.flip();
+    }
+
+    /**
+     * Reads a dictionary, throwing {@link IllegalArgumentException} when the buffer is not a valid dictionary of a
+     * supported version.
+     */
+    static PairsDictionary read(ByteBuffer buffer) {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a pairs dictionary.");
+            }
+            short version = buffer.getShort();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported dictionary format version %d.".formatted(version));
+            }
+            short flags = buffer.getShort();
+            int pairCount = buffer.getInt();
+            int chars = buffer.getInt();
+            long stringTableOffset = buffer.getLong();
+            long snapshotOffset = buffer.getLong();
+            long snapshotLength = buffer.getLong();
+            int expectedChecksum = buffer.getInt();
+            int snapshotId = buffer.getInt();
+
+            if (checksum(buffer, HEADER_SIZE, buffer.limit()) != expectedChecksum) {
+                throw new IllegalArgumentException("The dictionary is corrupted (checksum mismatch).");
+            }
+            if (pairCount < 0 || chars < 0 || stringTableOffset != HEADER_SIZE) {
+                throw new IllegalArgumentException("The dictionary header is inconsistent.");
+            }
+
+            int stringCount = pairCount * 2;
+            buffer.position(HEADER_SIZE);
+            int[] offsets = new int[stringCount + 1];
+            buffer.asIntBuffer().get(offsets);
+            buffer.position(buffer.position() + offsets.length * 4);
+            char[] charTable = new char[chars];
+            buffer.asCharBuffer().get(charTable);
+
+            String[] strings = new String[stringCount];
+            for (int i = 0; i < stringCount; i++) {
+                if (offsets[i] > offsets[i + 1] || offsets[i + 1] > chars) {
+                    throw new IllegalArgumentException("The dictionary string table is inconsistent.");
+                }
+                strings[i] = new String(charTable, offsets[i], offsets[i + 1] - offsets[i]);
+            }
+
+            List<Pair<String, String>> pairs = new ArrayList<>(pairCount);
+            for (int i = 0; i < pairCount; i++) {
+                pairs.add(new Pair<>(strings[i * 2], strings[i * 2 + 1]));
+            }
+
+            ReplacementAutomaton automaton = null;
+            if ((flags & FLAG_MATCHER_SNAPSHOT) != 0) {
+                ByteBuffer snapshot = buffer.slice(Math.toIntExact(snapshotOffset), Math.toIntExact(snapshotLength))
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                automaton = ReplacementAutomaton.readSnapshot(snapshot, id -> {
+                    if (id < 0 || id >= stringCount) {
+                        throw new IllegalArgumentException("The matcher snapshot refers to an unknown string.");
+                    }
+                    return strings[id];
+                });
+            }
+            return new PairsDictionary(pairs, automaton, snapshotId);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | ArithmeticException e) {
+            throw new IllegalArgumentException("The dictionary is truncated.", e);
+        }
+    }
+
+    private static String stringAt(List<Pair<String, String>> pairs, int index) {
+        Pair<String, String> pair = pairs.get(index >> 1);
+        String string = (index & 1) == 0 ? pair.getKey() : pair.getValue();
+        return string == null ? "" : string;
+    }
+
+    private static int checksum(ByteBuffer buffer, int from, int to) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(from, to - from));
+        return (int) crc.getValue();
+    }
+}
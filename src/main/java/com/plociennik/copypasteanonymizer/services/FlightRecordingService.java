@@ -0,0 +1,74 @@
+package com.plociennik.copypasteanonymizer.services;
+
+import com.plociennik.copypasteanonymizer.common.CopyPasteAnonymizerException;
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Starts and stops an in-process flight recording with the bundled {@code cpa.jfc} settings. The custom events cost
+ * next to nothing while no recording has them enabled.
+ */
+public class FlightRecordingService {
+
+    private static final String SETTINGS_RESOURCE = "/com/plociennik/copypasteanonymizer/jfr/cpa.jfc";
+    private static final Duration MAX_AGE = Duration.ofMinutes(30);
+
+    private Recording recording;
+
+    public boolean isAvailable() {
+        return FlightRecorder.isAvailable();
+    }
+
+    public synchronized boolean isRecording() {
+        return recording != null;
+    }
+
+    public synchronized void start() {
+        if (recording != null) {
+            return;
+        }
+        Recording newRecording = new Recording(loadSettings());
+        newRecording.setName("Copy-Paste Anonymizer");
+        newRecording.setToDisk(true);
+        newRecording.setMaxAge(MAX_AGE);
+        newRecording.start();
+        recording = newRecording;
+    }
+
+    /**
+     * Stops the recording and writes it to the destination, or discards it when the destination is {@code null}.
+     */
+    public synchronized void stop(Path destination) {
+        if (recording == null) {
+            return;
+        }
+        try (Recording finished = recording) {
+            recording = null;
+            finished.stop();
+            if (destination != null) {
+                finished.dump(destination);
+            }
+        } catch (IOException e) {
+            throw new CopyPasteAnonymizerException("1601_18102026", "Something happened when trying to save the flight recording:", e);
+        }
+    }
+
+    private static Configuration loadSettings() {
+        try (InputStream settings = Objects.requireNonNull(FlightRecordingService.class.getResourceAsStream(SETTINGS_RESOURCE));
+             InputStreamReader reader = new InputStreamReader(settings, StandardCharsets.UTF_8)) {
+            return Configuration.create(reader);
+        } catch (IOException | ParseException e) {
+            throw new CopyPasteAnonymizerException("1602_18102026", "Something happened when trying to load the flight recording settings:", e);
+        }
+    }
+}
@@ -2,9 +2,10 @@ package com.plociennik.copypasteanonymizer.services;
 
 import com.plociennik.copypasteanonymizer.common.CopyPasteAnonymizerException;
 import com.plociennik.copypasteanonymizer.enums.NotificationType;
+import com.plociennik.copypasteanonymizer.metrics.AppMetrics;
 import com.plociennik.copypasteanonymizer.util.StyleCssUtil;
 
-import javafx.animation.PauseTransition;
+import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
 import javafx.geometry.Rectangle2D;
 import javafx.scene.Scene;
@@ -14,67 +15,165 @@ import javafx.scene.layout.StackPane;
 import javafx.stage.Screen;
 import javafx.stage.Stage;
 import javafx.stage.StageStyle;
-import javafx.util.Duration;
 
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Shows footer statuses and the anonymization toast. Both may be requested from any thread without blocking: requests
+ * only record the latest status and count the anonymized clipboards, and an {@link AnimationTimer} applies them once
+ * per pulse. A burst of copies therefore costs one UI update per frame and a single {@code Platform.runLater}, and the
+ * footer counts the clipboards of the burst, such as "12 clipboards anonymized".
+ */
 public class NotifyService {
 
-    private Stage toastStage;
+    private static final Logger LOG = Logger.getLogger(NotifyService.class.getName());
 
-    public void showAnonymizationSuccessMessage() {
-        Stage toastStage = this.toastStage == null ? initAnonymizationSuccessMessage() : this.toastStage;
+    private static final Duration TOAST_LIFETIME = Duration.ofMillis(1500);
+    private static final Duration FOOTER_RESET_DELAY = Duration.ofSeconds(3);
 
-        try {
-            toastStage.show();
+    private record FooterStatus(String message, NotificationType type, HBox notificationFooter,
+                                Label notificationIcon, Label notificationText, long sequence) {
+    }
 
-            PauseTransition delay = new PauseTransition(Duration.seconds(1.5));
-            delay.setOnFinished(e -> toastStage.close());
-            delay.play();
-        } catch (Exception e) {
-            throw new CopyPasteAnonymizerException("1412_09072026", "Error while trying to show anonymization success message.", e);
+    private final TimerService timerService;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicReference<FooterStatus> pendingStatus = new AtomicReference<>();
+    private final AtomicReference<FooterStatus> pendingAnonymized = new AtomicReference<>();
+    private final LongAdder pendingAnonymizedCount = new LongAdder();
+    private final AtomicBoolean pulseRequested = new AtomicBoolean();
+    private final AnimationTimer pulse = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            pulseRequested.set(false);
+            if (!flush()) {
+                stop();
+            }
         }
+    };
+
+    private Stage toastStage;
+    private long burstCount;
+
+    public NotifyService(TimerService timerService) {
+        this.timerService = timerService;
+    }
+
+    /**
+     * Counts an anonymized clipboard, shows the toast and updates the footer with the number of clipboards anonymized
+     * since the footer last showed something else.
+     */
+    public void showAnonymized(HBox notificationFooter, Label notificationIcon, Label notificationText) {
+        pendingAnonymizedCount.increment();
+        pendingAnonymized.set(new FooterStatus(null, NotificationType.SUCCESS, notificationFooter, notificationIcon, notificationText,
+                sequence.incrementAndGet()));
+        requestPulse();
     }
 
     public void showFooterStatus(String message, NotificationType type, HBox notificationFooter,
                                  Label notificationIcon, Label notificationText) {
         if (notificationFooter == null || notificationIcon == null || notificationText == null) {
-            System.out.println("Notification: " + message);
+            LOG.info("Notification: " + message);
             return;
         }
 
-        Platform.runLater(() -> {
-            notificationText.setText(message);
+        pendingStatus.set(new FooterStatus(message, type, notificationFooter, notificationIcon, notificationText, sequence.incrementAndGet()));
+        requestPulse();
+    }
 
-            notificationFooter.getStyleClass().removeAll("info", "success", "warning", "error");
+    private void requestPulse() {
+        AppMetrics.NOTIFICATIONS_REQUESTED.increment();
+        if (pulseRequested.compareAndSet(false, true)) {
+            Platform.runLater(pulse::start);
+        }
+    }
 
-            switch (type) {
-                case SUCCESS -> {
-                    notificationIcon.setText("✓");
-                    notificationFooter.getStyleClass().add("success");
-                }
-                case WARNING -> {
-                    notificationIcon.setText("!");
-                    notificationFooter.getStyleClass().add("warning");
-                }
-                case ERROR -> {
-                    notificationIcon.setText("✗");
-                    notificationFooter.getStyleClass().add("error");
-                }
-                case INFO -> {
-                    notificationIcon.setText("i");
-                    notificationFooter.getStyleClass().add("info");
-                }
-                default -> notificationText.setText("•");
-            }
+    /**
+     * Applies what was requested since the last pulse, returning {@code false} if there was nothing.
+     */
+    private boolean flush() {
+        FooterStatus status = pendingStatus.getAndSet(null);
+        FooterStatus anonymized = pendingAnonymized.getAndSet(null);
+        long anonymizedCount = pendingAnonymizedCount.sumThenReset();
+        if (status == null && anonymized == null) {
+            return false;
+        }
+        AppMetrics.NOTIFICATION_UPDATES.increment();
+
+        if (status != null) {
+            burstCount = 0;
+        }
+        if (anonymized != null) {
+            burstCount += anonymizedCount;
+            showToast();
+        }
+        if (anonymized == null || (status != null && status.sequence() > anonymized.sequence())) {
+            burstCount = 0;
+            applyFooterStatus(status);
+        } else {
+            String message = burstCount == 1 ? "Clipboard content anonymized" : burstCount + " clipboards anonymized";
+            applyFooterStatus(new FooterStatus(message, anonymized.type(), anonymized.notificationFooter(),
+                    anonymized.notificationIcon(), anonymized.notificationText(), anonymized.sequence()));
+        }
+        return true;
+    }
 
-            if (type != NotificationType.DEFAULT) {
-                PauseTransition pause = new PauseTransition(Duration.seconds(3));
-                pause.setOnFinished(e -> returnToDefaultState(notificationFooter, notificationIcon, notificationText));
-                pause.play();
+    private void showToast() {
+        Stage toastStage = this.toastStage == null ? initAnonymizationSuccessMessage() : this.toastStage;
+
+        try {
+            toastStage.show();
+            timerService.schedule(toastStage, TOAST_LIFETIME, Platform::runLater, toastStage::close);
+        } catch (Exception e) {
+            throw new CopyPasteAnonymizerException("1412_09072026", "Error while trying to show anonymization success message.", e);
+        }
+    }
+
+    private void applyFooterStatus(FooterStatus status) {
+        HBox notificationFooter = status.notificationFooter();
+        Label notificationIcon = status.notificationIcon();
+        Label notificationText = status.notificationText();
+        NotificationType type = status.type();
+
+        notificationText.setText(status.message());
+
+        notificationFooter.getStyleClass().removeAll("info", "success", "warning", "error");
+
+        switch (type) {
+            case SUCCESS -> {
+                notificationIcon.setText("✓");
+                notificationFooter.getStyleClass().add("success");
+            }
+            case WARNING -> {
+                notificationIcon.setText("!");
+                notificationFooter.getStyleClass().add("warning");
             }
-        });
+            case ERROR -> {
+                notificationIcon.setText("✗");
+                notificationFooter.getStyleClass().add("error");
+            }
+            case INFO -> {
+                notificationIcon.setText("i");
+                notificationFooter.getStyleClass().add("info");
+            }
+            default -> notificationText.setText("•");
+        }
+
+        if (type != NotificationType.DEFAULT) {
+            timerService.schedule(notificationFooter, FOOTER_RESET_DELAY, Platform::runLater,
+                    () -> returnToDefaultState(notificationFooter, notificationIcon, notificationText));
+        } else {
+            timerService.cancel(notificationFooter);
+        }
     }
 
     private void returnToDefaultState(HBox notificationFooter, Label notificationIcon, Label notificationText) {
+        burstCount = 0;
         if (notificationFooter != null) {
             notificationFooter.getStyleClass().removeAll("info", "success", "warning", "error");
             notificationIcon.setText("•");
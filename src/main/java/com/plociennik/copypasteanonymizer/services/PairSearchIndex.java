@@ -0,0 +1,268 @@
+package com.plociennik.copypasteanonymizer.services;
+
+import com.plociennik.copypasteanonymizer.model.PairItem;
+import javafx.beans.value.ChangeListener;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Trigram index over the keys and values of a list of pairs, for case-insensitive substring search.
+ * <p>
+ * Each pair gets an id, and each trigram of its lower-cased text a posting list of ids. A query takes the rarest of
+ * its trigrams and checks only the pairs in that posting list; queries shorter than a trigram check every pair. Edits
+ * append the id to the postings of the new text and leave the old postings in place, so stale postings are filtered
+ * by the same check and the postings are rebuilt once there are twice as many as live trigrams.
+ * <p>
+ * The index follows the list on the thread that edits it; {@link #search(String)} may be called from any thread.
+ */
+public final class PairSearchIndex {
+
+    private static final int GRAM_LENGTH = 3;
+    private static final int MIN_REBUILD_POSTINGS = 1 << 16;
+
+    private static final class Postings {
+        private int[] ids = new int[4];
+        private int size;
+
+        /**
+         * Appends the id unless it was the last one appended, as for a trigram repeated in the same text.
+         */
+        private boolean add(int id) {
+            if (size > 0 && ids[size - 1] == id) {
+                return false;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+            return true;
+        }
+    }
+
+    /**
+     * Open addressing from packed trigrams to their postings, to keep the trigrams unboxed.
+     */
+    private static final class GramTable {
+        private long[] grams = new long[1024];
+        private Postings[] postings = new Postings[1024];
+        private int size;
+
+        private Postings get(long gram) {
+            int mask = grams.length - 1;
+            for (int slot = slot(gram, mask); postings[slot] != null; slot = (slot + 1) & mask) {
+                if (grams[slot] == gram) {
+                    return postings[slot];
+                }
+            }
+            return null;
+        }
+
+        private Postings getOrCreate(long gram) {
+            int mask = grams.length - 1;
+            int slot = slot(gram, mask);
+            for (; postings[slot] != null; slot = (slot + 1) & mask) {
+                if (grams[slot] == gram) {
+                    return postings[slot];
+                }
+            }
+            if (2 * (size + 1) > grams.length) {
+                grow();
+                return getOrCreate(gram);
+            }
+            size++;
+            grams[slot] = gram;
+            return postings[slot] = new Postings();
+        }
+
+        private void grow() {
+            long[] oldGrams = grams;
+            Postings[] oldPostings = postings;
+            grams = new long[oldGrams.length * 2];
+            postings = new Postings[oldPostings.length * 2];
+            int mask = grams.length - 1;
+            for (int i = 0; i < oldGrams.length; i++) {
+                if (oldPostings[i] != null) {
+                    int slot = slot(oldGrams[i], mask);
+                    while (postings[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    grams[slot] = oldGrams[i];
+                    postings[slot] = oldPostings[i];
+                }
+            }
+        }
+
+        private void clear() {
+            Arrays.fill(postings, null);
+            size = 0;
+        }
+
+        private static int slot(long gram, int mask) {
+            long hash = gram * 0x9E3779B97F4A7C15L;
+            return (int) (hash >>> 32) & mask;
+        }
+    }
+
+    private record Entry(int id, ChangeListener<String> listener) {
+    }
+
+    private final ObservableList<PairItem> pairs;
+    private final Map<PairItem, Entry> entries = new HashMap<>();
+    private final ListChangeListener<PairItem> listListener = this::onPairsChanged;
+
+    // guarded by this
+    private PairItem[] items = new PairItem[16];
+    private String[] texts = new String[16];
+    private int idLimit;
+    private final Deque<Integer> freeIds = new ArrayDeque<>();
+    private final GramTable postings = new GramTable();
+    private long postingCount;
+    private long liveGrams;
+
+    PairSearchIndex(ObservableList<PairItem> pairs) {
+        this.pairs = pairs;
+        pairs.forEach(this::track);
+        pairs.addListener(listListener);
+    }
+
+    /**
+     * The pairs whose key or value contains the query, ignoring case and surrounding whitespace.
+     */
+    public Set<PairItem> search(String query) {
+        String needle = query.strip().toLowerCase(Locale.ROOT);
+        Set<PairItem> matches = new HashSet<>();
+        synchronized (this) {
+            if (needle.length() < GRAM_LENGTH) {
+                for (int id = 0; id < idLimit; id++) {
+                    if (texts[id] != null && texts[id].contains(needle)) {
+                        matches.add(items[id]);
+                    }
+                }
+                return matches;
+            }
+
+            Postings rarest = null;
+            for (int i = 0; i + GRAM_LENGTH <= needle.length(); i++) {
+                Postings candidates = postings.get(gram(needle, i));
+                if (candidates == null) {
+                    return matches;
+                }
+                if (rarest == null || candidates.size < rarest.size) {
+                    rarest = candidates;
+                }
+            }
+            for (int i = 0; i < rarest.size; i++) {
+                int id = rarest.ids[i];
+                if (texts[id] != null && texts[id].contains(needle)) {
+                    matches.add(items[id]);
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Stops following the list and its pairs.
+     */
+    public void dispose() {
+        pairs.removeListener(listListener);
+        for (PairItem item : List.copyOf(entries.keySet())) {
+            untrack(item);
+        }
+    }
+
+    private void onPairsChanged(ListChangeListener.Change<? extends PairItem> change) {
+        while (change.next()) {
+            if (change.wasPermutated()) {
+                continue;
+            }
+            change.getRemoved().forEach(this::untrack);
+            change.getAddedSubList().forEach(this::track);
+        }
+    }
+
+    private void track(PairItem item) {
+        int id;
+        synchronized (this) {
+            id = freeIds.isEmpty() ? idLimit++ : freeIds.pop();
+            if (id == items.length) {
+                items = Arrays.copyOf(items, id * 2);
+                texts = Arrays.copyOf(texts, id * 2);
+            }
+            items[id] = item;
+            update(id, textOf(item));
+        }
+
+        ChangeListener<String> listener = (obs, oldText, text) -> {
+            synchronized (this) {
+                update(id, textOf(item));
+            }
+        };
+        item.keyProperty().addListener(listener);
+        item.valueProperty().addListener(listener);
+        entries.put(item, new Entry(id, listener));
+    }
+
+    private void untrack(PairItem item) {
+        Entry entry = entries.remove(item);
+        if (entry == null) {
+            return;
+        }
+        item.keyProperty().removeListener(entry.listener());
+        item.valueProperty().removeListener(entry.listener());
+        synchronized (this) {
+            liveGrams -= gramCount(texts[entry.id()]);
+            items[entry.id()] = null;
+            texts[entry.id()] = null;
+            freeIds.push(entry.id());
+        }
+    }
+
+    private void update(int id, String text) {
+        addPostings(id, text);
+        liveGrams += gramCount(text) - gramCount(texts[id]);
+        texts[id] = text;
+
+        if (postingCount > Math.max(2 * liveGrams, MIN_REBUILD_POSTINGS)) {
+            postings.clear();
+            postingCount = 0;
+            for (int i = 0; i < idLimit; i++) {
+                if (texts[i] != null) {
+                    addPostings(i, texts[i]);
+                }
+            }
+        }
+    }
+
+    private void addPostings(int id, String text) {
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            if (postings.getOrCreate(gram(text, i)).add(id)) {
+                postingCount++;
+            }
+        }
+    }
+
+    private static String textOf(PairItem item) {
+        String key = item.getKey() == null ? "" : item.getKey();
+        String value = item.getValue() == null ? "" : item.getValue();
+        return (key + '\n' + value).toLowerCase(Locale.ROOT);
+    }
+
+    private static int gramCount(String text) {
+        return text == null ? 0 : Math.max(0, text.length() - GRAM_LENGTH + 1);
+    }
+
+    private static long gram(String text, int start) {
+        return (long) text.charAt(start) << 32 | (long) text.charAt(start + 1) << 16 | text.charAt(start + 2);
+    }
+}
@@ -0,0 +1,37 @@
+package com.plociennik.copypasteanonymizer.services;
+
+import com.plociennik.copypasteanonymizer.model.PairItem;
+import javafx.collections.ObservableList;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Searches pair lists off the FX thread. Queries run one at a time on the "PairSearch" thread, so a slow short query
+ * never races a later one.
+ */
+public class PairSearchService {
+
+    private final ExecutorService searcher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "PairSearch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Starts indexing the pairs, and every later edit of them, for {@link #search(PairSearchIndex, String)}.
+     */
+    public PairSearchIndex watch(ObservableList<PairItem> pairs) {
+        return new PairSearchIndex(pairs);
+    }
+
+    public CompletableFuture<Set<PairItem>> search(PairSearchIndex index, String query) {
+        return CompletableFuture.supplyAsync(() -> index.search(query), searcher);
+    }
+
+    public void shutdown() {
+        searcher.shutdownNow();
+    }
+}
@@ -0,0 +1,253 @@
+package com.plociennik.copypasteanonymizer.services;
+
+import com.plociennik.copypasteanonymizer.matcher.PatternRule;
+import com.plociennik.copypasteanonymizer.model.PairIssue;
+import com.plociennik.copypasteanonymizer.model.PairItem;
+import javafx.beans.value.ChangeListener;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Validates a list of pairs as it is edited. Every trimmed key and value is kept in a multiset that maps the text to
+ * the fields it occurs in, so an edit only updates the two entries of the old and the new text and revalidates the
+ * pairs that share them. The invalid pairs are kept in a set, which makes {@link #hasErrors()} constant time.
+ * <p>
+ * Inserting or removing a pair anywhere but at the end renumbers the pairs after it, and revalidates the invalid ones
+ * since their messages refer to pair numbers. Must be used on the thread that edits the list.
+ */
+public final class PairValidationIndex {
+
+    private static final Comparator<Field> POSITION = Comparator.<Field>comparingInt(field -> field.tracked.index)
+            .thenComparing(field -> !field.left);
+
+    private static final class Tracked {
+        private final PairItem item;
+        private final Field key = new Field(this, true);
+        private final Field value = new Field(this, false);
+        private ChangeListener<String> keyListener;
+        private ChangeListener<String> valueListener;
+        private int index;
+        private String patternError;
+
+        private Tracked(PairItem item) {
+            this.item = item;
+        }
+    }
+
+    private static final class Field {
+        private final Tracked tracked;
+        private final boolean left;
+        private String text = "";
+
+        private Field(Tracked tracked, boolean left) {
+            this.tracked = tracked;
+            this.left = left;
+        }
+
+        private String location() {
+            return "Pair " + (tracked.index + 1) + (left ? " (left)" : " (right)");
+        }
+    }
+
+    private final ObservableList<PairItem> pairs;
+    private final PairValidationService pairValidationService;
+    private final Map<PairItem, Tracked> tracked = new HashMap<>();
+    private final Map<String, Set<Field>> occurrences = new HashMap<>();
+    private final Set<Tracked> invalid = new HashSet<>();
+    private final ListChangeListener<PairItem> listListener = this::onPairsChanged;
+
+    PairValidationIndex(ObservableList<PairItem> pairs, PairValidationService pairValidationService) {
+        this.pairs = pairs;
+        this.pairValidationService = pairValidationService;
+        Set<Tracked> entries = new LinkedHashSet<>();
+        for (int i = 0; i < pairs.size(); i++) {
+            Tracked entry = track(pairs.get(i), entries);
+            entry.index = i;
+            entries.add(entry);
+        }
+        entries.forEach(this::revalidate);
+        pairs.addListener(listListener);
+    }
+
+    public boolean hasErrors() {
+        return !invalid.isEmpty();
+    }
+
+    /**
+     * The invalid pair with the lowest position, or {@code null} if all pairs are valid.
+     */
+    public PairItem firstInvalid() {
+        return invalid.stream()
+                .min(Comparator.comparingInt(entry -> entry.index))
+                .map(entry -> entry.item)
+                .orElse(null);
+    }
+
+    /**
+     * Stops following the list and its pairs.
+     */
+    public void dispose() {
+        pairs.removeListener(listListener);
+        for (Tracked entry : List.copyOf(tracked.values())) {
+            untrack(entry.item, new HashSet<>());
+        }
+    }
+
+    private void onPairsChanged(ListChangeListener.Change<? extends PairItem> change) {
+        Set<Tracked> affected = new LinkedHashSet<>();
+        int renumberFrom = pairs.size();
+        boolean shifted = false;
+        while (change.next()) {
+            if (change.wasPermutated()) {
+                renumberFrom = Math.min(renumberFrom, change.getFrom());
+                shifted = true;
+                continue;
+            }
+            for (PairItem item : change.getRemoved()) {
+                untrack(item, affected);
+            }
+            for (PairItem item : change.getAddedSubList()) {
+                affected.add(track(item, affected));
+            }
+            renumberFrom = Math.min(renumberFrom, change.getFrom());
+            shifted |= change.getFrom() + change.getAddedSize() < pairs.size() || change.wasRemoved();
+        }
+
+        for (int i = renumberFrom; i < pairs.size(); i++) {
+            tracked.get(pairs.get(i)).index = i;
+        }
+        if (shifted) {
+            affected.addAll(invalid);
+        }
+        for (Tracked entry : affected) {
+            if (tracked.get(entry.item) == entry) {
+                revalidate(entry);
+            }
+        }
+    }
+
+    private Tracked track(PairItem item, Set<Tracked> affected) {
+        Tracked entry = new Tracked(item);
+        tracked.put(item, entry);
+        entry.keyListener = (obs, oldText, text) -> onFieldChanged(entry.key, text);
+        entry.valueListener = (obs, oldText, text) -> onFieldChanged(entry.value, text);
+        item.keyProperty().addListener(entry.keyListener);
+        item.valueProperty().addListener(entry.valueListener);
+
+        entry.key.text = trim(item.getKey());
+        entry.value.text = trim(item.getValue());
+        add(entry.key, affected);
+        add(entry.value, affected);
+        updatePatternError(entry);
+        return entry;
+    }
+
+    private void untrack(PairItem item, Set<Tracked> affected) {
+        Tracked entry = tracked.remove(item);
+        if (entry == null) {
+            return;
+        }
+        item.keyProperty().removeListener(entry.keyListener);
+        item.valueProperty().removeListener(entry.valueListener);
+        remove(entry.key, affected);
+        remove(entry.value, affected);
+        invalid.remove(entry);
+        item.setIssue(null);
+    }
+
+    private void onFieldChanged(Field field, String newText) {
+        String text = trim(newText);
+        if (text.equals(field.text)) {
+            return;
+        }
+        Set<Tracked> affected = new LinkedHashSet<>();
+        affected.add(field.tracked);
+        remove(field, affected);
+        field.text = text;
+        add(field, affected);
+        updatePatternError(field.tracked);
+        affected.forEach(this::revalidate);
+    }
+
+    private void add(Field field, Set<Tracked> affected) {
+        if (field.text.isEmpty()) {
+            return;
+        }
+        Set<Field> fields = occurrences.computeIfAbsent(field.text, text -> new LinkedHashSet<>());
+        fields.forEach(other -> affected.add(other.tracked));
+        fields.add(field);
+    }
+
+    private void remove(Field field, Set<Tracked> affected) {
+        if (field.text.isEmpty()) {
+            return;
+        }
+        Set<Field> fields = occurrences.get(field.text);
+        fields.remove(field);
+        if (fields.isEmpty()) {
+            occurrences.remove(field.text);
+        } else {
+            fields.forEach(other -> affected.add(other.tracked));
+        }
+    }
+
+    private void updatePatternError(Tracked entry) {
+        String key = entry.key.text;
+        entry.patternError = PatternRule.isPatternKey(key) ? pairValidationService.patternError(key, entry.value.text) : null;
+    }
+
+    private void revalidate(Tracked entry) {
+        String key = entry.key.text;
+        String value = entry.value.text;
+
+        PairIssue issue = null;
+        if (StringUtils.isBlank(key) || StringUtils.isBlank(value)) {
+            issue = new PairIssue("Both fields must be filled.", key.isEmpty(), value.isEmpty());
+        } else if (entry.patternError != null) {
+            issue = new PairIssue(entry.patternError, true, false);
+        } else {
+            boolean keyDuplicate = occurrences.get(key).size() > 1;
+            boolean valueDuplicate = occurrences.get(value).size() > 1;
+
+            if (keyDuplicate && valueDuplicate) {
+                issue = new PairIssue("Both values are already used elsewhere", true, true);
+            } else if (keyDuplicate) {
+                issue = new PairIssue("Left value '" + key + "' is already used in: " + otherLocations(entry.key), true, false);
+            } else if (valueDuplicate) {
+                issue = new PairIssue("Right value '" + value + "' is already used in: " + otherLocations(entry.value), false, true);
+            }
+        }
+
+        if (issue == null) {
+            invalid.remove(entry);
+        } else {
+            invalid.add(entry);
+        }
+        if (!Objects.equals(entry.item.getIssue(), issue)) {
+            entry.item.setIssue(issue);
+        }
+    }
+
+    private String otherLocations(Field field) {
+        return occurrences.get(field.text).stream()
+                .filter(other -> other != field)
+                .sorted(POSITION)
+                .map(Field::location)
+                .collect(Collectors.joining(", "));
+    }
+
+    private static String trim(String text) {
+        return text == null ? "" : text.trim();
+    }
+}
@@ -0,0 +1,379 @@
+package com.plociennik.copypasteanonymizer.services;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * AES-256-GCM encryption of the pairs files under a key derived from a password, little-endian:
+ * <pre>
+ * key header   KDF id, iterations, KDF salt, key check, file salt
+ * dictionary   magic "CPAE", format version, key header, chunks of at most {@value #CHUNK_SIZE} bytes, each with its tag
+ * </pre>
+ * The password is stretched with PBKDF2-HMAC-SHA256 once per session into a master key that is kept in a direct
+ * buffer and zeroed by {@link #close()}. Every file is encrypted under its own key, derived from the master key and a
+ * random file salt with a single HMAC, so saves and compactions never repeat the expensive derivation. Each chunk is
+ * authenticated on its own as the file is read, and the last one is marked so that truncation is detected.
+ */
+public final class PairsCipher implements AutoCloseable {
+
+    static final int MAGIC = 0x45415043;
+    static final short FORMAT_VERSION = 1;
+
+    public static final int DEFAULT_ITERATIONS = 600_000;
+
+    static final int KEY_HEADER_SIZE = 56;
+    static final int SEAL_OVERHEAD = 12 + 16;
+
+    private static final int HEADER_SIZE = 8 + KEY_HEADER_SIZE;
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int NONCE_SIZE = 12;
+    private static final int TAG_SIZE = 16;
+    private static final int SALT_SIZE = 16;
+    private static final int KEY_SIZE = 32;
+    private static final byte KDF_PBKDF2_HMAC_SHA256 = 1;
+    private static final int MIN_ITERATIONS = 1_000;
+    private static final int MAX_ITERATIONS = 100_000_000;
+
+    private static final byte[] KEY_CHECK_LABEL = "copy-paste-anonymizer key check".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FILE_KEY_LABEL = "copy-paste-anonymizer file key".getBytes(StandardCharsets.US_ASCII);
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final ByteBuffer masterKey = ByteBuffer.allocateDirect(KEY_SIZE);
+    private final int iterations;
+    private final byte[] kdfSalt;
+    private final byte[] keyCheck;
+    private boolean closed;
+
+    private PairsCipher(char[] password, int iterations, byte[] kdfSalt) {
+        this.iterations = iterations;
+        this.kdfSalt = kdfSalt;
+
+        PBEKeySpec spec = new PBEKeySpec(password, kdfSalt, iterations, KEY_SIZE * 8);
+        byte[] key = null;
+        try {
+            key = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+            masterKey.put(0, key);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2 is not available.", e);
+        } finally {
+            spec.clearPassword();
+            if (key != null) {
+                Arrays.fill(key, (byte) 0);
+            }
+        }
+        this.keyCheck = Arrays.copyOf(hmac(KEY_CHECK_LABEL, new byte[0]), SALT_SIZE);
+    }
+
+    /**
+     * Derives a new key with a fresh salt. The caller still owns the password and should clear it.
+     */
+    public static PairsCipher create(char[] password) {
+        return create(password, DEFAULT_ITERATIONS);
+    }
+
+    public static PairsCipher create(char[] password, int iterations) {
+        if (iterations < MIN_ITERATIONS || iterations > MAX_ITERATIONS) {
+            throw new IllegalArgumentException("Unsupported iteration count: " + iterations);
+        }
+        return new PairsCipher(password, iterations, randomBytes(SALT_SIZE));
+    }
+
+    /**
+     * Derives the key an encrypted dictionary was written with. Returns {@code null} if the password is wrong.
+     */
+    public static PairsCipher unlock(char[] password, Path path) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel channel = FileChannel.open(path)) {
+            readFully(channel, header, 0);
+        }
+        KeyHeader keyHeader = readHeader(header.flip());
+
+        PairsCipher cipher = new PairsCipher(password, keyHeader.iterations(), keyHeader.kdfSalt());
+        if (!MessageDigest.isEqual(cipher.keyCheck, keyHeader.keyCheck())) {
+            cipher.close();
+            return null;
+        }
+        return cipher;
+    }
+
+    public static boolean isEncrypted(Path path) throws IOException {
+        if (!Files.exists(path) || Files.size(path) < 4) {
+            return false;
+        }
+        ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel channel = FileChannel.open(path)) {
+            readFully(channel, magic, 0);
+        }
+        return magic.getInt(0) == MAGIC;
+    }
+
+    /**
+     * Encrypts a whole file under a new file key.
+     */
+    public ByteBuffer encrypt(ByteBuffer plaintext) {
+        byte[] fileSalt = randomBytes(SALT_SIZE);
+        int chunks = Math.max(1, (plaintext.remaining() + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        ByteBuffer out = ByteBuffer.allocate(Math.toIntExact(HEADER_SIZE + (long) plaintext.remaining() + (long) chunks * TAG_SIZE))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(MAGIC).putShort(FORMAT_VERSION).putShort((short) 0);
+        writeKeyHeader(out, fileSalt);
+        byte[] header = Arrays.copyOf(out.array(), HEADER_SIZE);
+
+        try {
+            SecretKeySpec key = fileKey(fileSalt);
+            Cipher gcm = Cipher.getInstance("AES/GCM/NoPadding");
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                int size = Math.min(CHUNK_SIZE, plaintext.remaining());
+                gcm.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_SIZE * 8, chunkNonce(chunk)));
+                gcm.updateAAD(header);
+                gcm.updateAAD(chunkAad(chunk, chunk == chunks - 1));
+                gcm.doFinal(plaintext.slice(plaintext.position(), size), out);
+                plaintext.position(plaintext.position() + size);
+            }
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES-GCM is not available.", e);
+        }
+        return out.flip();
+    }
+
+    /**
+     * Reads and decrypts a file chunk by chunk, throwing {@link IllegalArgumentException} when it was not written with
+     * this key or fails authentication.
+     */
+    public ByteBuffer decrypt(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, header, 0);
+        KeyHeader keyHeader = readHeader(header.flip());
+        if (!isKeyOf(keyHeader)) {
+            throw new IllegalArgumentException("The file was encrypted with a different password.");
+        }
+
+        long body = channel.size() - HEADER_SIZE;
+        long chunks = (body + CHUNK_SIZE + TAG_SIZE - 1) / (CHUNK_SIZE + TAG_SIZE);
+        long plaintextSize = body - chunks * TAG_SIZE;
+        if (chunks == 0 || plaintextSize < 0 || plaintextSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The encrypted file is truncated.");
+        }
+
+        ByteBuffer plaintext = ByteBuffer.allocate((int) plaintextSize);
+        ByteBuffer chunkBuffer = ByteBuffer.allocate(CHUNK_SIZE + TAG_SIZE);
+        try {
+            SecretKeySpec key = fileKey(keyHeader.fileSalt());
+            Cipher gcm = Cipher.getInstance("AES/GCM/NoPadding");
+            long position = HEADER_SIZE;
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                chunkBuffer.clear().limit((int) Math.min(CHUNK_SIZE + TAG_SIZE, channel.size() - position));
+                readFully(channel, chunkBuffer, position);
+                position += chunkBuffer.flip().remaining();
+
+                gcm.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_SIZE * 8, chunkNonce(chunk)));
+                gcm.updateAAD(header.array());
+                gcm.updateAAD(chunkAad(chunk, chunk == chunks - 1));
+                try {
+                    gcm.doFinal(chunkBuffer, plaintext);
+                } catch (AEADBadTagException e) {
+                    throw new IllegalArgumentException("Chunk %d of the encrypted file failed authentication.".formatted(chunk));
+                }
+            }
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES-GCM is not available.", e);
+        }
+        return plaintext.flip();
+    }
+
+    /**
+     * A sealer for a new journal, under a new file key.
+     */
+    Sealer newSealer(int context) {
+        byte[] fileSalt = randomBytes(SALT_SIZE);
+        ByteBuffer keyHeader = ByteBuffer.allocate(KEY_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        writeKeyHeader(keyHeader, fileSalt);
+        return new Sealer(fileKey(fileSalt), keyHeader.array(), context);
+    }
+
+    /**
+     * The sealer of an existing journal, or {@code null} if the key header belongs to a different key.
+     */
+    Sealer sealer(ByteBuffer keyHeader, int context) {
+        byte[] bytes = new byte[KEY_HEADER_SIZE];
+        keyHeader.get(bytes);
+        KeyHeader parsed = readKeyHeader(ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN));
+        return isKeyOf(parsed) ? new Sealer(fileKey(parsed.fileSalt()), bytes, context) : null;
+    }
+
+    @Override
+    public synchronized void close() {
+        masterKey.put(0, new byte[KEY_SIZE]);
+        closed = true;
+    }
+
+    private boolean isKeyOf(KeyHeader keyHeader) {
+        return keyHeader.iterations() == iterations
+                && Arrays.equals(keyHeader.kdfSalt(), kdfSalt)
+                && MessageDigest.isEqual(keyHeader.keyCheck(), keyCheck);
+    }
+
+    private void writeKeyHeader(ByteBuffer buffer, byte[] fileSalt) {
+        buffer.put(KDF_PBKDF2_HMAC_SHA256).put(new byte[3]).putInt(iterations).put(kdfSalt).put(keyCheck).put(fileSalt);
+    }
+
+    private SecretKeySpec fileKey(byte[] fileSalt) {
+        byte[] key = hmac(FILE_KEY_LABEL, fileSalt);
+        try {
+            return new SecretKeySpec(key, "AES");
+        } finally {
+            Arrays.fill(key, (byte) 0);
+        }
+    }
+
+    private synchronized byte[] hmac(byte[] label, byte[] data) {
+        if (closed) {
+            throw new IllegalStateException("The cipher has been closed.");
+        }
+        byte[] key = new byte[KEY_SIZE];
+        masterKey.get(0, key);
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            mac.update(label);
+            return mac.doFinal(data);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is not available.", e);
+        } finally {
+            Arrays.fill(key, (byte) 0);
+        }
+    }
+
+    private static KeyHeader readHeader(ByteBuffer header) {
+        if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not an encrypted pairs file.");
+        }
+        short version = header.getShort();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported encryption format version " + version + ".");
+        }
+        header.getShort();
+        return readKeyHeader(header);
+    }
+
+    private static KeyHeader readKeyHeader(ByteBuffer buffer) {
+        byte kdf = buffer.get();
+        buffer.position(buffer.position() + 3);
+        int iterations = buffer.getInt();
+        if (kdf != KDF_PBKDF2_HMAC_SHA256 || iterations < MIN_ITERATIONS || iterations > MAX_ITERATIONS) {
+            throw new IllegalArgumentException("Unsupported key derivation.");
+        }
+        byte[] kdfSalt = new byte[SALT_SIZE];
+        byte[] keyCheck = new byte[SALT_SIZE];
+        byte[] fileSalt = new byte[SALT_SIZE];
+        buffer.get(kdfSalt).get(keyCheck).get(fileSalt);
+        return new KeyHeader(iterations, kdfSalt, keyCheck, fileSalt);
+    }
+
+    private static byte[] chunkNonce(long chunk) {
+        return ByteBuffer.allocate(NONCE_SIZE).putLong(NONCE_SIZE - 8, chunk).array();
+    }
+
+    private static byte[] chunkAad(long chunk, boolean last) {
+        return ByteBuffer.allocate(9).putLong(chunk).put((byte) (last ? 1 : 0)).array();
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        RANDOM.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("The encrypted file is truncated.");
+            }
+        }
+    }
+
+    private record KeyHeader(int iterations, byte[] kdfSalt, byte[] keyCheck, byte[] fileSalt) {
+    }
+
+    /**
+     * Seals journal records under one file key. Each record gets a random nonce and is bound to its index and the
+     * journal's snapshot id, so records cannot be reordered or moved to another journal.
+     */
+    static final class Sealer {
+
+        private final SecretKeySpec key;
+        private final byte[] keyHeader;
+        private final int context;
+
+        private Sealer(SecretKeySpec key, byte[] keyHeader, int context) {
+            this.key = key;
+            this.keyHeader = keyHeader;
+            this.context = context;
+        }
+
+        void writeKeyHeader(ByteBuffer buffer) {
+            buffer.put(keyHeader);
+        }
+
+        /**
+         * Writes the nonce and the ciphertext of the plaintext to {@code out}, {@value PairsCipher#SEAL_OVERHEAD} bytes more than
+         * the plaintext.
+         */
+        void seal(ByteBuffer plaintext, long index, ByteBuffer out) {
+            byte[] nonce = randomBytes(NONCE_SIZE);
+            try {
+                Cipher gcm = Cipher.getInstance("AES/GCM/NoPadding");
+                gcm.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_SIZE * 8, nonce));
+                gcm.updateAAD(recordAad(index));
+                out.put(nonce);
+                gcm.doFinal(plaintext, out);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("AES-GCM is not available.", e);
+            }
+        }
+
+        /**
+         * The plaintext of a sealed record, or {@code null} if it fails authentication.
+         */
+        ByteBuffer open(ByteBuffer sealed, long index) {
+            if (sealed.remaining() < SEAL_OVERHEAD) {
+                return null;
+            }
+            byte[] nonce = new byte[NONCE_SIZE];
+            sealed.get(nonce);
+            ByteBuffer plaintext = ByteBuffer.allocate(sealed.remaining() - TAG_SIZE);
+            try {
+                Cipher gcm = Cipher.getInstance("AES/GCM/NoPadding");
+                gcm.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_SIZE * 8, nonce));
+                gcm.updateAAD(recordAad(index));
+                gcm.doFinal(sealed, plaintext);
+            } catch (AEADBadTagException e) {
+                return null;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("AES-GCM is not available.", e);
+            }
+            return plaintext.flip();
+        }
+
+        private byte[] recordAad(long index) {
+            return ByteBuffer.allocate(12).putInt(context).putLong(index).array();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.plociennik.copypasteanonymizer.services;
+
+import com.plociennik.copypasteanonymizer.matcher.ReplacementAutomaton;
+import javafx.util.Pair;
+
+import java.util.List;
+
+/**
+ * Pairs as loaded from a file, with the automaton precompiled from them or {@code null} when the file has none. The
+ * snapshot id identifies the dictionary file that was read and is {@code 0} for text files.
+ */
+public record PairsDictionary(List<Pair<String, String>> pairs, ReplacementAutomaton automaton, int snapshotId) {
+
+    public static final PairsDictionary EMPTY = new PairsDictionary(List.of(), null, 0);
+}
@@ -0,0 +1,143 @@
+package com.plociennik.copypasteanonymizer.services;
+
+import com.plociennik.copypasteanonymizer.common.CopyPasteAnonymizerException;
+import com.plociennik.copypasteanonymizer.jfr.PairsFileEvent;
+import com.plociennik.copypasteanonymizer.matcher.CompiledRuleSet;
+import com.plociennik.copypasteanonymizer.matcher.ReplacementAutomaton;
+import com.plociennik.copypasteanonymizer.util.AtomicFileUtil;
+import javafx.util.Pair;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Logger;
+
+/**
+ * Loads and saves pairs as a binary {@link DictionaryFormat dictionary}, which also carries the compiled matcher so
+ * that startup does not have to parse or compile anything. Plain {@code key = value} text files can still be loaded
+ * and are imported into a dictionary once. A dictionary can be encrypted with a {@link PairsCipher}.
+ */
+public class PairsFileService {
+
+    private static final Logger LOG = Logger.getLogger(PairsFileService.class.getName());
+
+    public static final Path DEFAULT_PATH = Path.of("pairs.cpad");
+    public static final Path LEGACY_TEXT_PATH = Path.of("pairs.txt");
+
+    public PairsDictionary load(Path path) {
+        return load(path, null);
+    }
+
+    /**
+     * Loads a dictionary or a text file, telling them apart by content. An encrypted dictionary is decrypted with the
+     * cipher as it is read.
+     */
+    public PairsDictionary load(Path path, PairsCipher cipher) {
+        if (!Files.exists(path)) {
+            return PairsDictionary.EMPTY;
+        }
+
+        PairsFileEvent event = new PairsFileEvent();
+        event.begin();
+
+        ByteBuffer content;
+        try {
+            if (PairsCipher.isEncrypted(path)) {
+                if (cipher == null) {
+                    throw new CopyPasteAnonymizerException("1901_18102026", "The pairs dictionary '%s' is encrypted and no password was given.".formatted(path));
+                }
+                try (FileChannel channel = FileChannel.open(path)) {
+                    content = cipher.decrypt(channel);
+                }
+            } else {
+                content = ByteBuffer.wrap(Files.readAllBytes(path));
+            }
+        } catch (IOException e) {
+            throw new CopyPasteAnonymizerException("1135_13072026", "Something happened when trying to load existing pairs:", e);
+        } catch (IllegalArgumentException e) {
+            throw new CopyPasteAnonymizerException("1902_18102026", "The pairs dictionary '%s' cannot be decrypted:".formatted(path), e);
+        }
+
+        PairsDictionary dictionary;
+        if (DictionaryFormat.isDictionary(content)) {
+            try {
+                dictionary = DictionaryFormat.read(content);
+            } catch (IllegalArgumentException e) {
+                throw new CopyPasteAnonymizerException("1701_18102026", "The pairs dictionary '%s' cannot be read:".formatted(path), e);
+            }
+        } else {
+            dictionary = new PairsDictionary(parseText(StandardCharsets.UTF_8.decode(content).toString()), null, 0);
+        }
+
+        commit(event, "load", path, dictionary.pairs().size());
+        return dictionary;
+    }
+
+    /**
+     * Loads the dictionary, first importing the text file into it when only the text file exists. The text file is
+     * left in place.
+     */
+    public PairsDictionary loadOrImport(Path path, Path textPath, PairsCipher cipher) {
+        if (Files.exists(path) || !Files.exists(textPath)) {
+            return load(path, cipher);
+        }
+
+        PairsDictionary imported = load(textPath);
+        ReplacementAutomaton automaton = CompiledRuleSet.compile(0, imported.pairs()).automaton();
+        int snapshotId;
+        try {
+            snapshotId = save(path, imported.pairs(), automaton, cipher);
+        } catch (IOException e) {
+            throw new CopyPasteAnonymizerException("1702_18102026", "Something happened when trying to import '%s':".formatted(textPath), e);
+        }
+        LOG.info("(%s) %s".formatted("1703_18102026", "Imported %d pairs from %s into %s".formatted(imported.pairs().size(), textPath, path)));
+        return new PairsDictionary(imported.pairs(), automaton, snapshotId);
+    }
+
+    public int save(Path path, List<Pair<String, String>> pairs, ReplacementAutomaton automaton) throws IOException {
+        return save(path, pairs, automaton, null);
+    }
+
+    /**
+     * Replaces the dictionary atomically and durably, returning the id of the new snapshot. The automaton is stored as
+     * the matcher snapshot if it is not {@code null}; it has to be compiled from exactly these pairs. The dictionary is
+     * encrypted if a cipher is given.
+     */
+    public int save(Path path, List<Pair<String, String>> pairs, ReplacementAutomaton automaton, PairsCipher cipher) throws IOException {
+        PairsFileEvent event = new PairsFileEvent();
+        event.begin();
+
+        int snapshotId = ThreadLocalRandom.current().nextInt(1, Integer.MAX_VALUE);
+        ByteBuffer content = DictionaryFormat.write(pairs, automaton, snapshotId);
+        AtomicFileUtil.write(path, cipher == null ? content : cipher.encrypt(content));
+
+        commit(event, "save", path, pairs.size());
+        return snapshotId;
+    }
+
+    private static List<Pair<String, String>> parseText(String text) {
+        List<Pair<String, String>> pairs = new ArrayList<>();
+        text.lines().forEach(line -> {
+            String[] parts = line.split("=", 2);
+            String key = parts.length > 0 ? parts[0].trim() : "";
+            String value = parts.length > 1 ? parts[1].trim() : "";
+            pairs.add(new Pair<>(key, value));
+        });
+        return pairs;
+    }
+
+    private static void commit(PairsFileEvent event, String operation, Path path, int pairs) {
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.file = String.valueOf(path.getFileName());
+            event.pairs = pairs;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,401 @@
+package com.plociennik.copypasteanonymizer.services;
+
+import com.plociennik.copypasteanonymizer.util.AtomicFileUtil;
+import javafx.util.Pair;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of pair edits on top of one dictionary snapshot, little-endian:
+ * <pre>
+ * header   magic "CPAJ", format version, flags, id of the snapshot the journal extends, key header if encrypted
+ * record   payload length, CRC32C of the payload, payload: type, index and, for ADD and EDIT, key and value
+ * </pre>
+ * Every append is flushed to disk. A torn or corrupted record ends the replay, so a crash loses at most the record
+ * that was being written. A journal whose snapshot id does not match the dictionary was already folded into it. The
+ * journal of an encrypted store seals every payload with a {@link PairsCipher.Sealer}.
+ */
+final class PairsJournal implements Closeable {
+
+    static final int MAGIC = 0x4A415043;
+    static final short FORMAT_VERSION = 1;
+
+    private static final short FLAG_ENCRYPTED = 1;
+    private static final int HEADER_SIZE = 12;
+    private static final int FRAME_HEADER_SIZE = 8;
+    private static final int MAX_DIFF_EDITS = 4096;
+
+    enum ChangeType {
+        ADD, EDIT, REMOVE
+    }
+
+    /**
+     * One edit of the pair list; {@code key} and {@code value} are {@code null} for {@link ChangeType#REMOVE}.
+     */
+    record Change(ChangeType type, int index, String key, String value) {
+    }
+
+    record Replay(List<Pair<String, String>> pairs, long records, long validLength, PairsCipher.Sealer sealer) {
+    }
+
+    private final FileChannel channel;
+    private final PairsCipher.Sealer sealer;
+    private long records;
+
+    private PairsJournal(FileChannel channel, long records, PairsCipher.Sealer sealer) {
+        this.channel = channel;
+        this.records = records;
+        this.sealer = sealer;
+    }
+
+    /**
+     * Starts an empty journal for the snapshot, atomically replacing any previous journal. The records are encrypted
+     * if a cipher is given.
+     */
+    static PairsJournal create(Path path, int snapshotId, PairsCipher cipher) throws IOException {
+        PairsCipher.Sealer sealer = cipher == null ? null : cipher.newSealer(snapshotId);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + (sealer == null ? 0 : PairsCipher.KEY_HEADER_SIZE))
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(MAGIC).putShort(FORMAT_VERSION).putShort(sealer == null ? 0 : FLAG_ENCRYPTED).putInt(snapshotId);
+        if (sealer != null) {
+            sealer.writeKeyHeader(header);
+        }
+        AtomicFileUtil.write(path, header.flip());
+        return open(path, new Replay(List.of(), 0, header.limit(), sealer));
+    }
+
+    /**
+     * Continues a replayed journal, cutting off whatever follows its last valid record.
+     */
+    static PairsJournal open(Path path, Replay replay) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() > replay.validLength()) {
+                channel.truncate(replay.validLength());
+                channel.force(false);
+            }
+            channel.position(replay.validLength());
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new PairsJournal(channel, replay.records(), replay.sealer());
+    }
+
+    /**
+     * Applies the journal to the snapshot's pairs. Returns {@code null} when there is no journal for this snapshot, or
+     * when it is not encrypted with the same key as the snapshot.
+     */
+    static Replay replay(Path path, int snapshotId, List<Pair<String, String>> snapshotPairs, PairsCipher cipher) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getShort() != FORMAT_VERSION) {
+            return null;
+        }
+        boolean encrypted = (buffer.getShort() & FLAG_ENCRYPTED) != 0;
+        if (buffer.getInt() != snapshotId || encrypted != (cipher != null)) {
+            return null;
+        }
+        PairsCipher.Sealer sealer = null;
+        if (encrypted) {
+            if (buffer.remaining() < PairsCipher.KEY_HEADER_SIZE) {
+                return null;
+            }
+            try {
+                sealer = cipher.sealer(buffer, snapshotId);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+            if (sealer == null) {
+                return null;
+            }
+        }
+
+        List<Pair<String, String>> pairs = new ArrayList<>(snapshotPairs);
+        long records = 0;
+        int validLength = buffer.position();
+        while (buffer.remaining() >= FRAME_HEADER_SIZE) {
+            int payloadLength = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (payloadLength <= 0 || payloadLength > buffer.remaining()
+                    || checksum(buffer, buffer.position(), payloadLength) != checksum) {
+                break;
+            }
+            ByteBuffer payload = buffer.slice(buffer.position(), payloadLength);
+            if (sealer != null) {
+                payload = sealer.open(payload, records);
+            }
+            if (payload == null || !apply(payload.order(ByteOrder.LITTLE_ENDIAN), pairs)) {
+                break;
+            }
+            buffer.position(buffer.position() + payloadLength);
+            validLength = buffer.position();
+            records++;
+        }
+        return new Replay(pairs, records, validLength, sealer);
+    }
+
+    long records() {
+        return records;
+    }
+
+    /**
+     * Appends the changes and flushes them to disk. On failure the journal is cut back to its last complete record.
+     */
+    void append(List<Change> changes) throws IOException {
+        int size = 0;
+        for (Change change : changes) {
+            size += FRAME_HEADER_SIZE + payloadSize(change) + (sealer == null ? 0 : PairsCipher.SEAL_OVERHEAD);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        long index = records;
+        for (Change change : changes) {
+            int frameStart = buffer.position();
+            buffer.position(frameStart + FRAME_HEADER_SIZE);
+            if (sealer == null) {
+                putPayload(buffer, change);
+            } else {
+                ByteBuffer plaintext = ByteBuffer.allocate(payloadSize(change)).order(ByteOrder.LITTLE_ENDIAN);
+                putPayload(plaintext, change);
+                sealer.seal(plaintext.flip(), index, buffer);
+            }
+            index++;
+            int payloadLength = buffer.position() - frameStart - FRAME_HEADER_SIZE;
+            buffer.putInt(frameStart, payloadLength);
+            buffer.putInt(frameStart + 4, checksum(buffer, frameStart + FRAME_HEADER_SIZE, payloadLength));
+        }
+        buffer.flip();
+
+        long validLength = channel.position();
+        try {
+            AtomicFileUtil.writeFully(channel, buffer);
+            channel.force(false);
+        } catch (IOException e) {
+            try {
+                channel.truncate(validLength);
+                channel.position(validLength);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+        records += changes.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Edits that turn {@code before} into {@code after}, each index referring to the list as left by the previous
+     * edits. The script is minimal for up to {@value #MAX_DIFF_EDITS} insertions and deletions; beyond that the
+     * differing range is rewritten position by position.
+     */
+    static List<Change> diff(List<Pair<String, String>> before, List<Pair<String, String>> after) {
+        int prefix = 0;
+        int shorter = Math.min(before.size(), after.size());
+        while (prefix < shorter && same(before.get(prefix), after.get(prefix))) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < shorter - prefix
+                && same(before.get(before.size() - 1 - suffix), after.get(after.size() - 1 - suffix))) {
+            suffix++;
+        }
+
+        List<Pair<String, String>> removed = before.subList(prefix, before.size() - suffix);
+        List<Pair<String, String>> added = after.subList(prefix, after.size() - suffix);
+        if (removed.isEmpty() && added.isEmpty()) {
+            return List.of();
+        }
+
+        List<Change> changes = shortestEditScript(removed, added, prefix);
+        return changes != null ? changes : positionalEdits(removed, added, prefix);
+    }
+
+    /**
+     * Myers' O((N+M)D) difference algorithm, with adjacent REMOVE and ADD at the same index merged into an EDIT.
+     * Returns {@code null} when more than {@value #MAX_DIFF_EDITS} insertions and deletions are needed.
+     */
+    private static List<Change> shortestEditScript(List<Pair<String, String>> a, List<Pair<String, String>> b, int offset) {
+        int n = a.size();
+        int m = b.size();
+        int limit = Math.min(n + m, MAX_DIFF_EDITS);
+        List<int[]> trace = new ArrayList<>();
+
+        int[] previous = {0};
+        for (int d = 0; d <= limit; d++) {
+            int[] furthest = new int[2 * d + 1];
+            for (int k = -d; k <= d; k += 2) {
+                int x;
+                if (d == 0) {
+                    x = 0;
+                } else if (k == -d || (k != d && previous[k - 1 + d - 1] < previous[k + 1 + d - 1])) {
+                    x = previous[k + 1 + d - 1];
+                } else {
+                    x = previous[k - 1 + d - 1] + 1;
+                }
+                int y = x - k;
+                while (x < n && y < m && same(a.get(x), b.get(y))) {
+                    x++;
+                    y++;
+                }
+                furthest[k + d] = x;
+                if (x >= n && y >= m) {
+                    trace.add(furthest);
+                    return backtrack(trace, a, b, offset);
+                }
+            }
+            trace.add(furthest);
+            previous = furthest;
+        }
+        return null;
+    }
+
+    private static List<Change> backtrack(List<int[]> trace, List<Pair<String, String>> a, List<Pair<String, String>> b, int offset) {
+        List<Change> reversed = new ArrayList<>();
+        int x = a.size();
+        int y = b.size();
+        for (int d = trace.size() - 1; d > 0; d--) {
+            int[] previous = trace.get(d - 1);
+            int k = x - y;
+            boolean down = k == -d || (k != d && previous[k - 1 + d - 1] < previous[k + 1 + d - 1]);
+            int previousK = down ? k + 1 : k - 1;
+            int previousX = previous[previousK + d - 1];
+            int previousY = previousX - previousK;
+            reversed.add(down
+                    ? new Change(ChangeType.ADD, offset + previousY, b.get(previousY).getKey(), b.get(previousY).getValue())
+                    : new Change(ChangeType.REMOVE, offset + previousY, null, null));
+            x = previousX;
+            y = previousY;
+        }
+        Collections.reverse(reversed);
+
+        List<Change> changes = new ArrayList<>(reversed.size());
+        for (int i = 0; i < reversed.size(); i++) {
+            Change change = reversed.get(i);
+            Change next = i + 1 < reversed.size() ? reversed.get(i + 1) : null;
+            if (next != null && change.type() == ChangeType.REMOVE && next.type() == ChangeType.ADD
+                    && next.index() == change.index()) {
+                changes.add(new Change(ChangeType.EDIT, change.index(), next.key(), next.value()));
+                i++;
+            } else if (next != null && change.type() == ChangeType.ADD && next.type() == ChangeType.REMOVE
+                    && next.index() == change.index() + 1) {
+                changes.add(new Change(ChangeType.EDIT, change.index(), change.key(), change.value()));
+                i++;
+            } else {
+                changes.add(change);
+            }
+        }
+        return changes;
+    }
+
+    private static List<Change> positionalEdits(List<Pair<String, String>> a, List<Pair<String, String>> b, int offset) {
+        List<Change> changes = new ArrayList<>();
+        int overlap = Math.min(a.size(), b.size());
+        for (int i = 0; i < overlap; i++) {
+            if (!same(a.get(i), b.get(i))) {
+                changes.add(new Change(ChangeType.EDIT, offset + i, b.get(i).getKey(), b.get(i).getValue()));
+            }
+        }
+        for (int i = overlap; i < a.size(); i++) {
+            changes.add(new Change(ChangeType.REMOVE, offset + overlap, null, null));
+        }
+        for (int i = overlap; i < b.size(); i++) {
+            changes.add(new Change(ChangeType.ADD, offset + i, b.get(i).getKey(), b.get(i).getValue()));
+        }
+        return changes;
+    }
+
+    private static boolean apply(ByteBuffer payload, List<Pair<String, String>> pairs) {
+        try {
+            int type = payload.get();
+            int index = payload.getInt();
+            if (type < 0 || type >= ChangeType.values().length) {
+                return false;
+            }
+            switch (ChangeType.values()[type]) {
+                case ADD -> {
+                    if (index < 0 || index > pairs.size()) {
+                        return false;
+                    }
+                    pairs.add(index, new Pair<>(getString(payload), getString(payload)));
+                }
+                case EDIT -> {
+                    if (index < 0 || index >= pairs.size()) {
+                        return false;
+                    }
+                    pairs.set(index, new Pair<>(getString(payload), getString(payload)));
+                }
+                case REMOVE -> {
+                    if (index < 0 || index >= pairs.size()) {
+                        return false;
+                    }
+                    pairs.remove(index);
+                }
+            }
+            return !payload.hasRemaining();
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static void putPayload(ByteBuffer buffer, Change change) {
+        buffer.put((byte) change.type().ordinal()).putInt(change.index());
+        if (change.type() != ChangeType.REMOVE) {
+            putString(buffer, change.key());
+            putString(buffer, change.value());
+        }
+    }
+
+    private static int payloadSize(Change change) {
+        int size = 1 + 4;
+        if (change.type() != ChangeType.REMOVE) {
+            size += 4 + change.key().length() * 2 + 4 + change.value().length() * 2;
+        }
+        return size;
+    }
+
+    private static void putString(ByteBuffer buffer, String string) {
+        buffer.putInt(string.length());
+        buffer.asCharBuffer().put(string);
+        buffer.position(buffer.position() + string.length() * 2);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length * 2L > buffer.remaining()) {
+            throw new IllegalArgumentException("Truncated string.");
+        }
+        char[] chars = new char[length];
+        buffer.asCharBuffer().get(chars);
+        buffer.position(buffer.position() + length * 2);
+        return new String(chars);
+    }
+
+    private static boolean same(Pair<String, String> first, Pair<String, String> second) {
+        return Objects.equals(first.getKey(), second.getKey()) && Objects.equals(first.getValue(), second.getValue());
+    }
+
+    private static int checksum(ByteBuffer buffer, int from, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(from, length));
+        return (int) crc.getValue();
+    }
+}
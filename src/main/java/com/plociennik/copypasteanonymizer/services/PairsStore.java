@@ -0,0 +1,287 @@
+package com.plociennik.copypasteanonymizer.services;
+
+import com.plociennik.copypasteanonymizer.common.CopyPasteAnonymizerException;
+import com.plociennik.copypasteanonymizer.matcher.ReplacementAutomaton;
+import javafx.util.Pair;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Crash-safe persistence of the pairs: a dictionary snapshot plus a {@link PairsJournal} of the edits made since.
+ * <p>
+ * A save appends only the edits since the previous save and flushes them, so it costs O(changes). Once saves have
+ * been quiet for a while, the journal is compacted on a background thread into a new snapshot that also carries the
+ * compiled matcher. All file access happens on that one thread, in the order the calls were made.
+ * <p>
+ * An encrypted store has to be {@link #unlock(char[]) unlocked} before it is opened. The key is derived once and then
+ * reused by every save and compaction until the store is closed.
+ */
+public class PairsStore {
+
+    private static final Logger LOG = Logger.getLogger(PairsStore.class.getName());
+
+    private static final long COMPACTION_DELAY_SECONDS = 10;
+    private static final long CLOSE_TIMEOUT_SECONDS = 2;
+
+    private final Path dictionaryPath;
+    private final Path textPath;
+    private final Path journalPath;
+    private final PairsFileService pairsFileService;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "PairsStore");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private List<Pair<String, String>> savedPairs = List.of();
+    private List<Pair<String, String>> compiledPairs = List.of();
+    private ReplacementAutomaton compiledAutomaton;
+    private volatile PairsCipher cipher;
+    private PairsJournal journal;
+    private int snapshotId;
+    private boolean snapshotCurrent;
+    private ScheduledFuture<?> pendingCompaction;
+
+    public PairsStore(Path dictionaryPath, Path textPath, PairsFileService pairsFileService) {
+        this.dictionaryPath = dictionaryPath;
+        this.textPath = textPath;
+        this.journalPath = journalPath(dictionaryPath);
+        this.pairsFileService = pairsFileService;
+    }
+
+    /**
+     * Reads a dictionary or text file together with its journal without changing anything on disk.
+     */
+    public static PairsDictionary read(Path path, PairsFileService pairsFileService, PairsCipher cipher) {
+        PairsDictionary snapshot = pairsFileService.load(path, cipher);
+        try {
+            PairsJournal.Replay replay = PairsJournal.replay(journalPath(path), snapshot.snapshotId(), snapshot.pairs(), cipher);
+            if (replay == null || replay.records() == 0) {
+                return snapshot;
+            }
+            return new PairsDictionary(replay.pairs(), null, snapshot.snapshotId());
+        } catch (IOException e) {
+            throw new CopyPasteAnonymizerException("1807_18102026", "Something happened when trying to read the pairs journal:", e);
+        }
+    }
+
+    /**
+     * Whether the dictionary on disk is encrypted and no password has been given yet.
+     */
+    public boolean isLocked() {
+        try {
+            return cipher == null && PairsCipher.isEncrypted(dictionaryPath);
+        } catch (IOException e) {
+            throw new CopyPasteAnonymizerException("1903_18102026", "Something happened when trying to read the pairs dictionary:", e);
+        }
+    }
+
+    public Path getTextPath() {
+        return textPath;
+    }
+
+    public boolean isEncrypted() {
+        return cipher != null;
+    }
+
+    /**
+     * Derives the key of the encrypted dictionary, returning {@code false} if the password is wrong. The caller still
+     * owns the password and should clear it.
+     */
+    public boolean unlock(char[] password) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                cipher = PairsCipher.unlock(password, dictionaryPath);
+            } catch (IOException | IllegalArgumentException e) {
+                throw new CompletionException(new CopyPasteAnonymizerException("1904_18102026", "Something happened when trying to unlock the pairs dictionary:", e));
+            }
+            return cipher != null;
+        }, executor).join();
+    }
+
+    /**
+     * Loads the snapshot, importing the text file if there is no snapshot yet, and replays the journal on top of it.
+     * The automaton is only returned when the journal is empty, because it was compiled for the snapshot alone.
+     */
+    public PairsDictionary open() {
+        return CompletableFuture.supplyAsync(this::doOpen, executor).join();
+    }
+
+    /**
+     * Appends the edits since the last save to the journal. The future completes with the number of records written
+     * once they are on disk.
+     */
+    public CompletableFuture<Integer> save(List<Pair<String, String>> pairs) {
+        List<Pair<String, String>> snapshot = List.copyOf(pairs);
+        return CompletableFuture.supplyAsync(() -> {
+            List<PairsJournal.Change> changes = PairsJournal.diff(savedPairs, snapshot);
+            if (!changes.isEmpty()) {
+                try {
+                    if (journal == null) {
+                        journal = PairsJournal.create(journalPath, snapshotId, cipher);
+                    }
+                    journal.append(changes);
+                } catch (IOException e) {
+                    throw new CompletionException(new CopyPasteAnonymizerException("1801_18102026", "Something happened when trying to save pairs:", e));
+                }
+                snapshotCurrent = false;
+            }
+            savedPairs = snapshot;
+            return changes.size();
+        }, executor);
+    }
+
+    /**
+     * Schedules compaction into a snapshot carrying the automaton, which has to be compiled from exactly these pairs.
+     * Each call postpones the compaction; it is skipped if the pairs have been saved differently in the meantime.
+     */
+    public void compactLater(List<Pair<String, String>> pairs, ReplacementAutomaton automaton) {
+        executor.execute(() -> {
+            compiledPairs = pairs;
+            compiledAutomaton = automaton;
+            if (pendingCompaction != null) {
+                pendingCompaction.cancel(false);
+            }
+            pendingCompaction = executor.schedule(() -> compact(pairs, automaton), COMPACTION_DELAY_SECONDS, TimeUnit.SECONDS);
+        });
+    }
+
+    /**
+     * Rewrites the snapshot and journal encrypted under a key derived from the password, or unencrypted if it is
+     * {@code null}. The saved pairs are kept; the caller still owns the password and should clear it.
+     */
+    public CompletableFuture<Void> changePassword(char[] password) {
+        char[] copy = password == null ? null : password.clone();
+        return CompletableFuture.runAsync(() -> {
+            PairsCipher next = null;
+            try {
+                next = copy == null ? null : PairsCipher.create(copy);
+                ReplacementAutomaton automaton = samePairs(compiledPairs, savedPairs) ? compiledAutomaton : null;
+                rewrite(automaton, next);
+            } catch (IOException e) {
+                if (next != null && next != cipher) {
+                    next.close();
+                }
+                throw new CompletionException(new CopyPasteAnonymizerException("1905_18102026", "Something happened when trying to change the pairs password:", e));
+            } finally {
+                if (copy != null) {
+                    Arrays.fill(copy, '\0');
+                }
+            }
+            LOG.info("(%s) %s".formatted("1906_18102026", next == null ? "Pairs encryption removed" : "Pairs encrypted with a new password"));
+        }, executor);
+    }
+
+    /**
+     * Stops the store without waiting for a pending compaction; the journal already holds every saved edit.
+     */
+    public void close() {
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                LOG.warning("(%s) %s".formatted("1802_18102026", "The pairs store did not stop in time."));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            if (journal != null) {
+                journal.close();
+            }
+        } catch (IOException e) {
+            LOG.warning("(%s) %s\n%s".formatted("1803_18102026", "Something happened when trying to close the pairs journal:", e.toString()));
+        }
+        if (cipher != null) {
+            cipher.close();
+        }
+    }
+
+    private PairsDictionary doOpen() {
+        try {
+            if (!Files.exists(dictionaryPath) && !Files.exists(textPath)) {
+                pairsFileService.save(dictionaryPath, List.of(), null, cipher);
+            }
+            PairsDictionary snapshot = pairsFileService.loadOrImport(dictionaryPath, textPath, cipher);
+            snapshotId = snapshot.snapshotId();
+
+            PairsJournal.Replay replay = PairsJournal.replay(journalPath, snapshot.snapshotId(), snapshot.pairs(), cipher);
+            if (replay == null) {
+                journal = PairsJournal.create(journalPath, snapshot.snapshotId(), cipher);
+                savedPairs = List.copyOf(snapshot.pairs());
+            } else {
+                journal = PairsJournal.open(journalPath, replay);
+                savedPairs = List.copyOf(replay.pairs());
+            }
+            snapshotCurrent = journal.records() == 0 && snapshot.automaton() != null;
+
+            if (journal.records() > 0) {
+                LOG.info("(%s) %s".formatted("1804_18102026", "Replayed %d journaled pair edits".formatted(journal.records())));
+            }
+            return new PairsDictionary(savedPairs, journal.records() == 0 ? snapshot.automaton() : null, snapshot.snapshotId());
+        } catch (IOException e) {
+            throw new CopyPasteAnonymizerException("1805_18102026", "Something happened when trying to open the pairs store:", e);
+        }
+    }
+
+    private void compact(List<Pair<String, String>> pairs, ReplacementAutomaton automaton) {
+        pendingCompaction = null;
+        if (snapshotCurrent || !samePairs(pairs, savedPairs)) {
+            return;
+        }
+        try {
+            rewrite(automaton, cipher);
+        } catch (IOException e) {
+            LOG.warning("(%s) %s\n%s".formatted("1806_18102026", "Something happened when trying to compact the pairs journal:", e.toString()));
+        }
+    }
+
+    /**
+     * Writes the saved pairs as a new snapshot and starts an empty journal for it, switching to the snapshot's cipher
+     * as soon as the snapshot is on disk.
+     */
+    private void rewrite(ReplacementAutomaton automaton, PairsCipher snapshotCipher) throws IOException {
+        snapshotId = pairsFileService.save(dictionaryPath, savedPairs, automaton, snapshotCipher);
+        snapshotCurrent = automaton != null;
+        PairsCipher previous = cipher;
+        cipher = snapshotCipher;
+        if (previous != null && previous != snapshotCipher) {
+            previous.close();
+        }
+        PairsJournal folded = journal;
+        journal = null;
+        if (folded != null) {
+            folded.close();
+        }
+        journal = PairsJournal.create(journalPath, snapshotId, snapshotCipher);
+    }
+
+    private static Path journalPath(Path dictionaryPath) {
+        return dictionaryPath.resolveSibling(dictionaryPath.getFileName() + ".journal");
+    }
+
+    private static boolean samePairs(List<Pair<String, String>> first, List<Pair<String, String>> second) {
+        if (first.size() != second.size()) {
+            return false;
+        }
+        for (int i = 0; i < first.size(); i++) {
+            if (!Objects.equals(first.get(i).getKey(), second.get(i).getKey())
+                    || !Objects.equals(first.get(i).getValue(), second.get(i).getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,98 @@
+package com.plociennik.copypasteanonymizer.services;
+
+import com.plociennik.copypasteanonymizer.common.CopyPasteAnonymizerException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Named pairs dictionaries kept side by side: the default profile in {@link PairsFileService#DEFAULT_PATH}, every other
+ * profile as {@code <name>.cpad} in the profiles directory. A {@code <name>.txt} text file dropped there is imported
+ * like {@code pairs.txt}. Each profile has its own {@link PairsStore}, opened on first use and kept until
+ * {@link #close()}.
+ */
+public class ProfileService {
+
+    public static final String DEFAULT_PROFILE = "Default";
+    public static final Path PROFILES_DIRECTORY = Path.of("profiles");
+
+    private static final Pattern PROFILE_NAME = Pattern.compile("[\\p{L}\\p{N}][\\p{L}\\p{N} _-]{0,39}");
+
+    private final Path profilesDirectory;
+    private final PairsFileService pairsFileService;
+    private final Map<String, PairsStore> stores = new HashMap<>();
+
+    public ProfileService(PairsFileService pairsFileService) {
+        this(PROFILES_DIRECTORY, pairsFileService);
+    }
+
+    public ProfileService(Path profilesDirectory, PairsFileService pairsFileService) {
+        this.profilesDirectory = profilesDirectory;
+        this.pairsFileService = pairsFileService;
+    }
+
+    /**
+     * The default profile first, then the others by name.
+     */
+    public List<String> listProfiles() {
+        SortedSet<String> names = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        if (Files.isDirectory(profilesDirectory)) {
+            try (Stream<Path> files = Files.list(profilesDirectory)) {
+                files.map(file -> file.getFileName().toString())
+                        .filter(name -> name.endsWith(".cpad") || name.endsWith(".txt"))
+                        .map(name -> name.substring(0, name.lastIndexOf('.')))
+                        .filter(name -> PROFILE_NAME.matcher(name).matches() && !name.equalsIgnoreCase(DEFAULT_PROFILE))
+                        .forEach(names::add);
+            } catch (IOException e) {
+                throw new CopyPasteAnonymizerException("2001_18102026", "Something happened when trying to list the profiles:", e);
+            }
+        }
+        names.addAll(stores.keySet());
+        names.remove(DEFAULT_PROFILE);
+
+        List<String> profiles = new ArrayList<>(names.size() + 1);
+        profiles.add(DEFAULT_PROFILE);
+        profiles.addAll(names);
+        return profiles;
+    }
+
+    public PairsStore store(String profile) {
+        return stores.computeIfAbsent(profile, name -> DEFAULT_PROFILE.equals(name)
+                ? new PairsStore(PairsFileService.DEFAULT_PATH, PairsFileService.LEGACY_TEXT_PATH, pairsFileService)
+                : new PairsStore(profilesDirectory.resolve(name + ".cpad"), profilesDirectory.resolve(name + ".txt"), pairsFileService));
+    }
+
+    /**
+     * Checks the name and prepares the profiles directory, returning the trimmed name. The profile's files are created
+     * when its store is opened.
+     */
+    public String createProfile(String name) {
+        String profile = name.strip();
+        if (!PROFILE_NAME.matcher(profile).matches()) {
+            throw new IllegalArgumentException("A profile name has up to 40 letters, digits, spaces, '-' and '_'.");
+        }
+        if (listProfiles().stream().anyMatch(profile::equalsIgnoreCase)) {
+            throw new IllegalArgumentException("A profile named '%s' already exists.".formatted(profile));
+        }
+        try {
+            Files.createDirectories(profilesDirectory);
+        } catch (IOException e) {
+            throw new CopyPasteAnonymizerException("2002_18102026", "Something happened when trying to create the profiles directory:", e);
+        }
+        return profile;
+    }
+
+    public void close() {
+        stores.values().forEach(PairsStore::close);
+        stores.clear();
+    }
+}
@@ -1,69 +1,342 @@
 package com.plociennik.copypasteanonymizer.services;
 
+import com.plociennik.copypasteanonymizer.common.CopyPasteAnonymizerException;
+import com.plociennik.copypasteanonymizer.enums.OverflowPolicy;
 import com.plociennik.copypasteanonymizer.enums.ReplacementMode;
+import com.plociennik.copypasteanonymizer.jfr.AnonymizationEvent;
+import com.plociennik.copypasteanonymizer.matcher.AnonymizationResult;
+import com.plociennik.copypasteanonymizer.matcher.CompiledRuleSet;
+import com.plociennik.copypasteanonymizer.matcher.MatchOptions;
+import com.plociennik.copypasteanonymizer.matcher.ReplacementAutomaton;
+import com.plociennik.copypasteanonymizer.matcher.RuleSetCache;
+import com.plociennik.copypasteanonymizer.matcher.StreamingResult;
+import com.plociennik.copypasteanonymizer.metrics.AppMetrics;
 import javafx.util.Pair;
-import org.apache.commons.lang3.StringUtils;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class ReplacementService {
 
-    public String applyReplacements(String input, ReplacementMode mode, List<Pair<String, String>> replacementPairs) {
-        if (input == null || input.isEmpty()) {
-            return input;
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+    public static final int DEFAULT_MAX_PAYLOAD_CHARS = 64 * 1024 * 1024;
+
+    private final AtomicReference<CompiledRuleSet> activeRuleSet = new AtomicReference<>(CompiledRuleSet.EMPTY);
+    private final AtomicLong versionSequence = new AtomicLong();
+
+    private final RuleSetCache ruleSetCache = new RuleSetCache(RuleSetCache.DEFAULT_MAX_BYTES);
+
+    private volatile List<Pair<String, String>> publishedPairs = List.of();
+    private volatile ReplacementAutomaton publishedAutomaton;
+    private volatile String publishedProfile;
+    private volatile MatchOptions matchOptions = MatchOptions.EXACT;
+
+    private final ExecutorService compiler = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "RuleSetCompiler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final int chunkSize;
+    private final long maxPayloadChars;
+    private final OverflowPolicy overflowPolicy;
+
+    public ReplacementService() {
+        this(DEFAULT_CHUNK_SIZE, DEFAULT_MAX_PAYLOAD_CHARS, OverflowPolicy.REJECT);
+    }
+
+    public ReplacementService(int chunkSize, long maxPayloadChars, OverflowPolicy overflowPolicy) {
+        if (chunkSize <= 0 || maxPayloadChars <= 0) {
+            throw new IllegalArgumentException("Chunk size and payload limit must be positive.");
         }
+        this.chunkSize = chunkSize;
+        this.maxPayloadChars = maxPayloadChars;
+        this.overflowPolicy = overflowPolicy;
+    }
 
-        String result = input;
+    public CompletableFuture<CompiledRuleSet> publish(List<Pair<String, String>> replacementPairs) {
+        return publish(replacementPairs, null);
+    }
 
-        for (Pair<String, String> pair : replacementPairs) {
-            String key = pair.getKey();
-            String value = pair.getValue();
+    /**
+     * Publishes pairs together with an automaton precompiled from them, which is used instead of compiling whenever
+     * the match options fold the same way.
+     */
+    public CompletableFuture<CompiledRuleSet> publish(List<Pair<String, String>> replacementPairs,
+                                                      ReplacementAutomaton precompiled) {
+        return publish(null, replacementPairs, precompiled);
+    }
+
+    /**
+     * Publishes the pairs of a profile. If the rule set cached for the profile was compiled from the same pairs and
+     * match options, it is activated at once and the returned future is already complete; otherwise the pairs are
+     * compiled in the background and cached. Pairs published without a profile are not cached.
+     */
+    public synchronized CompletableFuture<CompiledRuleSet> publish(String profile, List<Pair<String, String>> replacementPairs,
+                                                                   ReplacementAutomaton precompiled) {
+        List<Pair<String, String>> snapshot = List.copyOf(replacementPairs);
+        publishedPairs = snapshot;
+        publishedAutomaton = precompiled;
+        publishedProfile = profile;
+        return compileAndPublish(snapshot, matchOptions);
+    }
+
+    /**
+     * Recompiles the last published pairs with the given options.
+     */
+    public synchronized CompletableFuture<CompiledRuleSet> setMatchOptions(MatchOptions options) {
+        matchOptions = options;
+        return compileAndPublish(publishedPairs, options);
+    }
 
-            if (StringUtils.isBlank(key) || StringUtils.isBlank(value)) {
-                continue;
+    public MatchOptions getMatchOptions() {
+        return matchOptions;
+    }
+
+    private CompletableFuture<CompiledRuleSet> compileAndPublish(List<Pair<String, String>> snapshot, MatchOptions options) {
+        long version = versionSequence.incrementAndGet();
+        ReplacementAutomaton precompiled = publishedAutomaton;
+        String profile = publishedProfile;
+
+        if (profile != null) {
+            CompiledRuleSet cached = ruleSetCache.get(profile, snapshot, options);
+            if (cached != null) {
+                AppMetrics.RULE_SET_CACHE_HITS.increment();
+                return CompletableFuture.completedFuture(activate(cached.withVersion(version)));
             }
+            AppMetrics.RULE_SET_CACHE_MISSES.increment();
+        }
 
-            switch (mode) {
-                case LEFT_TO_RIGHT:
-                    if (input.contains(key)) {
-                        String oldResult = result;
-                        result = result.replace(key, value);
-                        if (!oldResult.equals(result)) {
-                            System.out.println("Applied LEFT→RIGHT replacement: '" + key + "' → '" + value + "'");
-                        }
-                    }
-                    break;
-
-                case RIGHT_TO_LEFT:
-                    if (input.contains(value)) {
-                        String oldResult = result;
-                        result = result.replace(value, key);
-                        if (!oldResult.equals(result)) {
-                            System.out.println("Applied RIGHT→LEFT replacement: '" + value + "' → '" + key + "'");
-                        }
+        return CompletableFuture
+                .supplyAsync(() -> CompiledRuleSet.compile(version, snapshot, options, precompiled), compiler)
+                .thenApply(ruleSet -> {
+                    if (profile != null) {
+                        ruleSetCache.put(profile, snapshot, options, ruleSet);
                     }
-                    break;
-
-                case BIDIRECTIONAL:
-                    boolean leftFound = input.contains(key);
-                    boolean rightFound = input.contains(value);
-
-                    if (leftFound) {
-                        String oldResult = result;
-                        result = result.replace(key, value);
-                        if (!oldResult.equals(result)) {
-                            System.out.println("Applied BIDIRECTIONAL replacement: '" + key + "' → '" + value + "'");
-                        }
-                    } else if (rightFound) {
-                        String oldResult = result;
-                        result = result.replace(value, key);
-                        if (!oldResult.equals(result)) {
-                            System.out.println("Applied BIDIRECTIONAL replacement: '" + value + "' → '" + key + "'");
-                        }
-                    }
-                    break;
-            }
+                    return activate(ruleSet);
+                });
+    }
+
+    private CompiledRuleSet activate(CompiledRuleSet ruleSet) {
+        activeRuleSet.accumulateAndGet(ruleSet, (current, candidate) ->
+                candidate.version() > current.version() ? candidate : current);
+        return ruleSet;
+    }
+
+    public CompiledRuleSet getActiveRuleSet() {
+        return activeRuleSet.get();
+    }
+
+    public AnonymizationResult applyReplacements(CharSequence input, ReplacementMode mode) {
+        CompiledRuleSet ruleSet = activeRuleSet.get();
+        if (input == null || input.isEmpty()) {
+            return new AnonymizationResult(input == null ? null : input.toString(), false, false, 0, ruleSet.version());
+        }
+        AnonymizationEvent event = new AnonymizationEvent();
+        event.begin();
+        long startedAt = System.nanoTime();
+        int end = acceptedLength(0, input.length());
+        AnonymizationResult result = ruleSet.apply(input, end, mode);
+        record(startedAt, end, result.replacements());
+
+        if (event.shouldCommit()) {
+            event.mode = mode.name();
+            event.chars = end;
+            event.ruleSetVersion = result.ruleSetVersion();
+            event.replacements = result.replacements();
+            event.truncated = result.truncated();
+            event.commit();
+        }
+        return result;
+    }
+
+    /**
+     * Streams the input through the active rule set chunk by chunk. With {@link OverflowPolicy#REJECT} an oversized
+     * payload fails with an exception after part of the output may already have been written, so the caller has to
+     * discard the output in that case. The output is flushed after every chunk so that pipelines see data promptly.
+     * Pattern rules are matched line by line, so a pattern match cannot span a line break.
+     */
+    public StreamingResult applyReplacements(Reader input, Writer output, ReplacementMode mode) throws IOException {
+        AnonymizationEvent event = new AnonymizationEvent();
+        event.begin();
+        long startedAt = System.nanoTime();
+        StreamingResult result = applyStreaming(input, output, mode);
+        record(startedAt, result.charsRead(), result.replacements());
+
+        if (event.shouldCommit()) {
+            event.mode = mode.name();
+            event.streaming = true;
+            event.chars = result.charsRead();
+            event.ruleSetVersion = result.ruleSetVersion();
+            event.replacements = result.replacements();
+            event.truncated = result.truncated();
+            event.commit();
         }
         return result;
     }
+
+    private StreamingResult applyStreaming(Reader input, Writer output, ReplacementMode mode) throws IOException {
+        CompiledRuleSet ruleSet = activeRuleSet.get();
+        ReplacementAutomaton automaton = ruleSet.automaton();
+
+        if (mode == ReplacementMode.BIDIRECTIONAL) {
+            return applyBuffered(input, output, ruleSet);
+        }
+        if (ruleSet.hasPatternRules(mode)) {
+            return applyByLine(input, output, ruleSet, mode);
+        }
+
+        char[] buffer = new char[chunkSize];
+        StringBuilder window = new StringBuilder(chunkSize + automaton.maxPatternLength());
+        ReplacementAutomaton.Scanner scanner = automaton.newScanner(mode, null, chunkSize + chunkSize / 4);
+
+        long charsRead = 0;
+        long charsWritten = 0;
+        boolean truncated = false;
+
+        int read;
+        while (!truncated && (read = input.read(buffer)) != -1) {
+            int accepted = acceptedLength(charsRead, read);
+            truncated = accepted < read;
+            charsRead += accepted;
+
+            window.append(buffer, 0, accepted);
+            scanner.scan(window, window.length(), false);
+            int settled = scanner.settle(window);
+            window.delete(0, settled);
+            scanner.rebase(settled);
+            charsWritten += drain(scanner.output(), output);
+        }
+
+        scanner.finish(window, window.length());
+        charsWritten += drain(scanner.output(), output);
+
+        return new StreamingResult(charsRead, charsWritten, scanner.replacements(), truncated, ruleSet.version());
+    }
+
+    private StreamingResult applyBuffered(Reader input, Writer output, CompiledRuleSet ruleSet) throws IOException {
+        char[] buffer = new char[chunkSize];
+        StringBuilder content = new StringBuilder(chunkSize);
+        boolean truncated = false;
+
+        int read;
+        while (!truncated && (read = input.read(buffer)) != -1) {
+            int accepted = acceptedLength(content.length(), read);
+            truncated = accepted < read;
+            content.append(buffer, 0, accepted);
+        }
+
+        int length = content.length();
+        if (ruleSet.hasPatternRules(ReplacementMode.BIDIRECTIONAL)) {
+            AnonymizationResult result = ruleSet.apply(content, ReplacementMode.BIDIRECTIONAL);
+            output.write(result.content());
+            output.flush();
+            return new StreamingResult(length, result.content().length(), result.replacements(), truncated, ruleSet.version());
+        }
+
+        ReplacementAutomaton.Scanner scanner = ruleSet.automaton()
+                .newScanner(ReplacementMode.BIDIRECTIONAL, content, chunkSize + chunkSize / 4);
+
+        long charsWritten = 0;
+        for (int end = Math.min(chunkSize, length); end < length; end = Math.min(end + chunkSize, length)) {
+            scanner.scan(content, end, false);
+            scanner.settle(content);
+            charsWritten += drain(scanner.output(), output);
+        }
+        scanner.finish(content, length);
+        charsWritten += drain(scanner.output(), output);
+
+        return new StreamingResult(length, charsWritten, scanner.replacements(), truncated, ruleSet.version());
+    }
+
+    /**
+     * Applies the rule set to complete lines only. A line longer than the chunk size is cut to keep memory bounded,
+     * before any literal match that may still be in progress at the chunk boundary, so only pattern matches can be
+     * split by the cut.
+     */
+    private StreamingResult applyByLine(Reader input, Writer output, CompiledRuleSet ruleSet, ReplacementMode mode) throws IOException {
+        char[] buffer = new char[chunkSize];
+        StringBuilder window = new StringBuilder(chunkSize * 2);
+
+        long charsRead = 0;
+        long charsWritten = 0;
+        long replacements = 0;
+        boolean truncated = false;
+
+        int read;
+        while (!truncated && (read = input.read(buffer)) != -1) {
+            int accepted = acceptedLength(charsRead, read);
+            truncated = accepted < read;
+            charsRead += accepted;
+
+            window.append(buffer, 0, accepted);
+            int lineEnd = window.lastIndexOf("\n") + 1;
+            if (lineEnd == 0 && window.length() >= chunkSize) {
+                lineEnd = literalSafeCut(ruleSet, mode, window);
+            }
+            if (lineEnd > 0) {
+                AnonymizationResult result = ruleSet.apply(window, lineEnd, mode);
+                charsWritten += write(result.content(), output);
+                replacements += result.replacements();
+                window.delete(0, lineEnd);
+            }
+        }
+
+        if (!window.isEmpty()) {
+            AnonymizationResult result = ruleSet.apply(window, mode);
+            charsWritten += write(result.content(), output);
+            replacements += result.replacements();
+        }
+
+        return new StreamingResult(charsRead, charsWritten, replacements, truncated, ruleSet.version());
+    }
+
+    /**
+     * The end of the longest prefix of the window that no literal match can cross, or the whole window if a match may
+     * start right at its beginning.
+     */
+    private static int literalSafeCut(CompiledRuleSet ruleSet, ReplacementMode mode, CharSequence window) {
+        ReplacementAutomaton.Scanner scanner = ruleSet.automaton().newScanner(mode, null, window.length());
+        scanner.scan(window, window.length(), false);
+        int safe = scanner.settle(window);
+        return safe > 0 ? safe : window.length();
+    }
+
+    private static void record(long startedAt, long chars, long replacements) {
+        AppMetrics.MATCH_TIME.recordSince(startedAt);
+        AppMetrics.MATCHED_BYTES.add(chars * Character.BYTES);
+        AppMetrics.REPLACEMENTS.add(replacements);
+    }
+
+    private int acceptedLength(long alreadyAccepted, int length) {
+        long remaining = maxPayloadChars - alreadyAccepted;
+        if (length <= remaining) {
+            return length;
+        }
+        if (overflowPolicy == OverflowPolicy.REJECT) {
+            throw new CopyPasteAnonymizerException("1105_18102026", "The payload exceeds the limit of %d characters.".formatted(maxPayloadChars));
+        }
+        return (int) remaining;
+    }
+
+    private static int write(String content, Writer output) throws IOException {
+        output.write(content);
+        output.flush();
+        return content.length();
+    }
+
+    private static int drain(StringBuilder pending, Writer output) throws IOException {
+        int length = pending.length();
+        output.append(pending);
+        output.flush();
+        pending.setLength(0);
+        return length;
+    }
 }
@@ -0,0 +1,95 @@
+package com.plociennik.copypasteanonymizer.services;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keyed, cancellable timers on one scheduler thread. Scheduling a timer replaces the pending timer of the same key,
+ * so a key never holds more than one timer however often it is rescheduled, and an older timer can never fire after a
+ * newer one was scheduled.
+ * <p>
+ * A timer can hand its task to another executor, such as {@code Platform::runLater}. It still only runs if it is the
+ * key's timer when the task starts, so a timer that fired while being replaced is dropped rather than run late.
+ */
+public class TimerService {
+
+    private final class Timer implements Runnable {
+        private final Object key;
+        private final Executor executor;
+        private final Runnable task;
+        private ScheduledFuture<?> future;
+
+        private Timer(Object key, Executor executor, Runnable task) {
+            this.key = key;
+            this.executor = executor;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            executor.execute(() -> {
+                if (timers.remove(key, this)) {
+                    task.run();
+                }
+            });
+        }
+    }
+
+    private final ConcurrentHashMap<Object, Timer> timers = new ConcurrentHashMap<>();
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    public TimerService() {
+        scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "Timers");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Runs the task on the scheduler thread after the delay, replacing the pending timer of the key. Keys are compared
+     * with {@code equals}.
+     */
+    public void schedule(Object key, Duration delay, Runnable task) {
+        schedule(key, delay, Runnable::run, task);
+    }
+
+    /**
+     * Hands the task to the executor after the delay, replacing the pending timer of the key.
+     */
+    public void schedule(Object key, Duration delay, Executor executor, Runnable task) {
+        Timer timer = new Timer(Objects.requireNonNull(key), executor, task);
+        timers.compute(key, (k, replaced) -> {
+            if (replaced != null) {
+                replaced.future.cancel(false);
+            }
+            timer.future = scheduler.schedule(timer, delay.toNanos(), TimeUnit.NANOSECONDS);
+            return timer;
+        });
+    }
+
+    public void cancel(Object key) {
+        Timer timer = timers.remove(key);
+        if (timer != null) {
+            timer.future.cancel(false);
+        }
+    }
+
+    /**
+     * Timers waiting on the scheduler, for diagnostics.
+     */
+    public int getScheduledCount() {
+        return scheduler.getQueue().size();
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+        timers.clear();
+    }
+}
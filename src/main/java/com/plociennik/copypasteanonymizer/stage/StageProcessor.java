@@ -14,9 +14,20 @@ import java.util.Objects;
 
 public class StageProcessor {
 
-    public static void setup(Stage stage) throws IOException {
+    /**
+     * Sets up the main window, returning {@code false} if no profile could be opened. The application has then been
+     * shut down and the window must not be shown.
+     */
+    public static boolean setup(Stage stage) throws IOException {
         FXMLLoader fxmlLoader = new FXMLLoader(CopyPasteAnonymizerApplication.class.getResource("main-view.fxml"));
         Scene scene = new Scene(fxmlLoader.load(), 700, 600);
+        MainController controller = fxmlLoader.getController();
+        if (!controller.isProfileOpen()) {
+            controller.shutdown();
+            Platform.exit();
+            return false;
+        }
+
         stage.setTitle("Copy-Paste Anonymizer");
         stage.setScene(scene);
         stage.setIconified(false);
@@ -31,12 +42,13 @@ public class StageProcessor {
         );
 
         setOnCloseRequest(stage, fxmlLoader);
+        return true;
     }
 
     private static void setOnCloseRequest(Stage stage, FXMLLoader fxmlLoader) {
         stage.setOnCloseRequest(event -> {
             MainController controller = fxmlLoader.getController();
-            controller.handleSavePairs();
+            controller.savePairs().join();
             controller.shutdown();
             Platform.exit();
             System.exit(0);
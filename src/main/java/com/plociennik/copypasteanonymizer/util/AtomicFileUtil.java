@@ -0,0 +1,57 @@
+package com.plociennik.copypasteanonymizer.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Replaces files so that readers and crashes see either the old or the new content: the content is written to a
+ * temporary file next to the target, flushed to disk, moved over the target atomically and the move itself is flushed.
+ */
+public final class AtomicFileUtil {
+
+    private static final int WRITE_CHUNK_SIZE = 256 * 1024;
+
+    private AtomicFileUtil() {
+    }
+
+    public static void write(Path path, ByteBuffer content) throws IOException {
+        Path target = path.toAbsolutePath();
+        Path directory = target.getParent();
+        Path temporary = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                writeFully(channel, content);
+                channel.force(true);
+            }
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            syncDirectory(directory);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Writes in bounded chunks, because the channel copies a heap buffer into a temporary direct buffer of the same
+     * size and keeps that buffer cached per thread.
+     */
+    public static void writeFully(FileChannel channel, ByteBuffer content) throws IOException {
+        ByteBuffer chunk = content.duplicate();
+        while (content.hasRemaining()) {
+            chunk.limit(Math.min(content.limit(), content.position() + WRITE_CHUNK_SIZE)).position(content.position());
+            content.position(content.position() + channel.write(chunk));
+        }
+    }
+
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Directories cannot be opened on Windows, where NTFS journals the rename itself.
+        }
+    }
+}
@@ -8,6 +8,9 @@ requires static lombok;
 requires jdk.compiler;
 requires org.apache.commons.lang3;
 requires java.logging;
+requires jdk.jfr;
+requires com.sun.jna;
+requires com.sun.jna.platform;
 
 opens com.plociennik.copypasteanonymizer to javafx.fxml;
 exports com.plociennik.copypasteanonymizer;
@@ -21,4 +24,10 @@ exports com.plociennik.copypasteanonymizer.services;
 opens com.plociennik.copypasteanonymizer.services to javafx.fxml;
 exports com.plociennik.copypasteanonymizer.enums;
 opens com.plociennik.copypasteanonymizer.enums to javafx.fxml;
+exports com.plociennik.copypasteanonymizer.matcher;
+exports com.plociennik.copypasteanonymizer.model;
+exports com.plociennik.copypasteanonymizer.cli;
+exports com.plociennik.copypasteanonymizer.pipeline;
+exports com.plociennik.copypasteanonymizer.metrics;
+exports com.plociennik.copypasteanonymizer.jfr;
 }
\ No newline at end of file
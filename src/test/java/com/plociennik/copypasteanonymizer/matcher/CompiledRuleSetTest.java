@@ -0,0 +1,73 @@
+package com.plociennik.copypasteanonymizer.matcher;
+
+import com.plociennik.copypasteanonymizer.enums.ReplacementMode;
+import javafx.util.Pair;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CompiledRuleSetTest {
+
+    @Test
+    void patternMatchOverlappedByADroppedPatternMatchIsStillReplaced() {
+        CompiledRuleSet ruleSet = CompiledRuleSet.compile(1, List.of(
+                new Pair<>("ab", "X"),
+                new Pair<>("regex:bcde", "R1"),
+                new Pair<>("regex:defgh", "R2")));
+
+        assertEquals("XcR2", ruleSet.apply("abcdefgh", ReplacementMode.LEFT_TO_RIGHT).content());
+    }
+
+    @Test
+    void longestPatternMatchWinsAmongMatchesStartingTogether() {
+        CompiledRuleSet ruleSet = CompiledRuleSet.compile(1, List.of(
+                new Pair<>("regex:ab", "S"),
+                new Pair<>("regex:abcd", "L")));
+
+        assertEquals("L-S", ruleSet.apply("abcd-ab", ReplacementMode.LEFT_TO_RIGHT).content());
+    }
+
+    @Test
+    void fuzzyMatchingLeavesAnonymizedValuesAlone() {
+        CompiledRuleSet ruleSet = CompiledRuleSet.compile(1, List.of(
+                new Pair<>("Kowalski", "Nowak"),
+                new Pair<>("Nowacki", "Smith")), new MatchOptions(false, null, false, 2, 5));
+
+        assertEquals("Nowak, Nowak and Smith", ruleSet.apply("Kowalski, Nowak and Nowacky", ReplacementMode.LEFT_TO_RIGHT).content());
+    }
+
+    @Test
+    void exactValueIsNotAlsoAFuzzyMatchInBidirectionalMode() {
+        CompiledRuleSet ruleSet = CompiledRuleSet.compile(1, List.of(
+                new Pair<>("Kowalski", "Kowalsky")), new MatchOptions(false, null, false, 1, 5));
+
+        AnonymizationResult keyFound = ruleSet.apply("Kowalski Kowalsky", ReplacementMode.BIDIRECTIONAL);
+        assertEquals("Kowalsky Kowalsky", keyFound.content());
+        assertEquals(1, keyFound.replacements());
+        assertEquals("Kowalski", ruleSet.apply("Kowalsky", ReplacementMode.BIDIRECTIONAL).content());
+    }
+
+    @Test
+    void ruleThatOverflowsTheStackIsSkipped() throws InterruptedException {
+        CompiledRuleSet ruleSet = CompiledRuleSet.compile(1, List.of(
+                new Pair<>("KEY", "X"),
+                new Pair<>("regex:(a|b)+", "R")));
+        String input = "ab".repeat(50_000) + " KEY";
+
+        AtomicReference<Object> outcome = new AtomicReference<>();
+        Thread thread = new Thread(null, () -> {
+            try {
+                outcome.set(ruleSet.apply(input, ReplacementMode.LEFT_TO_RIGHT).content());
+            } catch (Throwable e) {
+                outcome.set(e);
+            }
+        }, "small-stack", 256 * 1024);
+        thread.start();
+        thread.join();
+
+        assertEquals("ab".repeat(50_000) + " X", outcome.get());
+    }
+}
@@ -0,0 +1,73 @@
+package com.plociennik.copypasteanonymizer.matcher;
+
+import javafx.util.Pair;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class RuleSetCacheTest {
+
+    private static final List<Pair<String, String>> PAIRS = List.of(
+            new Pair<>("alice", "user1"),
+            new Pair<>("bob", "user2"));
+    private static final CompiledRuleSet RULE_SET = CompiledRuleSet.compile(1, PAIRS);
+    private static final long RULE_SET_BYTES = RULE_SET.automaton().snapshotSize();
+
+    @Test
+    void ruleSetIsOnlyReturnedForTheSamePairsAndOptions() {
+        RuleSetCache cache = new RuleSetCache(RuleSetCache.DEFAULT_MAX_BYTES);
+        cache.put("work", PAIRS, MatchOptions.EXACT, RULE_SET);
+
+        assertSame(RULE_SET, cache.get("work", PAIRS, MatchOptions.EXACT));
+        assertSame(RULE_SET, cache.get("work", new ArrayList<>(PAIRS), MatchOptions.EXACT));
+        assertNull(cache.get("work", List.of(PAIRS.get(0), new Pair<>("bob", "user3")), MatchOptions.EXACT));
+        assertNull(cache.get("work", PAIRS.subList(0, 1), MatchOptions.EXACT));
+        assertNull(cache.get("work", PAIRS, new MatchOptions(true, null, false)));
+        assertNull(cache.get("home", PAIRS, MatchOptions.EXACT));
+    }
+
+    @Test
+    void leastRecentlyUsedProfileIsEvictedFirst() {
+        RuleSetCache cache = new RuleSetCache(2 * RULE_SET_BYTES);
+        cache.put("a", PAIRS, MatchOptions.EXACT, RULE_SET);
+        cache.put("b", PAIRS, MatchOptions.EXACT, RULE_SET);
+        cache.get("a", PAIRS, MatchOptions.EXACT);
+
+        cache.put("c", PAIRS, MatchOptions.EXACT, RULE_SET);
+
+        assertNotNull(cache.get("a", PAIRS, MatchOptions.EXACT));
+        assertNull(cache.get("b", PAIRS, MatchOptions.EXACT));
+        assertNotNull(cache.get("c", PAIRS, MatchOptions.EXACT));
+        assertEquals(2 * RULE_SET_BYTES, cache.bytes());
+    }
+
+    @Test
+    void mostRecentRuleSetIsKeptEvenWhenItExceedsTheLimit() {
+        RuleSetCache cache = new RuleSetCache(1);
+        cache.put("a", PAIRS, MatchOptions.EXACT, RULE_SET);
+        cache.put("b", PAIRS, MatchOptions.EXACT, RULE_SET);
+
+        assertEquals(1, cache.size());
+        assertSame(RULE_SET, cache.get("b", PAIRS, MatchOptions.EXACT));
+    }
+
+    @Test
+    void replacedAndInvalidatedRuleSetsAreNoLongerCounted() {
+        RuleSetCache cache = new RuleSetCache(RuleSetCache.DEFAULT_MAX_BYTES);
+        cache.put("a", PAIRS, MatchOptions.EXACT, RULE_SET);
+        cache.put("a", PAIRS, MatchOptions.EXACT, RULE_SET);
+        assertEquals(RULE_SET_BYTES, cache.bytes());
+
+        cache.invalidate("a");
+
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.bytes());
+        assertNull(cache.get("a", PAIRS, MatchOptions.EXACT));
+    }
+}
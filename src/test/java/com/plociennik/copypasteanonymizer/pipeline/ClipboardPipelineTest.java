@@ -0,0 +1,43 @@
+package com.plociennik.copypasteanonymizer.pipeline;
+
+import com.plociennik.copypasteanonymizer.enums.BackpressurePolicy;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClipboardPipelineTest {
+
+    @Test
+    void stageKeepsDrainingAfterAnError() throws InterruptedException {
+        CountDownLatch written = new CountDownLatch(1);
+        ClipboardPipeline pipeline = ClipboardPipeline.builder()
+                .stage(ClipboardPipeline.ANONYMIZE, BackpressurePolicy.COALESCE, 1, event -> {
+                    if (event.content().equals("boom")) {
+                        throw new StackOverflowError();
+                    }
+                    return event;
+                })
+                .stage(ClipboardPipeline.WRITE_BACK, BackpressurePolicy.COALESCE, 1, event -> {
+                    written.countDown();
+                    return event;
+                })
+                .build();
+        try {
+            pipeline.submit("boom");
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (pipeline.getMetrics().getFirst().getFailed() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            pipeline.submit("fine");
+
+            assertTrue(written.await(5, TimeUnit.SECONDS));
+            assertEquals(1, pipeline.getMetrics().getFirst().getFailed());
+        } finally {
+            pipeline.shutdown();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.plociennik.copypasteanonymizer.services;
+
+import com.plociennik.copypasteanonymizer.enums.ReplacementMode;
+import com.plociennik.copypasteanonymizer.matcher.CompiledRuleSet;
+import com.plociennik.copypasteanonymizer.matcher.MatchOptions;
+import com.plociennik.copypasteanonymizer.matcher.ReplacementAutomaton;
+import javafx.util.Pair;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DictionaryFormatTest {
+
+    private static final List<Pair<String, String>> PAIRS = List.of(
+            new Pair<>("user=admin", "user=guest"),
+            new Pair<>("line one\nline two", "redacted\r\nblock"),
+            new Pair<>("Zażółć", ""),
+            new Pair<>("", "empty key"));
+
+    @Test
+    void pairsSurviveARoundTripAsTheyAre() {
+        PairsDictionary dictionary = DictionaryFormat.read(DictionaryFormat.write(PAIRS, null, 7));
+
+        assertEquals(PAIRS, dictionary.pairs());
+        assertNull(dictionary.automaton());
+        assertEquals(7, dictionary.snapshotId());
+    }
+
+    @Test
+    void savedDictionaryLoadsBack(@TempDir Path directory) throws IOException {
+        PairsFileService pairsFileService = new PairsFileService();
+        Path path = directory.resolve("pairs.cpad");
+
+        int snapshotId = pairsFileService.save(path, PAIRS, null);
+        PairsDictionary loaded = pairsFileService.load(path);
+
+        assertEquals(PAIRS, loaded.pairs());
+        assertEquals(snapshotId, loaded.snapshotId());
+    }
+
+    @Test
+    void matcherSnapshotIsReadBackWorking() {
+        List<Pair<String, String>> pairs = PAIRS.subList(0, 2);
+        ReplacementAutomaton automaton = ReplacementAutomaton.compile(pairs, MatchOptions.EXACT);
+
+        PairsDictionary dictionary = DictionaryFormat.read(DictionaryFormat.write(pairs, automaton, 1));
+
+        assertNotNull(dictionary.automaton());
+        CompiledRuleSet ruleSet = CompiledRuleSet.compile(1, dictionary.pairs(), MatchOptions.EXACT, dictionary.automaton());
+        assertEquals("user=guest, redacted\r\nblock", ruleSet.apply("user=admin, line one\nline two", ReplacementMode.LEFT_TO_RIGHT).content());
+    }
+
+    @Test
+    void corruptedDictionaryIsRejected() {
+        ByteBuffer buffer = DictionaryFormat.write(PAIRS, null, 1);
+        int last = buffer.limit() - 1;
+        buffer.put(last, (byte) (buffer.get(last) ^ 1));
+
+        assertThrows(IllegalArgumentException.class, () -> DictionaryFormat.read(buffer));
+    }
+
+    @Test
+    void truncatedDictionaryIsRejected() {
+        ByteBuffer buffer = DictionaryFormat.write(PAIRS, null, 1);
+
+        assertThrows(IllegalArgumentException.class, () -> DictionaryFormat.read(buffer.limit(20)));
+    }
+}
@@ -0,0 +1,96 @@
+package com.plociennik.copypasteanonymizer.services;
+
+import com.plociennik.copypasteanonymizer.model.PairItem;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PairSearchIndexTest {
+
+    private static final String ALPHABET = "abcAB";
+
+    @Test
+    void findsPairsByKeyOrValueIgnoringCase() {
+        PairItem alice = new PairItem("Alice Smith", "user1");
+        PairItem bob = new PairItem("Bob", "USER2");
+        PairSearchIndex index = new PairSearchIndex(FXCollections.observableArrayList(List.of(alice, bob)));
+
+        assertEquals(Set.of(alice), index.search("  smith "));
+        assertEquals(Set.of(alice, bob), index.search("User"));
+        assertEquals(Set.of(bob), index.search("bo"));
+        assertEquals(Set.of(alice, bob), index.search(""));
+        assertEquals(Set.of(), index.search("carol"));
+    }
+
+    @Test
+    void followsEditsInsertsAndRemovals() {
+        PairItem alice = new PairItem("alice", "user1");
+        PairItem bob = new PairItem("bob", "user2");
+        ObservableList<PairItem> pairs = FXCollections.observableArrayList(List.of(alice, bob));
+        PairSearchIndex index = new PairSearchIndex(pairs);
+
+        alice.setKey("carol");
+        pairs.remove(bob);
+        PairItem dave = new PairItem("dave", "bobby");
+        pairs.add(dave);
+
+        assertEquals(Set.of(), index.search("alice"));
+        assertEquals(Set.of(alice), index.search("carol"));
+        assertEquals(Set.of(dave), index.search("bob"));
+    }
+
+    @Test
+    void disposedIndexNoLongerFollowsEdits() {
+        PairItem alice = new PairItem("alice", "user1");
+        PairSearchIndex index = new PairSearchIndex(FXCollections.observableArrayList(List.of(alice)));
+
+        index.dispose();
+        alice.setKey("carol");
+
+        assertEquals(Set.of(), index.search("carol"));
+    }
+
+    @Test
+    void searchMatchesALinearScanAfterRandomEdits() {
+        Random random = new Random(23);
+        ObservableList<PairItem> pairs = FXCollections.observableArrayList();
+        PairSearchIndex index = new PairSearchIndex(pairs);
+
+        for (int step = 0; step < 5_000; step++) {
+            int operation = pairs.size() < 20 ? 0 : random.nextInt(4);
+            switch (operation) {
+                case 0 -> pairs.add(random.nextInt(pairs.size() + 1), new PairItem(randomText(random, 40), randomText(random, 10)));
+                case 1 -> pairs.remove(random.nextInt(pairs.size()));
+                case 2 -> pairs.get(random.nextInt(pairs.size())).setKey(randomText(random, 40));
+                default -> pairs.get(random.nextInt(pairs.size())).setValue(randomText(random, 10));
+            }
+
+            String query = randomText(random, random.nextInt(1, 6));
+            assertEquals(linearSearch(pairs, query), index.search(query), "query '" + query + "' after step " + step);
+        }
+    }
+
+    private static Set<PairItem> linearSearch(List<PairItem> pairs, String query) {
+        String needle = query.toLowerCase(Locale.ROOT);
+        return pairs.stream()
+                .filter(pair -> pair.getKey().toLowerCase(Locale.ROOT).contains(needle)
+                        || pair.getValue().toLowerCase(Locale.ROOT).contains(needle))
+                .collect(Collectors.toSet());
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return text.toString();
+    }
+}
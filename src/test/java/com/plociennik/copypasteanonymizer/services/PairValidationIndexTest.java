@@ -0,0 +1,123 @@
+package com.plociennik.copypasteanonymizer.services;
+
+import com.plociennik.copypasteanonymizer.model.PairIssue;
+import com.plociennik.copypasteanonymizer.model.PairItem;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PairValidationIndexTest {
+
+    private final PairValidationService pairValidationService = new PairValidationService();
+
+    @Test
+    void duplicateKeyIsReportedUntilOneOfThemIsEdited() {
+        PairItem first = new PairItem("alice", "user1");
+        PairItem second = new PairItem("alice", "user2");
+        PairValidationIndex index = pairValidationService.watch(FXCollections.observableArrayList(List.of(first, second)));
+
+        assertEquals(new PairIssue("Left value 'alice' is already used in: Pair 2 (left)", true, false), first.getIssue());
+        assertEquals(new PairIssue("Left value 'alice' is already used in: Pair 1 (left)", true, false), second.getIssue());
+        assertSame(first, index.firstInvalid());
+
+        second.setKey(" bob ");
+
+        assertFalse(index.hasErrors());
+        assertNull(first.getIssue());
+        assertNull(second.getIssue());
+    }
+
+    @Test
+    void emptyFieldsAndInvalidPatternsAreReported() {
+        PairItem valid = new PairItem("alice", "user1");
+        PairItem empty = new PairItem("bob", "  ");
+        PairItem pattern = new PairItem("regex:(", "user3");
+        PairValidationIndex index = pairValidationService.watch(FXCollections.observableArrayList(List.of(valid, empty, pattern)));
+
+        assertNull(valid.getIssue());
+        assertEquals(new PairIssue("Both fields must be filled.", false, true), empty.getIssue());
+        assertTrue(pattern.getIssue().message().startsWith("Invalid regular expression"));
+        assertSame(empty, index.firstInvalid());
+    }
+
+    @Test
+    void insertingAPairRenumbersTheMessagesAfterIt() {
+        PairItem first = new PairItem("alice", "user1");
+        ObservableList<PairItem> pairs = FXCollections.observableArrayList(List.of(first, new PairItem("bob", "user2"), new PairItem("alice", "user3")));
+        pairValidationService.watch(pairs);
+
+        pairs.add(0, new PairItem("carol", "user4"));
+
+        assertEquals("Left value 'alice' is already used in: Pair 4 (left)", first.getIssue().message());
+    }
+
+    @Test
+    void removingADuplicateClearsTheRemainingPair() {
+        PairItem first = new PairItem("alice", "user1");
+        PairItem second = new PairItem("bob", "user1");
+        ObservableList<PairItem> pairs = FXCollections.observableArrayList(List.of(first, second));
+        PairValidationIndex index = pairValidationService.watch(pairs);
+
+        pairs.remove(second);
+
+        assertFalse(index.hasErrors());
+        assertNull(first.getIssue());
+        assertNull(second.getIssue());
+    }
+
+    @Test
+    void editsLeaveTheSameIssuesAsValidatingFromScratch() {
+        Random random = new Random(22);
+        ObservableList<PairItem> pairs = FXCollections.observableArrayList();
+        PairValidationIndex index = pairValidationService.watch(pairs);
+
+        for (int step = 0; step < 2_000; step++) {
+            int operation = pairs.isEmpty() ? 0 : random.nextInt(4);
+            switch (operation) {
+                case 0 -> pairs.add(random.nextInt(pairs.size() + 1), new PairItem(randomText(random), randomText(random)));
+                case 1 -> pairs.remove(random.nextInt(pairs.size()));
+                case 2 -> pairs.get(random.nextInt(pairs.size())).setKey(randomText(random));
+                default -> pairs.get(random.nextInt(pairs.size())).setValue(randomText(random));
+            }
+
+            ObservableList<PairItem> copy = FXCollections.observableArrayList(
+                    pairs.stream().map(pair -> new PairItem(pair.getKey(), pair.getValue())).toList());
+            PairValidationIndex fresh = pairValidationService.watch(copy);
+            for (int i = 0; i < pairs.size(); i++) {
+                assertEquals(copy.get(i).getIssue(), pairs.get(i).getIssue(), "pair " + (i + 1) + " after step " + step);
+            }
+            assertEquals(fresh.hasErrors(), index.hasErrors());
+            fresh.dispose();
+        }
+    }
+
+    @Test
+    void disposedIndexNoLongerFollowsEdits() {
+        PairItem first = new PairItem("alice", "user1");
+        PairItem second = new PairItem("bob", "user2");
+        PairValidationIndex index = pairValidationService.watch(FXCollections.observableArrayList(List.of(first, second)));
+
+        index.dispose();
+        second.setKey("alice");
+
+        assertNull(first.getIssue());
+        assertNull(second.getIssue());
+    }
+
+    private static String randomText(Random random) {
+        return switch (random.nextInt(8)) {
+            case 0 -> "";
+            case 1 -> " k" + random.nextInt(3);
+            default -> "k" + random.nextInt(6);
+        };
+    }
+}
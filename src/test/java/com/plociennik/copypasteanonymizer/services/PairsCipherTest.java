@@ -0,0 +1,117 @@
+package com.plociennik.copypasteanonymizer.services;
+
+import com.plociennik.copypasteanonymizer.util.AtomicFileUtil;
+import javafx.util.Pair;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PairsCipherTest {
+
+    private static final int ITERATIONS = 1_000;
+    private static final int SNAPSHOT_ID = 7;
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int TAG_SIZE = 16;
+    private static final int THREE_CHUNKS = 2 * CHUNK_SIZE + 1_000;
+
+    private final PairsCipher cipher = PairsCipher.create("correct horse".toCharArray(), ITERATIONS);
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    void closeCipher() {
+        cipher.close();
+    }
+
+    @Test
+    void encryptedFileDecryptsWithTheSamePassword() throws IOException {
+        byte[] plaintext = randomBytes(THREE_CHUNKS);
+        Path path = encryptedFile(plaintext);
+
+        assertTrue(PairsCipher.isEncrypted(path));
+        try (PairsCipher unlocked = PairsCipher.unlock("correct horse".toCharArray(), path)) {
+            assertNotNull(unlocked);
+            assertEquals(ByteBuffer.wrap(plaintext), decrypt(unlocked, path));
+        }
+    }
+
+    @Test
+    void wrongPasswordIsRejected() throws IOException {
+        Path path = encryptedFile(randomBytes(100));
+
+        assertNull(PairsCipher.unlock("wrong horse".toCharArray(), path));
+        try (PairsCipher other = PairsCipher.create("wrong horse".toCharArray(), ITERATIONS)) {
+            assertThrows(IllegalArgumentException.class, () -> decrypt(other, path));
+        }
+    }
+
+    @Test
+    void tamperedChunkFailsAuthentication() throws IOException {
+        Path path = encryptedFile(randomBytes(THREE_CHUNKS));
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(path, bytes);
+
+        assertThrows(IllegalArgumentException.class, () -> decrypt(cipher, path));
+    }
+
+    @Test
+    void fileTruncatedAtAChunkBoundaryIsDetected() throws IOException {
+        Path path = encryptedFile(randomBytes(THREE_CHUNKS));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1_000 - TAG_SIZE);
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> decrypt(cipher, path));
+    }
+
+    @Test
+    void encryptedJournalOnlyReplaysUnderItsKey() throws IOException {
+        List<Pair<String, String>> snapshot = List.of(new Pair<>("alice", "user1"));
+        Path path = directory.resolve("pairs.cpaj");
+        try (PairsJournal journal = PairsJournal.create(path, SNAPSHOT_ID, cipher)) {
+            journal.append(List.of(new PairsJournal.Change(PairsJournal.ChangeType.ADD, 1, "bob", "user2")));
+        }
+
+        assertEquals(List.of(new Pair<>("alice", "user1"), new Pair<>("bob", "user2")),
+                PairsJournal.replay(path, SNAPSHOT_ID, snapshot, cipher).pairs());
+        assertNull(PairsJournal.replay(path, SNAPSHOT_ID, snapshot, null));
+        try (PairsCipher other = PairsCipher.create("wrong horse".toCharArray(), ITERATIONS)) {
+            assertNull(PairsJournal.replay(path, SNAPSHOT_ID, snapshot, other));
+        }
+    }
+
+    private Path encryptedFile(byte[] plaintext) throws IOException {
+        Path path = directory.resolve("pairs.cpad");
+        AtomicFileUtil.write(path, cipher.encrypt(ByteBuffer.wrap(plaintext)));
+        return path;
+    }
+
+    private static ByteBuffer decrypt(PairsCipher cipher, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path)) {
+            return cipher.decrypt(channel);
+        }
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,133 @@
+package com.plociennik.copypasteanonymizer.services;
+
+import javafx.util.Pair;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PairsJournalTest {
+
+    private static final int SNAPSHOT_ID = 42;
+    private static final List<Pair<String, String>> SNAPSHOT = List.of(
+            new Pair<>("alice", "user1"),
+            new Pair<>("bob", "user2"),
+            new Pair<>("carol", "user3"));
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replayedDiffsRebuildTheEditedPairs() throws IOException {
+        Random random = new Random(18);
+        Path path = directory.resolve("pairs.cpaj");
+        List<Pair<String, String>> current = SNAPSHOT;
+
+        try (PairsJournal journal = PairsJournal.create(path, SNAPSHOT_ID, null)) {
+            for (int round = 0; round < 50; round++) {
+                List<Pair<String, String>> edited = randomEdit(current, random);
+                journal.append(PairsJournal.diff(current, edited));
+                current = edited;
+            }
+        }
+
+        assertEquals(current, PairsJournal.replay(path, SNAPSHOT_ID, SNAPSHOT, null).pairs());
+    }
+
+    @Test
+    void diffBeyondTheEditLimitStillRoundTrips() throws IOException {
+        List<Pair<String, String>> before = numbered("a", 6_000);
+        List<Pair<String, String>> after = new ArrayList<>(numbered("b", 5_000));
+        after.add(2_500, before.get(3_000));
+        Path path = directory.resolve("pairs.cpaj");
+
+        try (PairsJournal journal = PairsJournal.create(path, SNAPSHOT_ID, null)) {
+            journal.append(PairsJournal.diff(before, after));
+        }
+
+        assertEquals(after, PairsJournal.replay(path, SNAPSHOT_ID, before, null).pairs());
+    }
+
+    @Test
+    void tornRecordEndsTheReplay() throws IOException {
+        Path path = journalWithTwoEdits();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        assertReplaysFirstEditOnly(path);
+    }
+
+    @Test
+    void corruptedRecordEndsTheReplay() throws IOException {
+        Path path = journalWithTwoEdits();
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(path, bytes);
+
+        assertReplaysFirstEditOnly(path);
+    }
+
+    @Test
+    void journalOfAnotherSnapshotIsIgnored() throws IOException {
+        Path path = journalWithTwoEdits();
+
+        assertNull(PairsJournal.replay(path, SNAPSHOT_ID + 1, SNAPSHOT, null));
+    }
+
+    private Path journalWithTwoEdits() throws IOException {
+        Path path = directory.resolve("pairs.cpaj");
+        try (PairsJournal journal = PairsJournal.create(path, SNAPSHOT_ID, null)) {
+            journal.append(List.of(new PairsJournal.Change(PairsJournal.ChangeType.EDIT, 1, "bob", "user9")));
+            journal.append(List.of(new PairsJournal.Change(PairsJournal.ChangeType.ADD, 3, "dave", "user4")));
+        }
+        return path;
+    }
+
+    /**
+     * The replay keeps the first edit, and appending after it cuts off the damaged record for good.
+     */
+    private static void assertReplaysFirstEditOnly(Path path) throws IOException {
+        List<Pair<String, String>> firstEdit = List.of(SNAPSHOT.get(0), new Pair<>("bob", "user9"), SNAPSHOT.get(2));
+        PairsJournal.Replay replay = PairsJournal.replay(path, SNAPSHOT_ID, SNAPSHOT, null);
+        assertEquals(firstEdit, replay.pairs());
+        assertEquals(1, replay.records());
+
+        try (PairsJournal journal = PairsJournal.open(path, replay)) {
+            journal.append(List.of(new PairsJournal.Change(PairsJournal.ChangeType.REMOVE, 0, null, null)));
+        }
+        assertEquals(firstEdit.subList(1, 3), PairsJournal.replay(path, SNAPSHOT_ID, SNAPSHOT, null).pairs());
+    }
+
+    private static List<Pair<String, String>> randomEdit(List<Pair<String, String>> pairs, Random random) {
+        List<Pair<String, String>> edited = new ArrayList<>(pairs);
+        for (int edits = random.nextInt(1, 5); edits > 0; edits--) {
+            Pair<String, String> pair = new Pair<>("key" + random.nextInt(1_000), "value\n=" + random.nextInt(1_000));
+            int operation = edited.isEmpty() ? 0 : random.nextInt(3);
+            switch (operation) {
+                case 0 -> edited.add(random.nextInt(edited.size() + 1), pair);
+                case 1 -> edited.set(random.nextInt(edited.size()), pair);
+                default -> edited.remove(random.nextInt(edited.size()));
+            }
+        }
+        return edited;
+    }
+
+    private static List<Pair<String, String>> numbered(String prefix, int count) {
+        List<Pair<String, String>> pairs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            pairs.add(new Pair<>(prefix + i, "value" + i));
+        }
+        return pairs;
+    }
+}
@@ -0,0 +1,52 @@
+package com.plociennik.copypasteanonymizer.services;
+
+import com.plociennik.copypasteanonymizer.enums.OverflowPolicy;
+import com.plociennik.copypasteanonymizer.enums.ReplacementMode;
+import com.plociennik.copypasteanonymizer.matcher.StreamingResult;
+import javafx.util.Pair;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReplacementServiceTest {
+
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    @Test
+    void keySplitAcrossChunksIsReplaced() throws IOException {
+        assertKeyAtChunkBoundaryIsReplaced(List.of(new Pair<>("SECRETKEY", "X")));
+    }
+
+    @Test
+    void keySplitAcrossTheCutOfAnOverlongLineIsReplacedWithPatternRules() throws IOException {
+        assertKeyAtChunkBoundaryIsReplaced(List.of(new Pair<>("SECRETKEY", "X"), new Pair<>("regex:\\d{3}-\\d{4}", "PHONE")));
+    }
+
+    @Test
+    void patternRulesApplyInEveryLine() throws IOException {
+        ReplacementService service = new ReplacementService(CHUNK_SIZE, Long.MAX_VALUE, OverflowPolicy.REJECT);
+        service.publish(List.of(new Pair<>("regex:\\d{3}-\\d{4}", "PHONE"))).join();
+
+        StringWriter output = new StringWriter();
+        service.applyReplacements(new StringReader("call 555-1234\nor 555-9876\n"), output, ReplacementMode.LEFT_TO_RIGHT);
+
+        assertEquals("call PHONE\nor PHONE\n", output.toString());
+    }
+
+    private static void assertKeyAtChunkBoundaryIsReplaced(List<Pair<String, String>> pairs) throws IOException {
+        ReplacementService service = new ReplacementService(CHUNK_SIZE, Long.MAX_VALUE, OverflowPolicy.REJECT);
+        service.publish(pairs).join();
+        String line = "a".repeat(CHUNK_SIZE - 4) + "SECRETKEY" + "b".repeat(13_000 - CHUNK_SIZE - 5);
+
+        StringWriter output = new StringWriter();
+        StreamingResult result = service.applyReplacements(new StringReader(line), output, ReplacementMode.LEFT_TO_RIGHT);
+
+        assertEquals(1, result.replacements());
+        assertEquals(line.replace("SECRETKEY", "X"), output.toString());
+    }
+}